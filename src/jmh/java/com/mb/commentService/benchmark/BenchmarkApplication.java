@@ -0,0 +1,64 @@
+package com.mb.commentService.benchmark;
+
+import com.mb.commentService.CommentServiceApplication;
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Boots the real application against an embedded PostgreSQL for benchmarks that need the database, with
+ * discovery, the invalidation bus and SQL logging switched off so they do not show up in the numbers.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+        String jdbcUrl = EmbeddedPostgresSupport.postgres().getJdbcUrl("postgres", "postgres");
+        // Passed as arguments, not default properties, so they override application.properties.
+        Stream<String> defaults = Stream.of(
+                "spring.datasource.url=" + jdbcUrl,
+                "spring.datasource.username=postgres",
+                "spring.datasource.password=postgres",
+                "spring.jpa.show-sql=false",
+                "eureka.client.enabled=false",
+                "comment.cache.bus.enabled=false",
+                "logging.level.root=WARN");
+        // Repeated arguments would be joined into a list, so explicit properties replace the defaults.
+        Set<String> overridden = Arrays.stream(properties)
+                .map(property -> property.substring(0, property.indexOf('=')))
+                .collect(Collectors.toSet());
+        String[] args = Stream.concat(
+                        defaults.filter(property -> !overridden.contains(property.substring(0, property.indexOf('=')))),
+                        Arrays.stream(properties))
+                .map(property -> "--" + property)
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(CommentServiceApplication.class)
+                .web(webApplicationType)
+                .run(args);
+    }
+
+    /**
+     * Replaces the table contents with one post holding {@code threadSize} comments, one second apart.
+     */
+    static void seedThread(ConfigurableApplicationContext context, long postId, int threadSize) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM comments");
+        jdbcTemplate.update("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                SELECT 'user' || g, 'user' || g || '@example.com', repeat('comment text ', 8) || g, ?,
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second',
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second'
+                FROM generate_series(1, ?) AS g
+                """, postId, threadSize);
+        jdbcTemplate.execute("ANALYZE comments");
+    }
+}
@@ -0,0 +1,48 @@
+package com.mb.commentService.benchmark;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.model.Comment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory fixtures shaped like a real thread: one post, realistic field lengths, one second between comments.
+ */
+final class BenchmarkData {
+
+    static final long POST_ID = 1L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BenchmarkData() {
+    }
+
+    static List<Comment> comments(int size) {
+        List<Comment> comments = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            LocalDateTime createdAt = START.plusSeconds(i);
+            comments.add(new Comment((long) i, "user" + i, "user" + i + "@example.com",
+                    "comment text ".repeat(8) + i, POST_ID, createdAt, createdAt));
+        }
+        return comments;
+    }
+
+    static List<CommentDto> dtos(int size) {
+        List<CommentDto> dtos = new ArrayList<>(size);
+        for (Comment comment : comments(size)) {
+            dtos.add(new CommentDto(comment.getId(), comment.getName(), comment.getEmail(), comment.getComment(),
+                    comment.getPostId(), comment.getCreatedAt(), comment.getUpdatedAt()));
+        }
+        return dtos;
+    }
+
+    static CommentDto newComment() {
+        CommentDto dto = new CommentDto();
+        dto.setName("John");
+        dto.setEmail("john@example.com");
+        dto.setComment("comment text ".repeat(8));
+        dto.setPostId(POST_ID);
+        return dto;
+    }
+}
@@ -0,0 +1,89 @@
+package com.mb.commentService.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second through the whole stack (Tomcat, security filters, Jackson, cache, JPA, PostgreSQL)
+ * from one HTTP client per available core, against a post with a few thousand comments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ControllerThroughputBenchmark {
+
+    private static final int THREAD_SIZE = 5_000;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private long commentId;
+    private byte[] newComment;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET, "server.port=0");
+        BenchmarkApplication.seedThread(context, BenchmarkData.POST_ID, THREAD_SIZE);
+        commentId = context.getBean(JdbcTemplate.class).queryForObject("SELECT MIN(id) FROM comments", Long.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/api/comments";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        newComment = new ObjectMapper().writeValueAsBytes(BenchmarkData.newComment());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getCommentById() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + commentId)).GET());
+    }
+
+    @Benchmark
+    public int getFirstPage() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/post/" + BenchmarkData.POST_ID + "/page?limit=20")).GET());
+    }
+
+    @Benchmark
+    public int createComment() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(newComment)));
+    }
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
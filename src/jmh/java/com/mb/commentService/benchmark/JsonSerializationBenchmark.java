@@ -0,0 +1,57 @@
+package com.mb.commentService.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing comment lists the way the controller responds: a bare thread array and a keyset page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<CommentDto> thread;
+    private CommentPageDto page;
+
+    @Setup
+    public void setUp() {
+        // Same builder Spring MVC configures its message converter from.
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        thread = BenchmarkData.dtos(size);
+        page = new CommentPageDto(thread, "MjAyNC0wMS0wMVQwMDowMDowMXwx");
+    }
+
+    @Benchmark
+    public byte[] thread() throws Exception {
+        return objectMapper.writeValueAsBytes(thread);
+    }
+
+    @Benchmark
+    public byte[] page() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,107 @@
+package com.mb.commentService.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput with the shipped logging setup against the old one.
+ * <ul>
+ *     <li>{@code verbose}: every request line of the controller and service logged (they used to be INFO, now
+ *     DEBUG), SQL printed through {@code show-sql} and every request in the access log;</li>
+ *     <li>{@code quiet}: the defaults from {@code application.properties}, with INFO as the root level.</li>
+ * </ul>
+ * Standard out is discarded while the application runs, so the numbers show the cost of producing log lines
+ * rather than the speed of the terminal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(Threads.MAX)
+@Fork(1)
+public class LoggingOverheadBenchmark {
+
+    @Param({"verbose", "quiet"})
+    public String logging;
+
+    private ConfigurableApplicationContext context;
+    private PrintStream originalOut;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private long commentId;
+    private byte[] newComment;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        if (logging.equals("verbose")) {
+            context = BenchmarkApplication.start(WebApplicationType.SERVLET, "server.port=0",
+                    "logging.level.root=INFO",
+                    "logging.level.com.mb.commentService=DEBUG",
+                    "spring.jpa.show-sql=true",
+                    "comment.access-log.sample-rate=1");
+        } else {
+            context = BenchmarkApplication.start(WebApplicationType.SERVLET, "server.port=0",
+                    "logging.level.root=INFO");
+        }
+        BenchmarkApplication.seedThread(context, BenchmarkData.POST_ID, 1_000);
+        commentId = context.getBean(JdbcTemplate.class).queryForObject("SELECT MIN(id) FROM comments", Long.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/api/comments";
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        newComment = new ObjectMapper().writeValueAsBytes(BenchmarkData.newComment());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public int getCommentById() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + commentId)).GET());
+    }
+
+    @Benchmark
+    public int createComment() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(newComment)));
+    }
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,53 @@
+package com.mb.commentService.benchmark;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.service.impl.CommentMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO conversion on the write paths, for one comment and for whole lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private List<Comment> comments;
+    private Comment comment;
+
+    @Setup
+    public void setUp() {
+        comments = BenchmarkData.comments(size);
+        comment = comments.get(0);
+    }
+
+    @Benchmark
+    public CommentDto toDto() {
+        return CommentMapper.toDto(comment);
+    }
+
+    @Benchmark
+    public List<CommentDto> toDtos() {
+        return CommentMapper.toDtos(comments);
+    }
+}
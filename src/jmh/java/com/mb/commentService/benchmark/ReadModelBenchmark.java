@@ -0,0 +1,87 @@
+package com.mb.commentService.benchmark;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentRepository;
+import com.mb.commentService.service.impl.CommentMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a whole thread by hydrating managed entities and copying them into DTOs, as the service used to,
+ * against the constructor-expression projection it uses now. Run with {@code -Djmh.args="-prof gc"} to see
+ * the allocation difference next to the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadModelBenchmark {
+
+    private static final long POST_ID = 1L;
+
+    @Param({"100", "10000"})
+    private int threadSize;
+
+    private ConfigurableApplicationContext context;
+    private CommentRepository commentRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE, "comment.cache.enabled=false");
+        BenchmarkApplication.seedThread(context, POST_ID, threadSize);
+        commentRepository = context.getBean(CommentRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CommentDto> hydratedEntities() {
+        return readWriteTransaction.execute(status -> {
+            List<Comment> comments = entityManager.createQuery(
+                            "select c from Comment c where c.postId = :postId order by c.createdAt desc, c.id desc", Comment.class)
+                    .setParameter("postId", POST_ID)
+                    .getResultList();
+            return CommentMapper.toDtos(comments);
+        });
+    }
+
+    @Benchmark
+    public List<CommentDto> projectedDtos() {
+        return readOnlyTransaction.execute(status -> commentRepository.findThreadByPostId(POST_ID));
+    }
+}
@@ -0,0 +1,115 @@
+package com.mb.commentService.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentThreadDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding a thread in each negotiable response format, with and without the gzip Tomcat applies to large
+ * responses. The bytes each combination puts on the wire depend on the parameters only; {@link #main} lists them
+ * without running the benchmark.
+ * <p>
+ * Comment texts are drawn from a fixed vocabulary instead of repeating one sentence, so gzip sees text about as
+ * compressible as real comments rather than a single phrase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final String[] WORDS = ("the a this post really great thanks for sharing I think you are right "
+            + "but wrong about it not sure what means agree disagree interesting article read more later why how "
+            + "when code java spring database performance fast slow cache query index thread comment reply love "
+            + "hate works broken fixed version update release bug feature question answer example link docs").split(" ");
+
+    /**
+     * {@code list}: the bare JSON-style array of {@code /post/{postId}}; {@code thread}: the {@code postId}-hoisted
+     * body of {@code /post/{postId}/thread}.
+     */
+    @Param({"json-list", "json-thread", "cbor-thread", "smile-thread"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private Object body;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        objectMapper = switch (format.substring(0, format.indexOf('-'))) {
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            default -> builder.build();
+        };
+        List<CommentDto> thread = BenchmarkData.dtos(size);
+        Random random = new Random(size);
+        for (CommentDto comment : thread) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 5 + random.nextInt(40); i > 0; i--) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            comment.setComment(text.toString().trim());
+        }
+        body = format.endsWith("-list") ? thread : new CommentThreadDto(BenchmarkData.POST_ID, thread);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        if (!gzip) {
+            return objectMapper.writeValueAsBytes(body);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, body);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Prints the encoded size of every parameter combination, tab separated.
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.println("format\tgzip\tsize\tbytes");
+        for (String format : List.of("json-list", "json-thread", "cbor-thread", "smile-thread")) {
+            for (boolean gzip : List.of(false, true)) {
+                for (int size : List.of(10, 100, 1000, 10000)) {
+                    ResponseFormatBenchmark benchmark = new ResponseFormatBenchmark();
+                    benchmark.format = format;
+                    benchmark.gzip = gzip;
+                    benchmark.size = size;
+                    benchmark.setUp();
+                    System.out.println(format + "\t" + gzip + "\t" + size + "\t" + benchmark.encode().length);
+                }
+            }
+        }
+    }
+}
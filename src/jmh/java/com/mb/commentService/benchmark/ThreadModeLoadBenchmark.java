@@ -0,0 +1,96 @@
+package com.mb.commentService.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uncached page reads from more concurrent clients than Tomcat has platform threads, served once on the
+ * platform pool and once on virtual threads with the concurrency limit on. SampleTime mode records the latency
+ * distribution, so the JSON result carries p99 per mode next to the op count; throughput is ops over the
+ * measurement time. An op is a served page: a client turned away with a 503 by the concurrency limit tries
+ * again, and the rejections are reported apart as {@code rejected}. The virtual mode needs a Java 21 JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class ThreadModeLoadBenchmark {
+
+    private static final int THREAD_SIZE = 5_000;
+
+    @Param({"platform", "virtual"})
+    private String threadMode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI pageUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "virtual".equals(threadMode);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21, running on " + Runtime.version());
+        }
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "server.port=0",
+                "comment.cache.enabled=false",
+                "spring.threads.virtual.enabled=" + virtual,
+                "comment.concurrency.enabled=" + virtual);
+        BenchmarkApplication.seedThread(context, BenchmarkData.POST_ID, THREAD_SIZE);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        pageUri = URI.create("http://localhost:" + port + "/api/comments/post/" + BenchmarkData.POST_ID + "/page?limit=20");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getPage(Rejections rejections) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(pageUri).GET().build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        // Counting a 503 as an op would make shedding load look like serving it.
+        while (response.statusCode() == 503) {
+            rejections.rejected++;
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+        return response.statusCode();
+    }
+
+    /**
+     * 503s per client; JMH resets them each iteration and reports their sum next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Rejections {
+
+        public long rejected;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mb.commentService.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.exception.InvalidCommentDataException;
+import com.mb.commentService.service.impl.CommentValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The create and update validation rules, for accepted input and for the rejection path. The validator's
+ * error logging is switched off so the rejection numbers show the exception cost, not console I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private CommentDto valid;
+    private CommentDto missingPostId;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(CommentValidator.class)).setLevel(Level.OFF);
+        valid = BenchmarkData.newComment();
+        missingPostId = BenchmarkData.newComment();
+        missingPostId.setPostId(null);
+    }
+
+    @Benchmark
+    public CommentDto validateForCreate() {
+        CommentValidator.validateForCreate(valid);
+        return valid;
+    }
+
+    @Benchmark
+    public CommentDto validateForUpdate() {
+        CommentValidator.validateForUpdate(valid);
+        return valid;
+    }
+
+    @Benchmark
+    public InvalidCommentDataException rejectForCreate() {
+        try {
+            CommentValidator.validateForCreate(missingPostId);
+            throw new IllegalStateException("Expected the comment to be rejected");
+        } catch (InvalidCommentDataException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.mb.commentService.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import com.mb.commentService.event.CommentEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for single comments and per-post pages/threads.
+ * <p>
+ * Page keys carry a per-post generation instead of being tracked individually: a write bumps the generation,
+ * which makes every affected page unreachable at once (they then age out of the weight budget), and a load
+ * racing with the write stores its result under the old generation where nobody will find it. New comments
+ * only ever appear at the head of a thread, so creates bump only the head generation and leave cursor pages
+ * cached.
+ * <p>
+ * Loads run on the calling thread but outside the cache's map lock: the first caller publishes an incomplete
+ * future and fills it, concurrent callers for the same key wait on that future. A JDBC call made while holding
+ * a {@code ConcurrentHashMap} bin lock would pin a virtual thread to its carrier for the whole query.
+ */
+@Component
+@Slf4j
+public class CommentCache {
+
+    /**
+     * Page limit used in keys for a post's full thread.
+     */
+    private static final int FULL_THREAD = 0;
+
+    private final boolean enabled;
+    private final AsyncCache<Long, CommentDto> comments;
+    private final AsyncCache<PageKey, CommentPageDto> pages;
+    private final Cache<Long, PostGeneration> generations;
+    private final AtomicLong generationSequence = new AtomicLong();
+
+    public CommentCache(CommentCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.comments = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxComments())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxPageWeight())
+                .weigher((PageKey key, CommentPageDto page) -> page.getComments().size() + 1)
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync();
+        // Outlives the pages it guards; if an entry is evicted anyway, fresh generations come from the
+        // global sequence and can never match an old key.
+        this.generations = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedPosts())
+                .expireAfterAccess(properties.getTtl().multipliedBy(2))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, comments, "comments.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "comments.pages");
+    }
+
+    public CommentDto getComment(Long id, Function<Long, CommentDto> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return getOrLoad(comments, id, () -> loader.apply(id));
+    }
+
+    public List<CommentDto> getThread(Long postId, Supplier<List<CommentDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        PageKey key = new PageKey(postId, generation(postId).head(), null, FULL_THREAD);
+        return getOrLoad(pages, key, () -> new CommentPageDto(List.copyOf(loader.get()), null)).getComments();
+    }
+
+    public CommentPageDto getPage(Long postId, String after, int limit, Supplier<CommentPageDto> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        PostGeneration generation = generation(postId);
+        long pageGeneration = after == null ? generation.head() : generation.tail();
+        PageKey key = new PageKey(postId, pageGeneration, after, limit);
+        return getOrLoad(pages, key, () -> {
+            CommentPageDto page = loader.get();
+            return new CommentPageDto(List.copyOf(page.getComments()), page.getNextCursor());
+        });
+    }
+
+    /**
+     * Head pages of several posts, sharing cache entries with {@link #getPage} for the same limit. The loader
+     * is called once, with only the posts that were not cached, and must return a page for each of them.
+     */
+    public Map<Long, CommentPageDto> getHeadPages(Collection<Long> postIds, int limit,
+                                                  Function<Set<Long>, Map<Long, CommentPageDto>> loader) {
+        if (!enabled) {
+            return loader.apply(new LinkedHashSet<>(postIds));
+        }
+        Map<PageKey, Long> keys = new LinkedHashMap<>();
+        for (Long postId : postIds) {
+            keys.put(new PageKey(postId, generation(postId).head(), null, limit), postId);
+        }
+        // Runs on the calling thread with placeholder futures already in the cache, like getOrLoad.
+        CompletableFuture<Map<PageKey, CommentPageDto>> loading = pages.getAll(keys.keySet(), (missing, executor) -> {
+            Set<Long> missingPostIds = new LinkedHashSet<>();
+            missing.forEach(key -> missingPostIds.add(key.postId()));
+            Map<Long, CommentPageDto> loaded = loader.apply(missingPostIds);
+            Map<PageKey, CommentPageDto> result = new HashMap<>();
+            for (PageKey key : missing) {
+                CommentPageDto page = loaded.get(key.postId());
+                result.put(key, new CommentPageDto(List.copyOf(page.getComments()), page.getNextCursor()));
+            }
+            return CompletableFuture.completedFuture(result);
+        });
+        Map<PageKey, CommentPageDto> cached = join(loading);
+        Map<Long, CommentPageDto> result = new LinkedHashMap<>();
+        keys.forEach((key, postId) -> result.put(postId, cached.get(key)));
+        return result;
+    }
+
+    // Before PostVersionTracker, so a new post version is never paired with a page cached before the write.
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCommentEvent(CommentEvent event) {
+        if (!enabled) {
+            return;
+        }
+        log.debug("Applying {} to comment cache", event);
+        switch (event.getType()) {
+            case CREATED -> {
+                comments.synchronous().put(event.getCommentId(), event.getComment());
+                invalidatePostHead(event.getPostId());
+            }
+            case UPDATED -> {
+                comments.synchronous().put(event.getCommentId(), event.getComment());
+                invalidatePost(event.getPostId());
+            }
+            case DELETED -> {
+                comments.synchronous().invalidate(event.getCommentId());
+                invalidatePost(event.getPostId());
+            }
+            case POST_DELETED -> invalidatePostAndComments(event.getPostId());
+        }
+    }
+
+    /**
+     * Drops every cached page and thread of a post, leaving single comments alone.
+     */
+    public void invalidatePost(Long postId) {
+        generations.put(postId, new PostGeneration(generationSequence.incrementAndGet(), generationSequence.incrementAndGet()));
+    }
+
+    /**
+     * Drops a post's head page and full thread, as a new comment would.
+     */
+    public void invalidatePostHead(Long postId) {
+        generations.asMap().compute(postId, (id, current) -> new PostGeneration(
+                generationSequence.incrementAndGet(),
+                current == null ? generationSequence.incrementAndGet() : current.tail()));
+    }
+
+    /**
+     * Drops a post's pages and threads and every single comment cached for it.
+     */
+    public void invalidatePostAndComments(Long postId) {
+        comments.synchronous().asMap().values().removeIf(comment -> postId.equals(comment.getPostId()));
+        invalidatePost(postId);
+    }
+
+    public void invalidateComment(Long id) {
+        comments.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        comments.synchronous().invalidateAll();
+        pages.synchronous().invalidateAll();
+        generations.invalidateAll();
+    }
+
+    private static <K, V> V getOrLoad(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> cached = cache.get(key, (k, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(loader.get());
+            } catch (RuntimeException | Error e) {
+                // Failed futures are dropped by the cache, so the next caller loads again.
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return join(cached);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private PostGeneration generation(Long postId) {
+        return generations.get(postId, id -> new PostGeneration(
+                generationSequence.incrementAndGet(), generationSequence.incrementAndGet()));
+    }
+
+    private record PageKey(long postId, long generation, String after, int limit) {
+    }
+
+    private record PostGeneration(long head, long tail) {
+    }
+}
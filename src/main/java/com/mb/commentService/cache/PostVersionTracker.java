@@ -0,0 +1,119 @@
+package com.mb.commentService.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last-modified time per post, in epoch milliseconds, used as the validator for conditional comment list
+ * requests. Every write to a post moves its value forward, so a value handed out once never describes other
+ * content later.
+ * <p>
+ * Posts without a write seen by this instance report a floor instead: the start of the current cache TTL
+ * window, so that replicas agree on the validators of quiet posts and clients still refetch once per TTL,
+ * like the {@link CommentCache}, should a write have gone unnoticed. The floor never drops below the moment
+ * this instance started or lost track of peer writes, and rises to the value of any post whose entry is evicted.
+ * <p>
+ * Writes are applied after the {@link CommentCache} has dropped the affected pages; a request that sees the new
+ * value therefore cannot be answered from a page cached before the write.
+ * <p>
+ * The same values tell which posts were written too recently to be read from a lagging database replica.
+ */
+@Component
+public class PostVersionTracker {
+
+    private final Cache<Long, Long> lastModified;
+    private final AtomicLong floor = new AtomicLong(System.currentTimeMillis());
+    // Newest write this instance no longer tracks per post: startup, resets and evicted entries.
+    private final AtomicLong forgotten = new AtomicLong(System.currentTimeMillis());
+    private final long windowMillis;
+
+    public PostVersionTracker(CommentCacheProperties properties) {
+        this.windowMillis = Math.max(1, properties.getTtl().toMillis());
+        // Past two windows an entry is below the window floor anyway and can expire without raising anything.
+        this.lastModified = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedPosts())
+                .expireAfterWrite(properties.getTtl().multipliedBy(2))
+                .evictionListener((Long postId, Long value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && value != null) {
+                        floor.accumulateAndGet(value, Math::max);
+                        forgotten.accumulateAndGet(value, Math::max);
+                    }
+                })
+                .build();
+    }
+
+    public long lastModified(Long postId) {
+        Long value = lastModified.getIfPresent(postId);
+        long floorNow = floor(System.currentTimeMillis());
+        return value == null ? floorNow : Math.max(value, floorNow);
+    }
+
+    /**
+     * Whether the post may have been written at or after {@code sinceMillis}. Errs towards yes for writes this
+     * instance has lost track of.
+     */
+    public boolean writtenSince(Long postId, long sinceMillis) {
+        if (forgotten.get() >= sinceMillis) {
+            return true;
+        }
+        Long value = lastModified.getIfPresent(postId);
+        return value != null && value >= sinceMillis;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCommentEvent(CommentEvent event) {
+        CommentDto comment = event.getComment();
+        long writtenAt = switch (event.getType()) {
+            case CREATED -> toMillis(comment.getCreatedAt());
+            case UPDATED -> toMillis(comment.getUpdatedAt());
+            case DELETED, POST_DELETED -> System.currentTimeMillis();
+        };
+        touch(event.getPostId(), writtenAt);
+    }
+
+    /**
+     * Records a write to a post made elsewhere, e.g. on a peer replica.
+     */
+    public void touch(Long postId) {
+        touch(postId, System.currentTimeMillis());
+    }
+
+    /**
+     * Forgets every post and moves all of them past any version handed out so far, for when writes may have
+     * been missed.
+     */
+    public void reset() {
+        long newest = lastModified.asMap().values().stream().mapToLong(Long::longValue).max().orElse(0);
+        long floorNow = floor(System.currentTimeMillis());
+        floor.accumulateAndGet(Math.max(newest, floorNow) + 1, Math::max);
+        forgotten.accumulateAndGet(Math.max(newest, System.currentTimeMillis()), Math::max);
+        lastModified.invalidateAll();
+    }
+
+    private void touch(Long postId, long writtenAt) {
+        long floorNow = floor(System.currentTimeMillis());
+        lastModified.asMap().compute(postId, (id, current) ->
+                Math.max(Math.max(current == null ? 0 : current, floorNow) + 1, writtenAt));
+    }
+
+    private long floor(long now) {
+        return Math.max(floor.get(), now - now % windowMillis);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,35 @@
+package com.mb.commentService.cache.bus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * One flush of coalesced invalidations from a replica. {@code epoch} identifies the sender's process
+ * lifetime and {@code sequence} increases by one per batch within it, so receivers can tell a restart
+ * from a lost batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationBatch {
+
+    private String sourceInstanceId;
+    private long epoch;
+    private long sequence;
+    /**
+     * Posts that gained a comment; only their head page and thread changed.
+     */
+    private Set<Long> headPostIds;
+    /**
+     * Posts whose cached pages and threads are all stale.
+     */
+    private Set<Long> postIds;
+    /**
+     * Posts that were deleted outright, including their single cached comments.
+     */
+    private Set<Long> deletedPostIds;
+    private Set<Long> commentIds;
+}
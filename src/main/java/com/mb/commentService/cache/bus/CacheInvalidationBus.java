@@ -0,0 +1,276 @@
+package com.mb.commentService.cache.bus;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mb.commentService.cache.CommentCache;
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.event.CommentEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the {@link CommentCache} of every replica coherent with writes made on the others.
+ * <p>
+ * Local write events are coalesced into a pending batch that is flushed to all peers registered under the same
+ * service id every {@code flush-interval}, or earlier once it holds {@code max-batch-size} keys. Batches are
+ * numbered per sender process; a receiver that sees a sequence gap, a new sender epoch or a sender for the first
+ * time cannot know what it missed and drops its whole cache instead. Batches are only accepted with the shared
+ * {@code token} (see {@link CacheInvalidationController}), so the bus, off by default, refuses to start without one.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+
+    private final CommentCache commentCache;
+    private final PostVersionTracker postVersions;
+    private final DiscoveryClient discoveryClient;
+    private final PeerTransport peerTransport;
+    private final CommentCacheProperties.Bus properties;
+    private final String serviceId;
+    private final String instanceId;
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<String, SourceState> sources;
+
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private PendingInvalidations pending = new PendingInvalidations();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public CacheInvalidationBus(CommentCache commentCache,
+                                PostVersionTracker postVersions,
+                                DiscoveryClient discoveryClient,
+                                PeerTransport peerTransport,
+                                CommentCacheProperties cacheProperties,
+                                @Value("${spring.application.name}") String serviceId,
+                                ObjectProvider<Registration> registration) {
+        this(commentCache, postVersions, discoveryClient, peerTransport, cacheProperties.getBus(), serviceId,
+                registration.stream().map(Registration::getInstanceId).findFirst()
+                        .orElseGet(() -> UUID.randomUUID().toString()));
+    }
+
+    public CacheInvalidationBus(CommentCache commentCache,
+                                PostVersionTracker postVersions,
+                                DiscoveryClient discoveryClient,
+                                PeerTransport peerTransport,
+                                CommentCacheProperties.Bus properties,
+                                String serviceId,
+                                String instanceId) {
+        this.commentCache = commentCache;
+        this.postVersions = postVersions;
+        this.discoveryClient = discoveryClient;
+        this.peerTransport = peerTransport;
+        this.properties = properties;
+        this.serviceId = serviceId;
+        this.instanceId = instanceId;
+        // Bounded, so batches naming ever new sources cannot grow it; evicts on the receiving thread.
+        this.sources = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(properties.getMaxSources())
+                .expireAfterAccess(properties.getSourceRetention())
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (properties.getToken().isBlank()) {
+            throw new IllegalStateException("comment.cache.bus.token (CACHE_BUS_TOKEN) must be set while "
+                    + "comment.cache.bus.enabled is true; peers authenticate invalidation batches with it");
+        }
+        long intervalMillis = properties.getFlushInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Cache invalidation bus started for {} as {}", serviceId, instanceId);
+    }
+
+    /**
+     * Sends what is still pending from the bus thread, behind any flush already running there, so the last batch
+     * cannot overtake the one before it.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.execute(this::flushQuietly);
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(properties.getStopTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Final cache invalidation flush did not finish within {}", properties.getStopTimeout());
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentEvent(CommentEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        boolean full;
+        pendingLock.lock();
+        try {
+            pending.add(event);
+            full = pending.size() >= properties.getMaxBatchSize();
+        } finally {
+            pendingLock.unlock();
+        }
+        if (full && scheduler != null) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Sends everything pending as one batch. Called from the bus thread only, so sequence numbers go out in order.
+     */
+    public void flush() {
+        PendingInvalidations batch;
+        pendingLock.lock();
+        try {
+            if (pending.size() == 0) {
+                return;
+            }
+            batch = pending;
+            pending = new PendingInvalidations();
+        } finally {
+            pendingLock.unlock();
+        }
+
+        CacheInvalidationBatch message = new CacheInvalidationBatch(instanceId, epoch, sequence.incrementAndGet(),
+                batch.headPostIds, batch.postIds, batch.deletedPostIds, batch.commentIds);
+        for (ServiceInstance peer : peers()) {
+            try {
+                peerTransport.send(peer, message);
+            } catch (RuntimeException e) {
+                // The peer detects the gap on its next batch and drops its cache.
+                log.warn("Could not deliver invalidation batch {} to {}: {}", message.getSequence(), peer.getInstanceId(), e.getMessage());
+            }
+        }
+    }
+
+    public void receive(CacheInvalidationBatch batch) {
+        if (instanceId.equals(batch.getSourceInstanceId())) {
+            return;
+        }
+        SourceState state = sources.get(batch.getSourceInstanceId(), id -> new SourceState());
+        synchronized (state) {
+            if (state.lastSequence == 0 || state.epoch != batch.getEpoch()) {
+                log.info("First batch from {} (epoch {}), dropping local comment cache", batch.getSourceInstanceId(), batch.getEpoch());
+                commentCache.invalidateAll();
+                postVersions.reset();
+            } else if (batch.getSequence() <= state.lastSequence) {
+                log.debug("Ignoring stale batch {} from {}", batch.getSequence(), batch.getSourceInstanceId());
+                return;
+            } else if (batch.getSequence() != state.lastSequence + 1) {
+                log.warn("Missed batches {}..{} from {}, dropping local comment cache",
+                        state.lastSequence + 1, batch.getSequence() - 1, batch.getSourceInstanceId());
+                commentCache.invalidateAll();
+                postVersions.reset();
+            }
+            state.epoch = batch.getEpoch();
+            state.lastSequence = batch.getSequence();
+        }
+        apply(batch);
+    }
+
+    private void apply(CacheInvalidationBatch batch) {
+        batch.getCommentIds().forEach(commentCache::invalidateComment);
+        batch.getHeadPostIds().forEach(commentCache::invalidatePostHead);
+        batch.getPostIds().forEach(commentCache::invalidatePost);
+        batch.getDeletedPostIds().forEach(commentCache::invalidatePostAndComments);
+        // After the cache, as for local writes (see PostVersionTracker).
+        batch.getHeadPostIds().forEach(postVersions::touch);
+        batch.getPostIds().forEach(postVersions::touch);
+        batch.getDeletedPostIds().forEach(postVersions::touch);
+    }
+
+    private List<ServiceInstance> peers() {
+        return discoveryClient.getInstances(serviceId).stream()
+                .filter(instance -> !instanceId.equals(instance.getInstanceId()))
+                .toList();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Cache invalidation flush failed", e);
+        }
+    }
+
+    private static class SourceState {
+        private long epoch;
+        private long lastSequence;
+    }
+
+    /**
+     * Coalesces events: a full post invalidation absorbs a head invalidation of the same post, and a deleted post
+     * absorbs both.
+     */
+    private static class PendingInvalidations {
+
+        private final Set<Long> headPostIds = new HashSet<>();
+        private final Set<Long> postIds = new HashSet<>();
+        private final Set<Long> deletedPostIds = new HashSet<>();
+        private final Set<Long> commentIds = new HashSet<>();
+
+        void add(CommentEvent event) {
+            Long postId = event.getPostId();
+            switch (event.getType()) {
+                case CREATED -> {
+                    if (!postIds.contains(postId) && !deletedPostIds.contains(postId)) {
+                        headPostIds.add(postId);
+                    }
+                }
+                case UPDATED, DELETED -> {
+                    commentIds.add(event.getCommentId());
+                    if (!deletedPostIds.contains(postId)) {
+                        headPostIds.remove(postId);
+                        postIds.add(postId);
+                    }
+                }
+                case POST_DELETED -> {
+                    headPostIds.remove(postId);
+                    postIds.remove(postId);
+                    deletedPostIds.add(postId);
+                }
+            }
+        }
+
+        int size() {
+            return headPostIds.size() + postIds.size() + deletedPostIds.size() + commentIds.size();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.mb.commentService.cache.bus;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import java.net.URI;
+
+/**
+ * Talks to one specific replica: the {@link URI} argument replaces the placeholder base URL on every call,
+ * so batches bypass load balancing and reach the exact instance discovered through Eureka.
+ */
+@FeignClient(name = "cache-invalidation", url = "http://peer")
+public interface CacheInvalidationClient {
+
+    @PostMapping("/internal/cache/invalidations")
+    void invalidate(URI peer,
+                    @RequestHeader(CacheInvalidationController.TOKEN_HEADER) String token,
+                    @RequestBody CacheInvalidationBatch batch);
+}
@@ -0,0 +1,42 @@
+package com.mb.commentService.cache.bus;
+
+import com.mb.commentService.config.CommentCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequestMapping("/internal/cache")
+@Slf4j
+public class CacheInvalidationController {
+
+    static final String TOKEN_HEADER = "X-Cache-Bus-Token";
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private CommentCacheProperties cacheProperties;
+
+    @PostMapping("/invalidations")
+    public ResponseEntity<Void> invalidate(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                           @RequestBody CacheInvalidationBatch batch) {
+        String expected = cacheProperties.getBus().getToken();
+        if (expected.isBlank() || token == null || !MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Rejected cache invalidation batch from {}: bad token", batch.getSourceInstanceId());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        cacheInvalidationBus.receive(batch);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.mb.commentService.cache.bus;
+
+import com.mb.commentService.config.CommentCacheProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FeignPeerTransport implements PeerTransport {
+
+    @Autowired
+    private CacheInvalidationClient cacheInvalidationClient;
+
+    @Autowired
+    private CommentCacheProperties cacheProperties;
+
+    @Override
+    public void send(ServiceInstance peer, CacheInvalidationBatch batch) {
+        cacheInvalidationClient.invalidate(peer.getUri(), cacheProperties.getBus().getToken(), batch);
+    }
+}
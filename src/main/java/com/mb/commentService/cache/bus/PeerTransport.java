@@ -0,0 +1,11 @@
+package com.mb.commentService.cache.bus;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Delivers an invalidation batch to one peer replica. Implementations throw on delivery failure.
+ */
+public interface PeerTransport {
+
+    void send(ServiceInstance peer, CacheInvalidationBatch batch);
+}
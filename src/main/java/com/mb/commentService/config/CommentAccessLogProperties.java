@@ -0,0 +1,18 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.access-log")
+public class CommentAccessLogProperties {
+
+    private boolean enabled = true;
+    /**
+     * Fraction of API requests logged, between 0 and 1. Server errors and slow requests are always logged.
+     */
+    private double sampleRate = 0.01;
+    private Duration slowThreshold = Duration.ofSeconds(1);
+}
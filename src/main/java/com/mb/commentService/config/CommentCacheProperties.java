@@ -0,0 +1,66 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.cache")
+public class CommentCacheProperties {
+
+    private boolean enabled = true;
+    /**
+     * Maximum number of single comments kept for {@code GET /api/comments/{id}}.
+     */
+    private long maxComments = 50_000;
+    /**
+     * Maximum total number of comments held across all cached pages and threads.
+     */
+    private long maxPageWeight = 500_000;
+    /**
+     * Maximum number of posts whose invalidation generation is tracked.
+     */
+    private long maxTrackedPosts = 100_000;
+    private Duration ttl = Duration.ofMinutes(5);
+    private Bus bus = new Bus();
+
+    /**
+     * Invalidation broadcast to the other replicas registered under the same application name.
+     */
+    @Data
+    public static class Bus {
+
+        /**
+         * Off by default, which suits a single instance. Replicas sharing the database turn it on together with
+         * {@code token}, or serve stale entries written through their peers until {@code ttl} expires them.
+         */
+        private boolean enabled = false;
+        /**
+         * Longest time a local write waits before its invalidation is sent to peers.
+         */
+        private Duration flushInterval = Duration.ofMillis(50);
+        /**
+         * Number of coalesced keys that triggers a flush before the interval elapses.
+         */
+        private int maxBatchSize = 500;
+        /**
+         * Shared secret peers must send in the {@code X-Cache-Bus-Token} header. Required while the bus is
+         * enabled: startup fails without it.
+         */
+        private String token = "";
+        /**
+         * Number of peers whose batch sequence is tracked. A peer forgotten through this limit or
+         * {@code source-retention} counts as new again, which drops the local cache once.
+         */
+        private long maxSources = 1_000;
+        /**
+         * How long the batch sequence of a peer that stopped sending is kept.
+         */
+        private Duration sourceRetention = Duration.ofHours(1);
+        /**
+         * How long shutdown waits for the last batch to reach the peers.
+         */
+        private Duration stopTimeout = Duration.ofSeconds(5);
+    }
+}
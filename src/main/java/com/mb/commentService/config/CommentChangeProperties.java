@@ -0,0 +1,25 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.changes")
+public class CommentChangeProperties {
+
+    /**
+     * How long deletes stay visible to the change feed. Cursors older than this are refused and the client has
+     * to reload the thread.
+     */
+    private Duration tombstoneRetention = Duration.ofDays(7);
+    /**
+     * How often expired tombstones are removed.
+     */
+    private Duration purgeInterval = Duration.ofHours(1);
+    /**
+     * Tombstones removed per statement and transaction while purging.
+     */
+    private int purgeChunkSize = 10_000;
+}
@@ -0,0 +1,22 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Bounds how many comment API requests run at once. Tomcat's platform thread pool used to do this implicitly;
+ * on virtual threads nothing does, and excess requests would pile up waiting for a database connection.
+ */
+@Data
+@ConfigurationProperties(prefix = "comment.concurrency")
+public class CommentConcurrencyProperties {
+
+    private boolean enabled = false;
+    private int maxConcurrentRequests = 256;
+    /**
+     * How long a request may wait for a slot before it is rejected with 503.
+     */
+    private Duration acquireTimeout = Duration.ofMillis(500);
+}
@@ -0,0 +1,25 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.counts")
+public class CommentCountProperties {
+
+    /**
+     * Longest a write's count change stays buffered in this instance before it reaches the counter table.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+    /**
+     * How often the counter table is recomputed from the comments table, correcting any drift; 0 disables it.
+     * Every instance tries, but only the first in each interval scans the table.
+     */
+    private Duration reconcileInterval = Duration.ofHours(1);
+    /**
+     * Maximum number of post ids accepted by one count request.
+     */
+    private int maxPostIds = 500;
+}
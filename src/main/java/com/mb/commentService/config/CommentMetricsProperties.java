@@ -0,0 +1,21 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.metrics")
+public class CommentMetricsProperties {
+
+    /**
+     * Number of buckets post ids are hashed into for the result size distributions. Keeps the series count
+     * bounded no matter how many posts exist; the slow-operation log names the actual post.
+     */
+    private int postBuckets = 16;
+    /**
+     * Post-scoped operations slower than this are logged with their post id.
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+}
@@ -0,0 +1,44 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.partition")
+public class CommentPartitionProperties {
+
+    /**
+     * Whether this instance creates and archives partitions of {@code comments}. Instances coordinate through a
+     * table lock, so it can stay on everywhere.
+     */
+    private boolean enabled = true;
+    /**
+     * Post ids per partition. Partitions are aligned to multiples of it; changing it only affects partitions
+     * created afterwards.
+     */
+    private long postsPerPartition = 100_000;
+    /**
+     * Empty partitions kept ready beyond the one of the newest post, so new posts rarely land in the default
+     * partition.
+     */
+    private int partitionsAhead = 2;
+    /**
+     * Partitions of the newest posts that stay hot: the one of the newest post and the ones before it. Older
+     * ones are archived.
+     */
+    private int hotPartitions = 2;
+    /**
+     * Tablespace archived partitions are moved to, e.g. on cheaper storage. Empty leaves them where they are.
+     */
+    private String archiveTablespace = "";
+    /**
+     * How often partitions are created and archived; the first run is at startup.
+     */
+    private Duration maintenanceInterval = Duration.ofHours(1);
+    /**
+     * How long creating a partition may wait for its locks before it is retried at the next run.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,76 @@
+package com.mb.commentService.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Admission control for comment writes: rate limits per client address, author email and post, answered with
+ * 429, and load shedding while the database is struggling, answered with 503. Reads are left alone; they are
+ * mostly served from the cache.
+ */
+@Data
+@ConfigurationProperties(prefix = "comment.rate-limit")
+public class CommentRateLimitProperties {
+
+    private boolean enabled = false;
+    /**
+     * Keys tracked per limit; the least recently seen beyond this start over with a full burst.
+     */
+    private int maxTrackedKeys = 100_000;
+    /**
+     * Writes per client address, as seen by the server; behind a proxy, set server.forward-headers-strategy.
+     */
+    private Limit client = new Limit(60, Duration.ofMinutes(1), 20);
+    /**
+     * Comments created per author email.
+     */
+    private Limit email = new Limit(10, Duration.ofMinutes(1), 5);
+    /**
+     * Comments created per post, across all clients.
+     */
+    private Limit post = new Limit(300, Duration.ofMinutes(1), 100);
+    private Shed shed = new Shed();
+
+    /**
+     * {@code permits} per {@code period} sustained, and up to {@code burst} at once after a quiet spell.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        private int permits;
+        private Duration period;
+        private int burst;
+    }
+
+    @Data
+    public static class Shed {
+
+        private boolean enabled = true;
+        /**
+         * How often database latency and connection pool wait are sampled, and the shed ratio adjusted.
+         */
+        private Duration interval = Duration.ofSeconds(1);
+        /**
+         * Average time per database call in an interval above which the database counts as overloaded.
+         */
+        private Duration dbLatencyThreshold = Duration.ofMillis(500);
+        /**
+         * Average wait for a pooled connection in an interval above which the database counts as overloaded.
+         */
+        private Duration poolWaitThreshold = Duration.ofMillis(100);
+        /**
+         * Share of writes shed more per overloaded interval, and less per healthy one.
+         */
+        private double step = 0.1;
+        /**
+         * Share of writes shed at most, so the service keeps learning whether the database has recovered.
+         */
+        private double maxRatio = 0.9;
+    }
+}
@@ -0,0 +1,25 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the reactive comment API under {@code /api/reactive/comments}, which reads and writes through an
+ * R2DBC connection pool of its own instead of Hikari.
+ */
+@Data
+@ConfigurationProperties(prefix = "comment.reactive")
+public class CommentReactiveProperties {
+
+    private boolean enabled = false;
+    /**
+     * R2DBC URL of the comments database. When blank it is derived from {@code spring.datasource.url}.
+     */
+    private String url;
+    private int poolMaxSize = 10;
+    /**
+     * Rows the driver fetches per round trip when streaming a thread; the next batch is only requested once
+     * the client has consumed the previous one.
+     */
+    private int fetchSize = 256;
+}
@@ -0,0 +1,53 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "comment.replicas")
+public class CommentReplicaProperties {
+
+    /**
+     * Whether read-only queries go to the read replicas in {@code urls}. Off, everything uses
+     * {@code spring.datasource}.
+     */
+    private boolean enabled = false;
+    /**
+     * JDBC URLs of the PostgreSQL read replicas, which are used in turn.
+     */
+    private List<String> urls = new ArrayList<>();
+    /**
+     * Credentials for the replicas; {@code spring.datasource.username} and {@code password} when not set.
+     */
+    private String username;
+    private String password;
+    /**
+     * Connections per replica.
+     */
+    private int poolSize = 10;
+    /**
+     * How long a read waits for a replica connection before it tries the next replica, and eventually the
+     * primary.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+    /**
+     * How far a replica may fall behind the primary before it is taken out of rotation.
+     */
+    private Duration maxLag = Duration.ofSeconds(2);
+    /**
+     * How often each replica's lag is checked.
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(1);
+
+    /**
+     * How stale a replica in rotation can be: it may have fallen behind right after passing a check. Reads of
+     * data written more recently than this stay on the primary.
+     */
+    public Duration stalenessBound() {
+        return maxLag.plus(healthCheckInterval);
+    }
+}
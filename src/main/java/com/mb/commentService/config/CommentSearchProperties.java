@@ -0,0 +1,19 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "comment.search")
+public class CommentSearchProperties {
+
+    /**
+     * Matches ranked per search. Queries matching more rows rank only the newest this many of them, which bounds
+     * the cost of searching for a common word; older matches cannot be paged to.
+     */
+    private int maxCandidates = 5_000;
+    /**
+     * Longest accepted search query, in characters.
+     */
+    private int maxQueryLength = 200;
+}
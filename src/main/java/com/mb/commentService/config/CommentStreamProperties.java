@@ -0,0 +1,43 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.stream")
+public class CommentStreamProperties {
+
+    /**
+     * Open event streams this instance accepts; further subscriptions are answered with 503.
+     */
+    private int maxSubscribers = 60_000;
+    /**
+     * Events buffered per subscriber. A subscriber that falls further behind has its backlog replaced by a single
+     * {@code resync} event.
+     */
+    private int queueCapacity = 64;
+    /**
+     * How long a subscriber may take to accept its {@code resync} event before it is disconnected.
+     */
+    private Duration slowConsumerTimeout = Duration.ofSeconds(10);
+    /**
+     * Threads writing events to subscribers. A client that stops reading holds one of them until its send
+     * exceeds {@code write-timeout}, when an extra thread takes over, at most this many extra at a time.
+     */
+    private int senderThreads = 16;
+    /**
+     * How long a single event write may block before its subscriber is disconnected. The blocked thread itself
+     * is only released by the server's socket write timeout ({@code server.tomcat.connection-timeout}).
+     */
+    private Duration writeTimeout = Duration.ofSeconds(10);
+    /**
+     * Interval of the keep-alive comments that stop proxies from closing idle streams and reveal dead clients.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    /**
+     * Lifetime of a stream; clients reconnect afterwards, which spreads subscribers over replicas again.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
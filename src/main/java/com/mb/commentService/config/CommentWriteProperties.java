@@ -0,0 +1,83 @@
+package com.mb.commentService.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "comment.write")
+public class CommentWriteProperties {
+
+    private GroupCommit groupCommit = new GroupCommit();
+    private Bulk bulk = new Bulk();
+    private WriteBehind writeBehind = new WriteBehind();
+    /**
+     * Rows removed per statement and transaction when a whole post is deleted; 0 removes them in one statement.
+     */
+    private int postDeleteChunkSize = 5_000;
+
+    @Data
+    public static class GroupCommit {
+
+        private boolean enabled = false;
+        /**
+         * Rows written per transaction at most; keep in line with hibernate.jdbc.batch_size.
+         */
+        private int maxBatchSize = 50;
+        /**
+         * Longest a create waits for companions after the first one of a batch arrives.
+         */
+        private Duration maxDelay = Duration.ofMillis(5);
+        /**
+         * Creates queued beyond this are written directly instead of waiting for a batch.
+         */
+        private int queueCapacity = 10_000;
+        private int flusherThreads = 2;
+    }
+
+    @Data
+    public static class Bulk {
+
+        /**
+         * Items written per transaction and JDBC batch group.
+         */
+        private int chunkSize = 500;
+        /**
+         * Largest JSON array accepted in one request; bigger imports must use NDJSON, which is processed chunk by chunk.
+         */
+        private int maxItems = 10_000;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        private boolean enabled = false;
+        /**
+         * Where the ingest log lives; has to survive restarts of this instance, and must not be shared with another.
+         */
+        private String directory = "data/comment-ingest";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        /**
+         * Logged comments inserted per statement at most.
+         */
+        private int drainBatchSize = 500;
+        /**
+         * Logged comments not yet in the database beyond which creates are written directly again.
+         */
+        private int maxPending = 100_000;
+        /**
+         * Comment ids reserved ahead of time.
+         */
+        private int idReserve = 5_000;
+        /**
+         * Longest pause between attempts while the database refuses the logged comments.
+         */
+        private Duration maxRetryDelay = Duration.ofSeconds(5);
+        /**
+         * Longest an update or delete waits for the comment it targets to leave the log.
+         */
+        private Duration applyTimeout = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,71 @@
+package com.mb.commentService.config;
+
+import com.mb.commentService.datasource.ReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the application's data source with one that sends read-only transactions to the read replicas and
+ * everything else to the primary, {@code spring.datasource}. The connection is only taken once a transaction
+ * runs its first statement, by which time it is known to be read-only.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "comment.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                               DataSourceProperties dataSourceProperties,
+                                               CommentReplicaProperties properties,
+                                               MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            String url = properties.getUrls().get(i);
+            // Not started until first used, so a replica that is down does not keep the service from starting.
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(url);
+            replica.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            replica.setUsername(properties.getUsername() != null
+                    ? properties.getUsername() : dataSourceProperties.determineUsername());
+            replica.setPassword(properties.getPassword() != null
+                    ? properties.getPassword() : dataSourceProperties.determinePassword());
+            replica.setMaximumPoolSize(properties.getPoolSize());
+            replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+            int query = url.indexOf('?');
+            names.add(replica.getPoolName() + " (" + (query < 0 ? url : url.substring(0, query)) + ")");
+        }
+        ReplicaDataSource replicaDataSource = new ReplicaDataSource(primaryDataSource, replicas, names,
+                properties.getMaxLag(), meterRegistry);
+        replicaDataSource.start(properties.getHealthCheckInterval());
+        return replicaDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
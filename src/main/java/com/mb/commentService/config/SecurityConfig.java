@@ -2,6 +2,7 @@ package com.mb.commentService.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -17,9 +18,15 @@ public class SecurityConfig {
         http
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/comments/**").permitAll()
+                .requestMatchers("/api/comments/**", "/api/reactive/comments/**").permitAll()
+                .requestMatchers("/actuator/health/**", "/actuator/info", "/actuator/metrics/**", "/actuator/prometheus").permitAll()
+                // Peer-to-peer cache invalidation; guarded by comment.cache.bus.token
+                .requestMatchers("/internal/cache/**").permitAll()
+                // Runtime log level changes, e.g. switching SQL logging on
+                .requestMatchers("/actuator/loggers/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
+            .httpBasic(Customizer.withDefaults())
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             );
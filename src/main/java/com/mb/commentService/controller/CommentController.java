@@ -1,66 +1,442 @@
 package com.mb.commentService.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.BulkItemResultDto;
+import com.mb.commentService.dto.CommentChangesDto;
 import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import com.mb.commentService.dto.CommentThreadDto;
+import com.mb.commentService.exception.RateLimitExceededException;
+import com.mb.commentService.ratelimit.CommentRateLimiter;
 import com.mb.commentService.service.impl.CommentServiceImpl;
+import com.mb.commentService.stream.CommentStreamHub;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/comments")
 @Slf4j
 public class CommentController {
 
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final String DELETED_COUNT_HEADER = "X-Deleted-Count";
+
     @Autowired
     private CommentServiceImpl commentService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CommentWriteProperties writeProperties;
+
+    @Autowired
+    private PostVersionTracker postVersions;
+
+    @Autowired
+    private CommentStreamHub streamHub;
+
+    @Autowired
+    private CommentRateLimiter rateLimiter;
+
     @PostMapping
     public ResponseEntity<CommentDto> createComment(@RequestBody CommentDto commentDto) {
-        log.info("Received request to create comment: {}", commentDto);
+        log.debug("Received request to create comment for postId: {}", commentDto.getPostId());
+        rateLimiter.checkCreate(commentDto.getEmail(), commentDto.getPostId());
         CommentDto createdComment = commentService.createComment(commentDto);
         log.debug("Created comment: {}", createdComment);
         return new ResponseEntity<>(createdComment, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResultDto>> createComments(@RequestBody List<CommentDto> commentDtos,
+                                                                  HttpServletRequest request) {
+        log.debug("Received bulk create request with {} comments", commentDtos.size());
+        chargeClient(request, commentDtos.size());
+        return ResponseEntity.ok(createWithinLimits(commentDtos));
+    }
+
+    @PostMapping(value = "/bulk", consumes = NDJSON_VALUE, produces = NDJSON_VALUE)
+    public void createComments(InputStream body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        log.debug("Received NDJSON bulk create request");
+        processNdjson(body, request, response, CommentDto.class, this::createWithinLimits);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CommentDto> getCommentById(@PathVariable Long id) {
-        log.info("Fetching comment with id: {}", id);
+        log.debug("Fetching comment with id: {}", id);
         CommentDto comment = commentService.getCommentById(id);
         log.debug("Fetched comment: {}", comment);
         return ResponseEntity.ok(comment);
     }
 
+    /**
+     * The newest {@code limit} comments (default 3, at most 20) of each of up to 100 posts, keyed by post id,
+     * e.g. {@code /api/comments/latest?postIds=1,2,3&limit=5}. Each page's {@code nextCursor} continues through
+     * {@code /post/{postId}/page}.
+     */
+    @GetMapping("/latest")
+    public ResponseEntity<Map<Long, CommentPageDto>> getLatestCommentsByPostIds(@RequestParam List<Long> postIds,
+                                                                              @RequestParam(required = false) Integer limit) {
+        log.debug("Fetching latest comments for {} posts", postIds.size());
+        return ResponseEntity.ok(commentService.getLatestCommentsByPostIds(postIds, limit));
+    }
+
+    /**
+     * Comment counts for a batch of posts, e.g. {@code /api/comments/counts?postIds=1,2,3}, keyed by post id.
+     */
+    @GetMapping("/counts")
+    public ResponseEntity<Map<Long, Long>> getCommentCounts(@RequestParam List<Long> postIds) {
+        log.debug("Fetching comment counts for {} posts", postIds.size());
+        return ResponseEntity.ok(commentService.getCommentCounts(postIds));
+    }
+
+    /**
+     * Full-text search over comment text, author name and email, best match first, e.g.
+     * {@code /api/comments/search?q="connection pool" -hikari&postId=7}. {@code q} takes quoted phrases,
+     * {@code or} and {@code -excluded} words; {@code postId} is optional. Pages continue with {@code after}.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CommentPageDto> searchComments(@RequestParam String q,
+                                                         @RequestParam(required = false) Long postId,
+                                                         @RequestParam(required = false) String after,
+                                                         @RequestParam(required = false) Integer limit) {
+        log.debug("Searching comments for query: {} postId: {} after: {} limit: {}", q, postId, after, limit);
+        CommentPageDto page = commentService.searchComments(q, postId, after, limit);
+        log.debug("Found {} comments for query: {}", page.getComments().size(), q);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Conditional: a poll carrying the current {@code ETag} or {@code Last-Modified} of the post is answered with
+     * {@code 304} before the comments are read.
+     */
     @GetMapping("/post/{postId}")
-    public ResponseEntity<List<CommentDto>> getCommentsByPostId(@PathVariable Long postId) {
-        log.info("Fetching comments for postId: {}", postId);
+    public ResponseEntity<List<CommentDto>> getCommentsByPostId(@PathVariable Long postId, WebRequest request) {
+        log.debug("Fetching comments for postId: {}", postId);
+        long version = postVersions.lastModified(postId);
+        if (checkNotModified(request, version)) {
+            return null;
+        }
         List<CommentDto> comments = commentService.getCommentsByPostId(postId);
         log.debug("Fetched {} comments for postId: {}", comments.size(), postId);
-        return ResponseEntity.ok(comments);
+        return withValidators(version).body(comments);
+    }
+
+    /**
+     * The same comments as {@code /post/{postId}} with {@code postId} stated once for the whole thread, for
+     * clients that want the smallest payload; best combined with {@code Accept: application/x-jackson-smile} or
+     * {@code application/cbor}. Conditional like the plain list.
+     */
+    @GetMapping("/post/{postId}/thread")
+    public ResponseEntity<CommentThreadDto> getCommentThreadByPostId(@PathVariable Long postId, WebRequest request) {
+        log.debug("Fetching comment thread for postId: {}", postId);
+        long version = postVersions.lastModified(postId);
+        if (checkNotModified(request, version)) {
+            return null;
+        }
+        List<CommentDto> comments = commentService.getCommentsByPostId(postId);
+        log.debug("Fetched {} comments for postId: {}", comments.size(), postId);
+        return withValidators(version).body(new CommentThreadDto(postId, comments));
+    }
+
+    @GetMapping("/post/{postId}/page")
+    public ResponseEntity<CommentPageDto> getCommentsPageByPostId(@PathVariable Long postId,
+                                                                  @RequestParam(required = false) String after,
+                                                                  @RequestParam(required = false) Integer limit,
+                                                                  WebRequest request) {
+        log.debug("Fetching comments page for postId: {} after: {} limit: {}", postId, after, limit);
+        long version = postVersions.lastModified(postId);
+        if (checkNotModified(request, version)) {
+            return null;
+        }
+        CommentPageDto page = commentService.getCommentsPageByPostId(postId, after, limit);
+        log.debug("Fetched {} comments for postId: {}", page.getComments().size(), postId);
+        return withValidators(version).body(page);
+    }
+
+    /**
+     * Comments created, updated or deleted since {@code since}, for clients following a live thread. Call once
+     * without {@code since} for a starting cursor, then load the thread, then poll with each
+     * {@code nextCursor}. An expired cursor is answered with {@code 410}.
+     */
+    @GetMapping("/post/{postId}/changes")
+    public ResponseEntity<CommentChangesDto> getCommentChanges(@PathVariable Long postId,
+                                                               @RequestParam(required = false) String since,
+                                                               @RequestParam(required = false) Integer limit) {
+        log.debug("Fetching comment changes for postId: {} since: {}", postId, since);
+        CommentChangesDto changes = commentService.getCommentChanges(postId, since, limit);
+        log.debug("Fetched {} changed and {} deleted comments for postId: {}",
+                changes.getChanged().size(), changes.getDeleted().size(), postId);
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * Pushes the post's comment writes as Server-Sent Events: {@code created}, {@code updated}, {@code deleted}
+     * and {@code post-deleted}. The first event, {@code ready}, carries a change feed cursor taken before
+     * subscribing; on {@code resync}, or after reconnecting, the client catches up from it through
+     * {@link #getCommentChanges}.
+     */
+    @GetMapping(value = "/post/{postId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToComments(@PathVariable Long postId) {
+        log.debug("Opening comment stream for postId: {}", postId);
+        String cursor = commentService.getCommentChanges(postId, null, null).getNextCursor();
+        return streamHub.subscribe(postId, cursor);
+    }
+
+    /**
+     * Writes the whole thread as a JSON array while rows are still being read, so memory use does not grow
+     * with the size of the thread.
+     */
+    @GetMapping(value = "/post/{postId}/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCommentsByPostId(@PathVariable Long postId) {
+        log.debug("Streaming comments for postId: {}", postId);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                commentService.streamCommentsByPostId(postId, comment -> {
+                    try {
+                        generator.writeObject(comment);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<CommentDto> updateComment(@PathVariable Long id, @RequestBody CommentDto commentDto) {
-        log.info("Updating comment with id: {}", id);
+        log.debug("Updating comment with id: {}", id);
         CommentDto updatedComment = commentService.updateComment(id, commentDto);
         log.debug("Updated comment: {}", updatedComment);
         return ResponseEntity.ok(updatedComment);
     }
 
+    @PutMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResultDto>> updateComments(@RequestBody List<CommentDto> commentDtos,
+                                                                  HttpServletRequest request) {
+        log.debug("Received bulk update request with {} comments", commentDtos.size());
+        chargeClient(request, commentDtos.size());
+        return ResponseEntity.ok(commentService.updateComments(commentDtos));
+    }
+
+    @PutMapping(value = "/bulk", consumes = NDJSON_VALUE, produces = NDJSON_VALUE)
+    public void updateComments(InputStream body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        log.debug("Received NDJSON bulk update request");
+        processNdjson(body, request, response, CommentDto.class, commentService::updateComments);
+    }
+
+    @DeleteMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResultDto>> deleteComments(@RequestBody List<Long> ids,
+                                                                  HttpServletRequest request) {
+        log.debug("Received bulk delete request with {} ids", ids.size());
+        chargeClient(request, ids.size());
+        return ResponseEntity.ok(commentService.deleteComments(ids));
+    }
+
+    @DeleteMapping(value = "/bulk", consumes = NDJSON_VALUE, produces = NDJSON_VALUE)
+    public void deleteComments(InputStream body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        log.debug("Received NDJSON bulk delete request");
+        processNdjson(body, request, response, Long.class, commentService::deleteComments);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteComment(@PathVariable Long id) {
-        log.warn("Deleting comment with id: {}", id);
+        log.debug("Deleting comment with id: {}", id);
         commentService.deleteComment(id);
         return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/post/{postId}")
     public ResponseEntity<Void> deleteCommentsByPostId(@PathVariable Long postId) {
-        log.warn("Deleting all comments for postId: {}", postId);
-        commentService.deleteCommentsByPostId(postId);
-        return ResponseEntity.noContent().build();
+        log.debug("Deleting all comments for postId: {}", postId);
+        long deleted = commentService.deleteCommentsByPostId(postId);
+        return ResponseEntity.noContent().header(DELETED_COUNT_HEADER, String.valueOf(deleted)).build();
+    }
+
+    /**
+     * The version must be read before the comments: read after, it could vouch for a write the response does
+     * not contain yet.
+     */
+    private static boolean checkNotModified(WebRequest request, long version) {
+        boolean notModified = request.checkNotModified(etag(version), lastModified(version));
+        if (notModified) {
+            log.debug("Comments not modified since version {}", version);
+        }
+        return notModified;
+    }
+
+    /**
+     * {@code no-cache} replaces Spring Security's default {@code no-store}: clients may keep the list, but must
+     * revalidate it on every use, which is what makes the polls conditional.
+     */
+    private static ResponseEntity.BodyBuilder withValidators(long version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .eTag(etag(version));
+        long lastModified = lastModified(version);
+        return lastModified < 0 ? response : response.lastModified(lastModified);
+    }
+
+    // Weak: the same version is served in every representation and encoding of the list.
+    private static String etag(long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * {@code Last-Modified} only has second precision, so a version from the current second is not announced:
+     * a second write within that second would otherwise look unmodified to {@code If-Modified-Since}.
+     */
+    private static long lastModified(long version) {
+        return System.currentTimeMillis() - version >= 1_000 ? version : -1;
+    }
+
+    /**
+     * Charges the client for the items of a bulk request beyond the first, which {@code RateLimitFilter}
+     * charged on admission.
+     */
+    private void chargeClient(HttpServletRequest request, int items) {
+        rateLimiter.checkClient(request.getRemoteAddr(), items - 1);
+    }
+
+    /**
+     * Creates the comments whose author and post are within their limits, and answers the others RATE_LIMITED.
+     */
+    private List<BulkItemResultDto> createWithinLimits(List<CommentDto> commentDtos) {
+        BulkItemResultDto[] results = new BulkItemResultDto[commentDtos.size()];
+        List<Integer> admitted = new ArrayList<>(commentDtos.size());
+        List<CommentDto> toCreate = new ArrayList<>(commentDtos.size());
+        for (int i = 0; i < commentDtos.size(); i++) {
+            CommentDto commentDto = commentDtos.get(i);
+            try {
+                if (commentDto != null) {
+                    rateLimiter.checkCreate(commentDto.getEmail(), commentDto.getPostId());
+                }
+                admitted.add(i);
+                toCreate.add(commentDto);
+            } catch (RateLimitExceededException e) {
+                results[i] = new BulkItemResultDto(i, null, BulkItemResultDto.Status.RATE_LIMITED, e.getMessage());
+            }
+        }
+        if (!toCreate.isEmpty()) {
+            for (BulkItemResultDto result : commentService.createComments(toCreate)) {
+                int index = admitted.get(result.getIndex());
+                result.setIndex(index);
+                results[index] = result;
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Reads one JSON value per line and hands them to the service {@code chunk-size} at a time, writing each
+     * chunk's results as NDJSON before reading the next, so neither side of an import is held in memory.
+     * A malformed line ends the request with an INVALID result for that line; earlier chunks stay written.
+     */
+    private <T> void processNdjson(InputStream body, HttpServletRequest request, HttpServletResponse response,
+                                   Class<T> type, Function<List<T>, List<BulkItemResultDto>> operation)
+            throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON_VALUE);
+        int chunkSize = writeProperties.getBulk().getChunkSize();
+        OutputStream out = response.getOutputStream();
+        int offset = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<T> items = objectMapper.readerFor(type).readValues(body)) {
+            while (true) {
+                try {
+                    if (!items.hasNextValue()) {
+                        break;
+                    }
+                    chunk.add(items.nextValue());
+                } catch (JsonProcessingException e) {
+                    log.error("Malformed NDJSON item {}: {}", offset + chunk.size(), e.getOriginalMessage());
+                    if (!writeChunk(out, request, offset, chunk, operation)) {
+                        return;
+                    }
+                    writeResult(out, new BulkItemResultDto(offset + chunk.size(), null,
+                            BulkItemResultDto.Status.INVALID, "Malformed JSON: " + e.getOriginalMessage()));
+                    out.flush();
+                    return;
+                }
+                if (chunk.size() == chunkSize) {
+                    if (!writeChunk(out, request, offset, chunk, operation)) {
+                        return;
+                    }
+                    offset += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty() && writeChunk(out, request, offset, chunk, operation)) {
+            offset += chunk.size();
+        }
+        log.debug("Processed {} NDJSON items", offset);
+    }
+
+    /**
+     * Charges the client for the chunk and writes the operation's results. A chunk over the client's limit is
+     * answered RATE_LIMITED item by item instead, and ends the request: returns false.
+     */
+    private <T> boolean writeChunk(OutputStream out, HttpServletRequest request, int offset, List<T> chunk,
+                                   Function<List<T>, List<BulkItemResultDto>> operation) throws IOException {
+        try {
+            rateLimiter.checkClient(request.getRemoteAddr(), offset == 0 ? chunk.size() - 1 : chunk.size());
+        } catch (RateLimitExceededException e) {
+            log.debug("NDJSON items {} to {} rejected: {}", offset, offset + chunk.size() - 1, e.getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                writeResult(out, new BulkItemResultDto(offset + i, null, BulkItemResultDto.Status.RATE_LIMITED,
+                        e.getMessage()));
+            }
+            out.flush();
+            return false;
+        }
+        writeResults(out, offset, operation.apply(chunk));
+        return true;
+    }
+
+    private void writeResults(OutputStream out, int offset, List<BulkItemResultDto> results) throws IOException {
+        for (BulkItemResultDto result : results) {
+            result.setIndex(result.getIndex() + offset);
+            writeResult(out, result);
+        }
+        out.flush();
+    }
+
+    private void writeResult(OutputStream out, BulkItemResultDto result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
     }
-}
\ No newline at end of file
+}
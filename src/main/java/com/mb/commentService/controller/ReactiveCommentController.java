@@ -0,0 +1,82 @@
+package com.mb.commentService.controller;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.ratelimit.CommentRateLimiter;
+import com.mb.commentService.service.ReactiveCommentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive twin of {@link CommentController}. Handlers return {@code Mono}/{@code Flux} and Spring MVC completes
+ * the request asynchronously, so no servlet thread waits on the database. A thread requested as NDJSON is
+ * written comment by comment with back-pressure; as JSON it is collected into an array first.
+ */
+@RestController
+@RequestMapping("/api/reactive/comments")
+@ConditionalOnProperty(prefix = "comment.reactive", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReactiveCommentController {
+
+    @Autowired
+    private ReactiveCommentService commentService;
+
+    @Autowired
+    private CommentRateLimiter rateLimiter;
+
+    @PostMapping
+    public Mono<ResponseEntity<CommentDto>> createComment(@RequestBody CommentDto commentDto) {
+        log.debug("Received request to create comment for postId: {}", commentDto.getPostId());
+        rateLimiter.checkCreate(commentDto.getEmail(), commentDto.getPostId());
+        return commentService.createComment(commentDto)
+                .map(createdComment -> new ResponseEntity<>(createdComment, HttpStatus.CREATED));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<CommentDto> getCommentById(@PathVariable Long id) {
+        log.debug("Fetching comment with id: {}", id);
+        return commentService.getCommentById(id);
+    }
+
+    @GetMapping(value = "/post/{postId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<CommentDto>> getCommentsByPostId(@PathVariable Long postId) {
+        log.debug("Fetching comments for postId: {}", postId);
+        return commentService.getCommentsByPostId(postId).collectList();
+    }
+
+    @GetMapping(value = "/post/{postId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CommentDto> streamCommentsByPostId(@PathVariable Long postId) {
+        log.debug("Streaming comments for postId: {}", postId);
+        return commentService.getCommentsByPostId(postId);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<CommentDto> updateComment(@PathVariable Long id, @RequestBody CommentDto commentDto) {
+        log.debug("Updating comment with id: {}", id);
+        return commentService.updateComment(id, commentDto);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteComment(@PathVariable Long id) {
+        log.debug("Deleting comment with id: {}", id);
+        return commentService.deleteComment(id)
+                .thenReturn(ResponseEntity.noContent().<Void>build());
+    }
+
+    @DeleteMapping("/post/{postId}")
+    public Mono<ResponseEntity<Void>> deleteCommentsByPostId(@PathVariable Long postId) {
+        log.debug("Deleting all comments for postId: {}", postId);
+        return commentService.deleteCommentsByPostId(postId)
+                .map(deleted -> ResponseEntity.noContent()
+                        .header(CommentController.DELETED_COUNT_HEADER, String.valueOf(deleted))
+                        .<Void>build());
+    }
+}
@@ -0,0 +1,208 @@
+package com.mb.commentService.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Hands out connections to read replicas in turn, skipping replicas that are unreachable or too far behind, and
+ * connections to the primary when no replica is usable or the thread is pinned to it (see
+ * {@link ReplicaRouting}).
+ * <p>
+ * Lag is measured in WAL position rather than time: each check samples the primary's current WAL position, and
+ * a replica stays in rotation while it has replayed at least what the primary had written {@code maxLag} ago.
+ * This also catches a replica that lost its connection to the primary, which replay timestamps alone would not
+ * reveal on an idle primary. A database that is not in recovery counts as caught up, so two independent local
+ * instances can stand in for a primary and a replica.
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+
+    private static final String PRIMARY_POSITION = "SELECT pg_current_wal_lsn()::text";
+    private static final String REPLAY_POSITION = "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::text";
+
+    private final DataSource primary;
+    private final List<ReplicaState> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryFallbacks;
+    // Primary WAL positions as {time, position}, oldest first; only the health check thread touches it.
+    private final Deque<long[]> primaryPositions = new ArrayDeque<>();
+
+    private ScheduledExecutorService healthCheck;
+
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, List<String> names,
+                             Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = IntStream.range(0, replicas.size())
+                .mapToObj(i -> new ReplicaState(names.get(i), replicas.get(i)))
+                .toList();
+        this.maxLagMillis = maxLag.toMillis();
+        this.primaryFallbacks = meterRegistry.counter("comment.replica.primary.fallbacks");
+        Gauge.builder("comment.replica.healthy", this.replicas,
+                        states -> states.stream().filter(state -> state.healthy).count())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks every replica once, so reads start out on the ones that are usable, then keeps checking every
+     * {@code interval}.
+     */
+    public void start(Duration interval) {
+        checkHealth();
+        healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        for (ReplicaState replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReplicaRouting.isPrimaryPinned()) {
+            return primary.getConnection();
+        }
+        int count = replicas.size();
+        int first = next.getAndIncrement();
+        for (int i = 0; i < count; i++) {
+            ReplicaState replica = replicas.get(Math.floorMod(first + i, count));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                // Back in rotation once a health check reaches it again.
+                replica.markUnhealthy("connection failed: " + e.getMessage());
+            }
+        }
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    /**
+     * Whether the replica at {@code index} is in rotation.
+     */
+    public boolean isHealthy(int index) {
+        return replicas.get(index).healthy;
+    }
+
+    void checkHealth() {
+        long now = System.currentTimeMillis();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PRIMARY_POSITION)) {
+            rs.next();
+            primaryPositions.addLast(new long[]{now, parsePosition(rs.getString(1))});
+        } catch (SQLException | RuntimeException e) {
+            // Without the primary's position there is nothing to measure against; keep the last verdicts.
+            log.warn("Could not read the primary's WAL position for the replica health check: {}", e.getMessage());
+            return;
+        }
+        // The newest sample at least maxLag old is what every replica must have replayed. Until there is one,
+        // the oldest sample is used, which is stricter.
+        while (primaryPositions.size() > 1 && now - secondOldest()[0] >= maxLagMillis) {
+            primaryPositions.removeFirst();
+        }
+        long requiredPosition = primaryPositions.getFirst()[1];
+        for (ReplicaState replica : replicas) {
+            replica.check(requiredPosition);
+        }
+    }
+
+    private long[] secondOldest() {
+        var iterator = primaryPositions.iterator();
+        iterator.next();
+        return iterator.next();
+    }
+
+    static long parsePosition(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    private static final class ReplicaState {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+
+        private ReplicaState(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void check(long requiredPosition) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(REPLAY_POSITION)) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    markHealthy();
+                    return;
+                }
+                String replayed = rs.getString(2);
+                if (replayed != null && parsePosition(replayed) >= requiredPosition) {
+                    markHealthy();
+                } else {
+                    markUnhealthy("replayed WAL up to " + replayed + ", behind by more than the allowed lag");
+                }
+            } catch (SQLException | RuntimeException e) {
+                markUnhealthy("health check failed: " + e.getMessage());
+            }
+        }
+
+        private void markHealthy() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Read replica {} is in rotation", name);
+            }
+        }
+
+        private void markUnhealthy(String reason) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Read replica {} taken out of rotation: {}", name, reason);
+            }
+        }
+    }
+}
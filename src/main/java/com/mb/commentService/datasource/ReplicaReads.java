@@ -0,0 +1,102 @@
+package com.mb.commentService.datasource;
+
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentReplicaProperties;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs comment reads where they may go to a read replica: in a read-only transaction, which the routing data
+ * source (see {@code ReplicaDataSourceConfig}) sends to a replica. Reads of posts written within the replicas'
+ * {@link CommentReplicaProperties#stalenessBound() staleness bound} stay on the primary, so a write is never
+ * followed by a cached or returned read that misses it. With replicas disabled every read simply runs as it is.
+ * <p>
+ * Open-in-view keeps one connection per request, taken by whatever runs first and then used for the rest of
+ * the request, writes included. Replica reads outside a transaction therefore run with an entity manager and
+ * connection of their own; inside a transaction they join it and go wherever it does.
+ */
+@Component
+public class ReplicaReads {
+
+    private final boolean enabled;
+    private final long stalenessMillis;
+    private final PostVersionTracker postVersions;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate readOnly;
+
+    public ReplicaReads(CommentReplicaProperties properties, PostVersionTracker postVersions,
+                        PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+        this.enabled = properties.isEnabled();
+        this.stalenessMillis = properties.stalenessBound().toMillis();
+        this.postVersions = postVersions;
+        this.entityManagerFactory = entityManagerFactory;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * Reads from a replica, for reads that do not belong to particular posts.
+     */
+    public <T> T read(Supplier<T> read) {
+        if (!enabled || ReplicaRouting.isPrimaryPinned() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return read.get();
+        }
+        Object requestScoped = TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        try {
+            return readOnly.execute(status -> read.get());
+        } finally {
+            if (requestScoped != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory, requestScoped);
+            }
+        }
+    }
+
+    /**
+     * Reads from a replica and reads again from the primary when {@code stale} says the replica's answer may
+     * be out of date, e.g. a comment it does not have yet.
+     */
+    public <T> T read(Supplier<T> read, Predicate<T> stale) {
+        if (!enabled || ReplicaRouting.isPrimaryPinned()) {
+            return read.get();
+        }
+        T result = read(read);
+        return stale.test(result) ? readPrimary(read) : result;
+    }
+
+    /**
+     * Reads one post's comments from a replica, or from the primary if the post was written recently.
+     */
+    public <T> T readPost(Long postId, Supplier<T> read) {
+        return isRecentlyWritten(postId) ? readPrimary(read) : read(read);
+    }
+
+    /**
+     * Reads several posts' comments from a replica, or from the primary if any of them was written recently.
+     */
+    public <T> T readPosts(Collection<Long> postIds, Supplier<T> read) {
+        return postIds.stream().anyMatch(this::isRecentlyWritten) ? readPrimary(read) : read(read);
+    }
+
+    public <T> T readPrimary(Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+        try (ReplicaRouting.Pin pin = ReplicaRouting.pinPrimary()) {
+            return read.get();
+        }
+    }
+
+    /**
+     * Whether the post may have been written more recently than the replicas are guaranteed to have caught up.
+     */
+    public boolean isRecentlyWritten(Long postId) {
+        return enabled && postVersions.writtenSince(postId, System.currentTimeMillis() - stalenessMillis);
+    }
+}
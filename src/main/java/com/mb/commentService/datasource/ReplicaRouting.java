@@ -0,0 +1,41 @@
+package com.mb.commentService.datasource;
+
+/**
+ * Per-thread override that sends read-only transactions to the primary instead of a read replica, for reads
+ * that have to see a write the replicas may not have replayed yet.
+ * <p>
+ * A transaction takes its connection when it runs its first statement, so pinning has to happen before that.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static boolean isPrimaryPinned() {
+        return Boolean.TRUE.equals(PRIMARY_PINNED.get());
+    }
+
+    /**
+     * Pins the current thread to the primary until the returned pin is closed; pins nest.
+     */
+    public static Pin pinPrimary() {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            } else {
+                PRIMARY_PINNED.set(previous);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Pin extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
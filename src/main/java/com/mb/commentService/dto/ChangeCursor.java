@@ -0,0 +1,41 @@
+package com.mb.commentService.dto;
+
+import com.mb.commentService.exception.InvalidCommentDataException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a post's change feed, ordered by {@code (change_txid, id)}, plus the time it was handed out so
+ * that cursors older than the tombstone retention can be refused. Serialized like {@link CommentCursor}.
+ */
+@Getter
+@AllArgsConstructor
+public class ChangeCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final long txid;
+    private final long id;
+    private final long issuedAt;
+
+    public String encode() {
+        String raw = Long.toString(txid) + SEPARATOR + id + SEPARATOR + issuedAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ChangeCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new InvalidCommentDataException("Invalid cursor: " + token);
+            }
+            return new ChangeCursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCommentDataException("Invalid cursor: " + token);
+        }
+    }
+}
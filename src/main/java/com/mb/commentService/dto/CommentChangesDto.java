@@ -0,0 +1,30 @@
+package com.mb.commentService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentChangesDto {
+
+    /**
+     * Comments created or updated since the cursor, in their current state.
+     */
+    private List<CommentDto> changed;
+    /**
+     * Ids of comments deleted since the cursor.
+     */
+    private List<Long> deleted;
+    /**
+     * Cursor to pass as {@code since} on the next poll; always present.
+     */
+    private String nextCursor;
+    /**
+     * Whether more changes are waiting; if so, poll again right away.
+     */
+    private boolean hasMore;
+}
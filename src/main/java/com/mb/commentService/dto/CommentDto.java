@@ -3,6 +3,7 @@ package com.mb.commentService.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
@@ -13,7 +14,10 @@ public class CommentDto {
 
     private Long id;
     private String name;
+    // Kept out of toString so log lines carry neither personal data nor whole comment bodies.
+    @ToString.Exclude
     private String email;
+    @ToString.Exclude
     private String comment;
     private Long postId;
     private LocalDateTime createdAt;
@@ -0,0 +1,19 @@
+package com.mb.commentService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentPageDto {
+
+    private List<CommentDto> comments;
+    /**
+     * Opaque cursor to pass as {@code after} to fetch the next page, or {@code null} when this is the last page.
+     */
+    private String nextCursor;
+}
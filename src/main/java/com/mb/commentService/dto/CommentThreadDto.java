@@ -0,0 +1,21 @@
+package com.mb.commentService.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A post's whole thread with the post id stated once instead of on every comment.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentThreadDto {
+
+    private Long postId;
+    @JsonIgnoreProperties("postId")
+    private List<CommentDto> comments;
+}
@@ -0,0 +1,43 @@
+package com.mb.commentService.dto;
+
+import com.mb.commentService.exception.InvalidCommentDataException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in search results, ordered by {@code rank DESC, id DESC}.
+ * Serialized as an opaque URL-safe token like {@link CommentCursor}.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final float rank;
+    private final Long id;
+
+    public String encode() {
+        String raw = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCommentDataException("Invalid cursor: " + token);
+            }
+            return new SearchCursor(
+                    Float.parseFloat(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCommentDataException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mb.commentService.event;
+
+import com.mb.commentService.dto.CommentDto;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published by the comment service after every successful write so derived state (caches and the like)
+ * can follow the table without the service knowing about each consumer.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CommentEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        POST_DELETED
+    }
+
+    private final Type type;
+    private final Long postId;
+    private final Long commentId;
+    /**
+     * The written comment for {@link Type#CREATED} and {@link Type#UPDATED}, otherwise {@code null}.
+     */
+    @ToString.Exclude
+    private final CommentDto comment;
+
+    public static CommentEvent created(CommentDto comment) {
+        return new CommentEvent(Type.CREATED, comment.getPostId(), comment.getId(), comment);
+    }
+
+    public static CommentEvent updated(CommentDto comment) {
+        return new CommentEvent(Type.UPDATED, comment.getPostId(), comment.getId(), comment);
+    }
+
+    public static CommentEvent deleted(Long commentId, Long postId) {
+        return new CommentEvent(Type.DELETED, postId, commentId, null);
+    }
+
+    public static CommentEvent postDeleted(Long postId) {
+        return new CommentEvent(Type.POST_DELETED, postId, null, null);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mb.commentService.exception;
+
+
+public class ChangeCursorExpiredException extends RuntimeException {
+    public ChangeCursorExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.mb.commentService.exception;
+
+
+public class CommentWritePendingException extends RuntimeException {
+    public CommentWritePendingException(String message) {
+        super(message);
+    }
+}
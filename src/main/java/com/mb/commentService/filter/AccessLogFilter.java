@@ -0,0 +1,174 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.config.CommentAccessLogProperties;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One line per sampled API request: method, path, status and duration, never headers or bodies. Replaces the
+ * per-request INFO lines the controllers and services used to write. Requests that fail with a server error or
+ * take longer than {@code slow-threshold} are always logged; streaming and reactive responses are logged when
+ * they complete. How long those stay open depends on the client (an event subscription lasts minutes), so for
+ * them the threshold applies to the time until their first byte.
+ */
+@Component
+@ConditionalOnProperty(prefix = "comment.access-log", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+
+    public AccessLogFilter(CommentAccessLogProperties properties) {
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean sampled = sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        FirstByteResponse timedResponse = new FirstByteResponse(response);
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        logRequest(request, response, start, timedResponse.firstByteNanos(), sampled);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                logRequest(request, response, start, System.nanoTime(), sampled);
+            }
+        }
+    }
+
+    /**
+     * @param respondedAt when the response was complete enough to judge the service by: its end for an ordinary
+     *                    request, its first byte for an asynchronous one
+     */
+    private void logRequest(HttpServletRequest request, HttpServletResponse response, long start, long respondedAt,
+                            boolean sampled) {
+        long elapsed = System.nanoTime() - start;
+        int status = response.getStatus();
+        if (sampled || status >= 500 || respondedAt - start > slowThresholdNanos) {
+            log.info("{} {} {} {}ms", request.getMethod(), request.getRequestURI(), status,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    /**
+     * Notes when the body is first written or flushed. A response that never writes one counts as answered when
+     * it completes.
+     */
+    private static final class FirstByteResponse extends HttpServletResponseWrapper {
+
+        private volatile boolean written;
+        private volatile long firstByteNanos;
+
+        FirstByteResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        long firstByteNanos() {
+            return written ? firstByteNanos : System.nanoTime();
+        }
+
+        private void written() {
+            if (!written) {
+                firstByteNanos = System.nanoTime();
+                written = true;
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            ServletOutputStream out = super.getOutputStream();
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    written();
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    written();
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    written();
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return out.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    out.setWriteListener(writeListener);
+                }
+            };
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            // Text bodies are written right after the writer is taken; close enough to their first byte.
+            written();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            written();
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.config.CommentConcurrencyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits at most {@code max-concurrent-requests} comment API requests, blocking and reactive, at a time. Others
+ * wait up to {@code acquire-timeout} for a slot and are then turned away with 503 and {@code Retry-After}, so
+ * overload shows up as fast rejections instead of every request timing out on the connection pool.
+ * <p>
+ * An asynchronous response (a streamed thread, a reactive result) keeps its slot until it completes, since
+ * that is when it reads the database. Comment event subscriptions are the exception: they read the database
+ * only before going asynchronous, stay open for minutes while holding no connection, and are bounded by
+ * {@code comment.stream.max-subscribers} instead.
+ */
+@Component
+@ConditionalOnProperty(prefix = "comment.concurrency", name = "enabled", havingValue = "true")
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final List<String> API_PREFIXES = List.of("/api/comments", "/api/reactive/comments");
+
+    private static final String EVENTS_SUFFIX = "/events";
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(CommentConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(properties.getMaxConcurrentRequests(), true);
+        this.acquireTimeoutNanos = properties.getAcquireTimeout().toNanos();
+        this.rejected = meterRegistry.counter("comment.concurrency.rejected");
+        Gauge.builder("comment.concurrency.in-flight", permits,
+                        p -> properties.getMaxConcurrentRequests() - p.availablePermits())
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return API_PREFIXES.stream().noneMatch(uri::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            log.warn("Rejecting {} {}: too many concurrent requests", request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+        boolean releaseOnCompletion = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !request.getRequestURI().endsWith(EVENTS_SUFFIX)) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        permits.release();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+                releaseOnCompletion = true;
+            }
+        } finally {
+            if (!releaseOnCompletion) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.exception.RateLimitExceededException;
+import com.mb.commentService.ratelimit.CommentRateLimiter;
+import com.mb.commentService.ratelimit.LoadShedder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Admission control for comment API writes, before their bodies are read: sheds them with 503 while the
+ * database is overloaded (see {@link LoadShedder}) and rejects clients over their rate limit with 429. Both
+ * come with {@code Retry-After}. Author and post limits are checked once the comment is parsed, as are the
+ * further items of a bulk request.
+ */
+@Component
+@ConditionalOnProperty(prefix = "comment.rate-limit", name = "enabled", havingValue = "true")
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final List<String> API_PREFIXES = List.of("/api/comments", "/api/reactive/comments");
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final CommentRateLimiter rateLimiter;
+    private final LoadShedder loadShedder;
+    private final Counter shed;
+
+    public RateLimitFilter(CommentRateLimiter rateLimiter, LoadShedder loadShedder, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+        this.shed = meterRegistry.counter("comment.shed.rejected");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return API_PREFIXES.stream().noneMatch(uri::startsWith) || !WRITE_METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (loadShedder.shouldShed()) {
+            shed.increment();
+            log.debug("Shedding {} {}: database overloaded", request.getMethod(), request.getRequestURI());
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, loadShedder.getRetryAfterSeconds());
+            return;
+        }
+        try {
+            rateLimiter.checkClient(request.getRemoteAddr());
+        } catch (RateLimitExceededException e) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, e.getRetryAfterSeconds());
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+}
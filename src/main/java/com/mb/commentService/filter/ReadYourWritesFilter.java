@@ -0,0 +1,109 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.config.CommentReplicaProperties;
+import com.mb.commentService.datasource.ReplicaRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Keeps a client's reads on the primary database for a while after its own writes, so it sees them even where
+ * the post is not known to be recently written, e.g. on another instance that has not heard of the write. A
+ * successful write stamps a cookie with the time it was answered; reads carrying a stamp younger than the
+ * replicas' staleness bound skip the replicas.
+ */
+@Component
+@ConditionalOnProperty(prefix = "comment.replicas", name = "enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "comment_last_write";
+    private static final String API_PREFIX = "/api/comments";
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final long stalenessMillis;
+
+    public ReadYourWritesFilter(CommentReplicaProperties properties) {
+        this.stalenessMillis = properties.stalenessBound().toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            StampingResponse stamping = new StampingResponse(response);
+            filterChain.doFilter(request, stamping);
+            // Nothing was flushed during the request; the response is committed only after the filters.
+            stamping.stamp();
+            return;
+        }
+        if (!wroteRecently(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try (ReplicaRouting.Pin pin = ReplicaRouting.pinPrimary()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return System.currentTimeMillis() - Long.parseLong(cookie.getValue()) < stalenessMillis;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the cookie just before the response is committed, once the write is done, unless it failed. Errors
+     * sent with {@code sendError} are only known after the commit, so those still stamp the cookie, which at
+     * worst keeps the client's reads on the primary a little longer.
+     */
+    private final class StampingResponse extends OnCommittedResponseWrapper {
+
+        private boolean stamped;
+
+        private StampingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            stamp();
+        }
+
+        private void stamp() {
+            if (stamped || isCommitted() || getStatus() >= 400) {
+                return;
+            }
+            stamped = true;
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis()));
+            cookie.setPath(API_PREFIX);
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stalenessMillis + 999) / 1000));
+            addCookie(cookie);
+        }
+    }
+}
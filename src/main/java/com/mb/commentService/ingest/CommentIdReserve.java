@@ -0,0 +1,79 @@
+package com.mb.commentService.ingest;
+
+import com.mb.commentService.repository.CommentIngestRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Comment ids drawn from {@code comments_seq} ahead of time, so a logged comment can be acknowledged with its
+ * final id without a database round trip. The reserve is topped up in the background once it falls below half
+ * its target; only a caller that finds it empty waits for the database.
+ * <p>
+ * Ids reserved but never used leave gaps, as Hibernate's pooled optimizer does on restart.
+ */
+@Slf4j
+final class CommentIdReserve {
+
+    private final CommentIngestRepository repository;
+    private final ExecutorService refiller;
+    private final int blockSize;
+    private final int blocksPerRefill;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    // Guarded by this. Each block is the highest id of a range of blockSize ids.
+    private final Deque<Long> blocks = new ArrayDeque<>();
+    private long next = 1;
+    private long last = 0;
+
+    CommentIdReserve(CommentIngestRepository repository, ExecutorService refiller, int target) {
+        this.repository = repository;
+        this.refiller = refiller;
+        this.blockSize = repository.idBlockSize();
+        this.blocksPerRefill = Math.max(1, target / blockSize);
+    }
+
+    synchronized long next() {
+        if (next > last) {
+            if (blocks.isEmpty()) {
+                blocks.addAll(repository.nextIdBlocks(blocksPerRefill));
+            }
+            last = blocks.poll();
+            next = Math.max(1, last - blockSize + 1);
+        }
+        if (available() < (long) blocksPerRefill * blockSize / 2) {
+            refillAsync();
+        }
+        return next++;
+    }
+
+    private long available() {
+        return last - next + 1 + (long) blocks.size() * blockSize;
+    }
+
+    private void refillAsync() {
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refiller.execute(() -> {
+                try {
+                    List<Long> fetched = repository.nextIdBlocks(blocksPerRefill);
+                    synchronized (this) {
+                        blocks.addAll(fetched);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not top up the comment id reserve: {}", e.getMessage());
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.mb.commentService.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files of a fixed size.
+ * <p>
+ * Appending copies the record into the mapped segment under a short lock; durability is a separate step.
+ * A single syncer thread forces everything appended since its previous pass to disk and releases every caller
+ * waiting on those records at once, so concurrent appenders share one {@code msync} instead of paying for one
+ * each.
+ * <p>
+ * Each record is framed by its length and a CRC32C of its bytes; replay stops at the first frame that is
+ * empty or does not check out, which is where an interrupted append left the segment. A segment is deleted
+ * once it is no longer written to and each of its records has been marked applied.
+ */
+@Slf4j
+final class CommentIngestLog implements Closeable {
+
+    private static final int MAGIC = 0x434d4c31;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SUFFIX = ".log";
+
+    /**
+     * A record of a segment that existed when the log was opened.
+     */
+    record Replayed(byte[] payload, Segment segment) {
+    }
+
+    /**
+     * Where an appended record ended up; pass the position to {@link #awaitDurable}.
+     */
+    record Appended(Segment segment, long position) {
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final Thread syncer;
+
+    // Guarded by lock. Positions count bytes across all segments since the log was opened.
+    private Segment current;
+    private long appendedPosition;
+    private long syncedPosition;
+    private IOException syncFailure;
+    private boolean closed;
+
+    private CommentIngestLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncer = new Thread(this::runSyncer, "comment-ingest-sync");
+        this.syncer.setDaemon(true);
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed, and returns it with the records left over
+     * from the previous run in {@code replayed}, oldest first.
+     */
+    static CommentIngestLog open(Path directory, int segmentSize, List<Replayed> replayed) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        CommentIngestLog ingestLog = new CommentIngestLog(directory, segmentSize);
+        long nextSequence = 0;
+        for (Path path : segmentPaths(directory)) {
+            long sequence = Long.parseLong(path.getFileName().toString().replace(SUFFIX, ""));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            ingestLog.replay(path, sequence, replayed);
+        }
+        ingestLog.current = ingestLog.createSegment(nextSequence, 0);
+        ingestLog.syncer.start();
+        return ingestLog;
+    }
+
+    /**
+     * The largest record that fits into a segment.
+     */
+    int maxRecordSize() {
+        return segmentSize - SEGMENT_HEADER_SIZE - RECORD_HEADER_SIZE;
+    }
+
+    Appended append(byte[] payload) throws IOException {
+        if (payload.length > maxRecordSize()) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int frameSize = RECORD_HEADER_SIZE + payload.length;
+        lock.lock();
+        try {
+            ensureWritable();
+            if (current.limit + frameSize > segmentSize) {
+                roll();
+            }
+            Segment segment = current;
+            int offset = segment.limit;
+            segment.buffer.put(offset + RECORD_HEADER_SIZE, payload);
+            segment.buffer.putInt(offset + 4, (int) crc.getValue());
+            segment.buffer.putInt(offset, payload.length);
+            segment.limit += frameSize;
+            segment.records.incrementAndGet();
+            appendedPosition = segment.base + segment.limit;
+            appended.signal();
+            return new Appended(segment, appendedPosition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until everything appended up to {@code position} has been forced to disk.
+     */
+    void awaitDurable(long position) throws IOException {
+        lock.lock();
+        try {
+            while (syncedPosition < position) {
+                ensureWritable();
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks one record of {@code segment} applied, deleting the segment when it was its last outstanding one.
+     */
+    void markApplied(Segment segment) {
+        segment.applied.incrementAndGet();
+        deleteIfDone(segment);
+    }
+
+    /**
+     * Starts a new segment when the current one holds at least {@code minBytes} and all of its records are
+     * applied, so the next start does not replay a long history of records that are already in the database.
+     */
+    void rollIfApplied(int minBytes) throws IOException {
+        lock.lock();
+        try {
+            if (!closed && current.limit - SEGMENT_HEADER_SIZE >= minBytes
+                    && current.applied.get() == current.records.get()) {
+                roll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signalAll();
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        current.buffer.force();
+    }
+
+    private void runSyncer() {
+        while (true) {
+            Segment segment;
+            int from;
+            int to;
+            long target;
+            lock.lock();
+            try {
+                while (!closed && appendedPosition == syncedPosition) {
+                    appended.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                segment = current;
+                from = segment.syncedLimit;
+                to = segment.limit;
+                target = appendedPosition;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                segment.buffer.force(from, to - from);
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    syncFailure = new IOException("Could not force comment ingest log to disk", e);
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                log.error("Comment ingest log sync failed, refusing further appends", e);
+                return;
+            }
+            lock.lock();
+            try {
+                segment.syncedLimit = Math.max(segment.syncedLimit, to);
+                syncedPosition = Math.max(syncedPosition, target);
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Called with the lock held. The full segment is forced here rather than by the syncer, so the syncer only
+     * ever deals with the current segment.
+     */
+    private void roll() throws IOException {
+        Segment previous = current;
+        previous.buffer.force();
+        previous.syncedLimit = previous.limit;
+        previous.sealed = true;
+        syncedPosition = Math.max(syncedPosition, previous.base + previous.limit);
+        current = createSegment(previous.sequence + 1, previous.base + previous.limit);
+        deleteIfDone(previous);
+    }
+
+    private void ensureWritable() throws IOException {
+        if (syncFailure != null) {
+            throw syncFailure;
+        }
+        if (closed) {
+            throw new IOException("Comment ingest log is closed");
+        }
+    }
+
+    private Segment createSegment(long sequence, long base) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", sequence, SUFFIX));
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.putInt(0, MAGIC);
+            buffer.force(0, SEGMENT_HEADER_SIZE);
+            return new Segment(sequence, path, base, buffer, SEGMENT_HEADER_SIZE);
+        }
+    }
+
+    private void replay(Path path, long sequence, List<Replayed> replayed) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < SEGMENT_HEADER_SIZE) {
+                Files.delete(path);
+                return;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a comment ingest log segment: " + path);
+        }
+        Segment segment = new Segment(sequence, path, 0, null, SEGMENT_HEADER_SIZE);
+        segment.sealed = true;
+        int offset = SEGMENT_HEADER_SIZE;
+        int count = 0;
+        while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + RECORD_HEADER_SIZE, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                log.warn("Comment ingest log {} ends in a torn record at offset {}", path, offset);
+                break;
+            }
+            replayed.add(new Replayed(payload, segment));
+            offset += RECORD_HEADER_SIZE + length;
+            count++;
+        }
+        segment.records.set(count);
+        log.info("Replaying {} records from comment ingest log {}", count, path);
+        deleteIfDone(segment);
+    }
+
+    private static void deleteIfDone(Segment segment) {
+        if (!segment.sealed || segment.applied.get() < segment.records.get() || !segment.deleted.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment.path);
+            log.debug("Deleted applied comment ingest log {}", segment.path);
+        } catch (IOException e) {
+            log.warn("Could not delete applied comment ingest log {}", segment.path, e);
+        }
+    }
+
+    private static List<Path> segmentPaths(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList());
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    static final class Segment {
+
+        private final long sequence;
+        private final Path path;
+        private final long base;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger records = new AtomicInteger();
+        private final AtomicInteger applied = new AtomicInteger();
+        private final AtomicBoolean deleted = new AtomicBoolean();
+        // Guarded by the log's lock.
+        private int limit;
+        private int syncedLimit;
+        private volatile boolean sealed;
+
+        private Segment(long sequence, Path path, long base, MappedByteBuffer buffer, int limit) {
+            this.sequence = sequence;
+            this.path = path;
+            this.base = base;
+            this.buffer = buffer;
+            this.limit = limit;
+            this.syncedLimit = limit;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.mb.commentService.ingest;
+
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.CommentWritePendingException;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentIngestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind comment creation. A validated comment gets its id from a reserve of sequence values and is
+ * acknowledged as soon as it is durable in the local {@link CommentIngestLog}; a drainer thread inserts logged
+ * comments into the table in batches. Create latency therefore follows the local disk rather than the
+ * database, and a database outage only grows the backlog.
+ * <p>
+ * Until a comment has been inserted it is pending: {@link #findPending} and {@link #pendingForPost} let reads
+ * merge it in, so its author sees it right away, and updates and deletes wait for it with {@link #awaitApplied}.
+ * Post deletes go through {@link #preparePostDelete}, which also keeps every other instance's drainer from
+ * inserting the post's older comments afterwards.
+ * Its {@code created} event is published once it is in the table, so caches, counts and streams only ever
+ * follow rows that exist.
+ * <p>
+ * On start, records left in the log by a previous run are queued again before any create is accepted. The
+ * insert skips rows that exist or were deleted, so records applied just before a crash are harmless to replay.
+ * A record the database refuses outright is moved to the {@code comment_ingest_dead_letters} table rather than
+ * dropped, since its author was told it is stored.
+ */
+@Component
+@Slf4j
+public class WriteBehindCommentWriter {
+
+    /**
+     * Width of the {@code name} and {@code email} columns; longer values could only fail in the drainer, after
+     * the comment was acknowledged, so they take the direct path and fail there.
+     */
+    private static final int MAX_COLUMN_LENGTH = 255;
+    private static final long MIN_RETRY_DELAY_MILLIS = 50;
+
+    private final CommentIngestRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PostVersionTracker postVersions;
+    private final CommentWriteProperties.WriteBehind properties;
+    private final Map<Long, PendingComment> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, PendingComment>> pendingByPost = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingComment> drainQueue = new LinkedBlockingQueue<>();
+    private final Counter fallbacks;
+    private final Counter deadLettered;
+
+    private CommentIngestLog ingestLog;
+    private CommentIdReserve ids;
+    private ExecutorService idRefiller;
+    private Thread drainer;
+    private volatile boolean running;
+
+    public WriteBehindCommentWriter(CommentIngestRepository repository,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PostVersionTracker postVersions,
+                                    CommentWriteProperties writeProperties,
+                                    MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.postVersions = postVersions;
+        this.properties = writeProperties.getWriteBehind();
+        this.fallbacks = meterRegistry.counter("comment.ingest.fallbacks");
+        this.deadLettered = meterRegistry.counter("comment.ingest.dead.letters");
+        Gauge.builder("comment.ingest.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        idRefiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-ingest-ids");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ids = new CommentIdReserve(repository, idRefiller, properties.getIdReserve());
+        List<CommentIngestLog.Replayed> replayed = new ArrayList<>();
+        ingestLog = CommentIngestLog.open(Path.of(properties.getDirectory()), (int) properties.getSegmentSize().toBytes(), replayed);
+        for (CommentIngestLog.Replayed record : replayed) {
+            enqueue(decode(record.payload()), record.segment());
+        }
+        running = true;
+        drainer = new Thread(this::runDrainer, "comment-ingest-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+        log.info("Write-behind comment ingest enabled in {}, {} logged comments to apply",
+                properties.getDirectory(), replayed.size());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+        idRefiller.shutdownNow();
+        ingestLog.close();
+        if (!pending.isEmpty()) {
+            log.info("{} logged comments left for the next start to apply", pending.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Logs a new comment and returns it as stored, id and timestamps included, once the log is durable; empty
+     * when the comment has to be written directly instead: write-behind is off, the backlog is full, or the
+     * comment could not be inserted as is.
+     */
+    public Optional<CommentDto> append(Comment comment) {
+        if (!running || pending.size() >= properties.getMaxPending() || !fitsColumns(comment)) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        CommentDto logged = new CommentDto(ids.next(), comment.getName(), comment.getEmail(), comment.getComment(),
+                comment.getPostId(), now, now);
+        byte[] record = encode(logged);
+        if (record.length > ingestLog.maxRecordSize()) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        try {
+            CommentIngestLog.Appended appended = ingestLog.append(record);
+            ingestLog.awaitDurable(appended.position());
+            enqueue(logged, appended.segment());
+        } catch (IOException e) {
+            // The record may still reach the disk and be replayed; inserting it under its id now keeps that
+            // replay from adding it a second time.
+            log.error("Could not log comment {}, inserting it directly", logged.getId(), e);
+            fallbacks.increment();
+            apply(List.of(logged));
+        }
+        postVersions.touch(logged.getPostId());
+        return Optional.of(logged);
+    }
+
+    public Optional<CommentDto> findPending(Long id) {
+        PendingComment comment = pending.get(id);
+        return comment == null ? Optional.empty() : Optional.of(comment.comment);
+    }
+
+    /**
+     * The post's pending comments, newest first like a thread.
+     */
+    public List<CommentDto> pendingForPost(Long postId) {
+        Map<Long, PendingComment> comments = pendingByPost.get(postId);
+        if (comments == null) {
+            return List.of();
+        }
+        return comments.values().stream()
+                .map(comment -> comment.comment)
+                .sorted(Comparator.comparing(CommentDto::getCreatedAt).thenComparing(CommentDto::getId).reversed())
+                .toList();
+    }
+
+    /**
+     * Waits until none of the comments is pending any more.
+     *
+     * @throws CommentWritePendingException when one is still pending after {@code apply-timeout}
+     */
+    public void awaitApplied(Collection<Long> commentIds) {
+        for (Long id : commentIds) {
+            PendingComment comment = pending.get(id);
+            if (comment != null) {
+                await(comment);
+            }
+        }
+    }
+
+    public void awaitApplied(Long id) {
+        awaitApplied(List.of(id));
+    }
+
+    /**
+     * Waits until the post has no pending comments, e.g. before all of them are deleted.
+     */
+    public void awaitPostApplied(Long postId) {
+        Map<Long, PendingComment> comments = pendingByPost.get(postId);
+        if (comments != null) {
+            for (PendingComment comment : comments.values()) {
+                await(comment);
+            }
+        }
+    }
+
+    /**
+     * Call before deleting all of a post's comments: waits until this instance has no pending comments of the
+     * post, then records the delete so that no instance's drainer inserts logged comments of the post created
+     * up to now. Comments logged on instances whose clocks run ahead of this one by more than the time between
+     * their acknowledgement and the delete may still be inserted.
+     *
+     * @throws CommentWritePendingException when a comment of the post is still pending after {@code apply-timeout}
+     */
+    public void preparePostDelete(Long postId) {
+        awaitPostApplied(postId);
+        repository.markPostDeleted(postId, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private void await(PendingComment comment) {
+        try {
+            comment.applied.get(properties.getApplyTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new CommentWritePendingException("Comment " + comment.comment.getId() + " is still being written, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommentWritePendingException("Comment " + comment.comment.getId() + " is still being written, retry later");
+        }
+    }
+
+    private void enqueue(CommentDto comment, CommentIngestLog.Segment segment) {
+        PendingComment entry = new PendingComment(comment, segment);
+        pending.put(comment.getId(), entry);
+        pendingByPost.computeIfAbsent(comment.getPostId(), id -> new ConcurrentHashMap<>()).put(comment.getId(), entry);
+        drainQueue.add(entry);
+    }
+
+    private void runDrainer() {
+        int batchSize = properties.getDrainBatchSize();
+        int idleRollBytes = (int) (properties.getSegmentSize().toBytes() / 16);
+        List<PendingComment> batch = new ArrayList<>(batchSize);
+        long retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+        try {
+            while (running) {
+                if (batch.isEmpty()) {
+                    PendingComment first = drainQueue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        ingestLog.rollIfApplied(idleRollBytes);
+                        continue;
+                    }
+                    batch.add(first);
+                    drainQueue.drainTo(batch, batchSize - 1);
+                }
+                try {
+                    drain(batch);
+                    batch.clear();
+                    retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+                } catch (RuntimeException e) {
+                    // The database is unavailable or overloaded: keep the batch and try again, backing off.
+                    log.warn("Applying {} logged comments failed, retrying in {} ms: {}", batch.size(), retryDelayMillis, e.getMessage());
+                    Thread.sleep(retryDelayMillis);
+                    retryDelayMillis = Math.min(retryDelayMillis * 2, properties.getMaxRetryDelay().toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Comment ingest drainer stopped", e);
+        }
+    }
+
+    private void drain(List<PendingComment> batch) {
+        List<CommentDto> comments = batch.stream().map(comment -> comment.comment).toList();
+        try {
+            Set<Long> inserted = apply(comments);
+            batch.forEach(comment -> complete(comment, inserted));
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() > 1) {
+                for (PendingComment comment : batch) {
+                    drain(List.of(comment));
+                }
+                return;
+            }
+            // No retry can fix the row itself; keeping it would stop the drainer for good. Should the dead letter
+            // fail too, the batch is retried like any other failure.
+            PendingComment comment = batch.get(0);
+            repository.deadLetter(comment.comment, e.getMostSpecificCause().getMessage());
+            log.error("Moved logged comment {} the database refuses to the dead letters: {}", comment.comment.getId(),
+                    e.getMostSpecificCause().getMessage());
+            deadLettered.increment();
+            complete(comment, Set.of());
+        }
+    }
+
+    /**
+     * Inserts the comments and publishes a {@code created} event for each one actually inserted.
+     */
+    private Set<Long> apply(List<CommentDto> comments) {
+        Set<Long> inserted = new HashSet<>(repository.insertMissing(comments));
+        for (CommentDto comment : comments) {
+            if (inserted.contains(comment.getId())) {
+                try {
+                    eventPublisher.publishEvent(CommentEvent.created(comment));
+                } catch (RuntimeException e) {
+                    log.error("Handling created event of logged comment {} failed", comment.getId(), e);
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Called after the {@code created} event, which drops cached threads of the post: a reader that no longer
+     * finds the comment pending is sure to load a thread containing it.
+     */
+    private void complete(PendingComment comment, Set<Long> inserted) {
+        Long id = comment.comment.getId();
+        pending.remove(id);
+        pendingByPost.computeIfPresent(comment.comment.getPostId(), (postId, comments) -> {
+            comments.remove(id);
+            return comments.isEmpty() ? null : comments;
+        });
+        comment.applied.complete(null);
+        ingestLog.markApplied(comment.segment);
+        log.debug("Applied logged comment {}{}", id, inserted.contains(id) ? "" : " (already present or deleted)");
+    }
+
+    private static boolean fitsColumns(Comment comment) {
+        return comment.getName().length() <= MAX_COLUMN_LENGTH && comment.getEmail().length() <= MAX_COLUMN_LENGTH;
+    }
+
+    static byte[] encode(CommentDto comment) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + comment.getComment().length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(comment.getId());
+            out.writeLong(comment.getPostId());
+            out.writeLong(comment.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(comment.getCreatedAt().getNano());
+            writeString(out, comment.getName());
+            writeString(out, comment.getEmail());
+            writeString(out, comment.getComment());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static CommentDto decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            long id = in.readLong();
+            long postId = in.readLong();
+            LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            String name = readString(in);
+            String email = readString(in);
+            String text = readString(in);
+            return new CommentDto(id, name, email, text, postId, createdAt, createdAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static final class PendingComment {
+        private final CommentDto comment;
+        private final CommentIngestLog.Segment segment;
+        private final CompletableFuture<Void> applied = new CompletableFuture<>();
+
+        private PendingComment(CommentDto comment, CommentIngestLog.Segment segment) {
+            this.comment = comment;
+            this.segment = segment;
+        }
+    }
+}
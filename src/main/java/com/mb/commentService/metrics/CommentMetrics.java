@@ -0,0 +1,214 @@
+package com.mb.commentService.metrics;
+
+import com.mb.commentService.config.CommentMetricsProperties;
+import com.mb.commentService.exception.CommentNotFoundException;
+import com.mb.commentService.exception.InvalidCommentDataException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for every {@link com.mb.commentService.service.CommentService} operation.
+ * <p>
+ * All meters are registered up front and looked up by enum ordinal, so recording on the request path is a
+ * {@code System.nanoTime()} pair and a histogram increment: no tag arrays, no registry lookups, no
+ * {@code Timer.Sample}s.
+ * <ul>
+ *     <li>{@code comment.operation} - latency per operation, with a percentile histogram;</li>
+ *     <li>{@code comment.operation.phase} - time spent in the database and in entity/DTO mapping per operation,
+ *     plus response serialization;</li>
+ *     <li>{@code comment.operation.errors} - failures per operation and exception;</li>
+ *     <li>{@code comment.result.size} - comments returned or removed by post-scoped operations, per post id
+ *     bucket.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class CommentMetrics {
+
+    public enum Operation {
+        CREATE("create", false),
+        GET("get", false),
+        THREAD("thread", true),
+        PAGE("page", true),
+        STREAM("stream", true),
+        CHANGES("changes", true),
+        LATEST("latest", false),
+        COUNTS("counts", false),
+        SEARCH("search", false),
+        UPDATE("update", false),
+        DELETE("delete", false),
+        DELETE_POST("deletePost", true),
+        BULK_CREATE("bulkCreate", false),
+        BULK_UPDATE("bulkUpdate", false),
+        BULK_DELETE("bulkDelete", false);
+
+        private final String tag;
+        private final boolean postScoped;
+
+        Operation(String tag, boolean postScoped) {
+            this.tag = tag;
+            this.postScoped = postScoped;
+        }
+    }
+
+    private enum Error {
+        NOT_FOUND(CommentNotFoundException.class.getSimpleName()),
+        INVALID(InvalidCommentDataException.class.getSimpleName()),
+        OTHER("Other");
+
+        private final String tag;
+
+        Error(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Duration MIN_LATENCY = Duration.ofMillis(1);
+    private static final Duration MIN_PHASE_LATENCY = Duration.ofNanos(100_000);
+    private static final Duration MAX_LATENCY = Duration.ofSeconds(30);
+    private static final double[] RESULT_SIZE_BUCKETS = {1, 10, 50, 100, 500, 1_000, 10_000, 100_000};
+
+    private final Timer[] operationTimers;
+    private final Timer[] databaseTimers;
+    private final Timer[] mappingTimers;
+    private final Counter[][] errorCounters;
+    private final DistributionSummary[][] resultSizes;
+    private final Timer serializationTimer;
+    private final int postBuckets;
+    private final long slowThresholdNanos;
+
+    public CommentMetrics(MeterRegistry registry, CommentMetricsProperties properties) {
+        this.postBuckets = Math.max(1, properties.getPostBuckets());
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+
+        Operation[] operations = Operation.values();
+        operationTimers = new Timer[operations.length];
+        databaseTimers = new Timer[operations.length];
+        mappingTimers = new Timer[operations.length];
+        errorCounters = new Counter[operations.length][];
+        resultSizes = new DistributionSummary[operations.length][];
+        for (Operation operation : operations) {
+            int i = operation.ordinal();
+            operationTimers[i] = Timer.builder("comment.operation")
+                    .description("Comment service operation latency")
+                    .tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_LATENCY)
+                    .maximumExpectedValue(MAX_LATENCY)
+                    .register(registry);
+            databaseTimers[i] = phaseTimer(registry, operation.tag, "db");
+            mappingTimers[i] = phaseTimer(registry, operation.tag, "mapping");
+
+            Error[] errors = Error.values();
+            errorCounters[i] = new Counter[errors.length];
+            for (Error error : errors) {
+                errorCounters[i][error.ordinal()] = Counter.builder("comment.operation.errors")
+                        .description("Failed comment service operations")
+                        .tag("operation", operation.tag)
+                        .tag("exception", error.tag)
+                        .register(registry);
+            }
+
+            if (operation.postScoped) {
+                resultSizes[i] = new DistributionSummary[postBuckets];
+                for (int bucket = 0; bucket < postBuckets; bucket++) {
+                    resultSizes[i][bucket] = DistributionSummary.builder("comment.result.size")
+                            .description("Comments returned or removed per post-scoped operation")
+                            .baseUnit("comments")
+                            .tag("operation", operation.tag)
+                            .tag("post.bucket", Integer.toString(bucket))
+                            .serviceLevelObjectives(RESULT_SIZE_BUCKETS)
+                            .register(registry);
+                }
+            }
+        }
+        serializationTimer = phaseTimer(registry, "response", "serialization");
+    }
+
+    /**
+     * Every phase gets the same histogram: Prometheus rejects a metric name whose series mix histograms and
+     * summaries.
+     */
+    private static Timer phaseTimer(MeterRegistry registry, String operation, String phase) {
+        return Timer.builder("comment.operation.phase")
+                .description("Time spent per phase of a comment service operation")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_PHASE_LATENCY)
+                .maximumExpectedValue(MAX_LATENCY)
+                .register(registry);
+    }
+
+    public void recordOperation(Operation operation, long startNanos) {
+        operationTimers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a post-scoped operation and logs it with its post id when it was slow, so the posts behind a
+     * bad latency bucket can be found.
+     */
+    public void recordOperation(Operation operation, long startNanos, Long postId) {
+        long elapsed = System.nanoTime() - startNanos;
+        operationTimers[operation.ordinal()].record(elapsed, TimeUnit.NANOSECONDS);
+        if (elapsed > slowThresholdNanos) {
+            log.warn("Slow {} for postId: {} took {} ms", operation.tag, postId, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    public void recordDatabase(Operation operation, long startNanos) {
+        databaseTimers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Database calls timed so far across all operations, and their total time; sampled for load shedding.
+     */
+    public DatabaseTime databaseTime() {
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : databaseTimers) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        return new DatabaseTime(count, totalNanos);
+    }
+
+    public record DatabaseTime(long count, double totalNanos) {
+    }
+
+    public void recordMapping(Operation operation, long startNanos) {
+        mappingTimers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSerialization(long startNanos) {
+        serializationTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordError(Operation operation, RuntimeException e) {
+        Error error;
+        if (e instanceof CommentNotFoundException) {
+            error = Error.NOT_FOUND;
+        } else if (e instanceof InvalidCommentDataException) {
+            error = Error.INVALID;
+        } else {
+            error = Error.OTHER;
+        }
+        errorCounters[operation.ordinal()][error.ordinal()].increment();
+    }
+
+    public void recordResultSize(Operation operation, Long postId, long size) {
+        DistributionSummary[] buckets = resultSizes[operation.ordinal()];
+        if (buckets == null) {
+            throw new IllegalArgumentException(operation + " is not post-scoped");
+        }
+        int bucket = postId == null ? 0 : (int) Math.floorMod(postId, (long) postBuckets);
+        buckets[bucket].record(size);
+    }
+}
@@ -0,0 +1,37 @@
+package com.mb.commentService.metrics;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * {@code application/cbor} counterpart of {@link TimedJackson2HttpMessageConverter}, on a mapper built from
+ * Spring Boot's Jackson settings. Replaces the converter Spring MVC registers by default.
+ */
+@Component
+public class TimedJackson2CborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+    private final CommentMetrics metrics;
+
+    public TimedJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder, CommentMetrics metrics) {
+        super(objectMapperBuilder.factory(new CBORFactory()).build());
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            metrics.recordSerialization(start);
+        }
+    }
+}
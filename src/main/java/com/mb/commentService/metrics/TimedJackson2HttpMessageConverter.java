@@ -0,0 +1,37 @@
+package com.mb.commentService.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Spring Boot's JSON converter, timed as the serialization phase of {@link CommentMetrics}. Replaces the
+ * auto-configured one, which backs off when a {@link MappingJackson2HttpMessageConverter} bean exists.
+ * Writes go to the response buffer, so the time includes flushing it whenever the buffer fills.
+ */
+@Component
+public class TimedJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final CommentMetrics metrics;
+
+    public TimedJackson2HttpMessageConverter(ObjectMapper objectMapper, CommentMetrics metrics) {
+        super(objectMapper);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            metrics.recordSerialization(start);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.mb.commentService.metrics;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * {@code application/x-jackson-smile} counterpart of {@link TimedJackson2HttpMessageConverter}, on a mapper built
+ * from Spring Boot's Jackson settings. Smile writes each field name once per response and refers back to it
+ * afterwards, which is where most of a comment list's bytes go in JSON.
+ */
+@Component
+public class TimedJackson2SmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+
+    private final CommentMetrics metrics;
+
+    public TimedJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder, CommentMetrics metrics) {
+        super(objectMapperBuilder.factory(new SmileFactory()).build());
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            metrics.recordSerialization(start);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mb.commentService.ratelimit;
+
+import com.mb.commentService.config.CommentRateLimitProperties;
+import com.mb.commentService.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The write rate limits of {@link CommentRateLimitProperties}. Clients are checked before a request is read,
+ * authors and posts once the comment is parsed. A bulk request costs its client a write per item and each
+ * item's author and post a comment. A no-op while rate limiting is disabled.
+ */
+@Component
+@Slf4j
+public class CommentRateLimiter {
+
+    private final boolean enabled;
+    private final RateLimiter<String> clients;
+    private final RateLimiter<String> emails;
+    private final RateLimiter<Long> posts;
+    private final Counter clientRejections;
+    private final Counter emailRejections;
+    private final Counter postRejections;
+
+    public CommentRateLimiter(CommentRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        int maxKeys = properties.getMaxTrackedKeys();
+        this.clients = new RateLimiter<>(properties.getClient(), maxKeys);
+        this.emails = new RateLimiter<>(properties.getEmail(), maxKeys);
+        this.posts = new RateLimiter<>(properties.getPost(), maxKeys);
+        this.clientRejections = rejections(meterRegistry, "client");
+        this.emailRejections = rejections(meterRegistry, "email");
+        this.postRejections = rejections(meterRegistry, "post");
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String limit) {
+        return Counter.builder("comment.rate-limit.rejected")
+                .description("Comment writes rejected by a rate limit")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+
+    public void checkClient(String address) {
+        checkClient(address, 1);
+    }
+
+    /**
+     * Charges a client {@code writes} writes at once, such as the items of a bulk request; nothing for none.
+     */
+    public void checkClient(String address, int writes) {
+        if (enabled && address != null) {
+            check(clients, address, writes, clientRejections, "Too many writes from this client");
+        }
+    }
+
+    /**
+     * Checks a new comment against its author's and its post's limits. Comments without either are left to
+     * validation.
+     */
+    public void checkCreate(String email, Long postId) {
+        if (!enabled) {
+            return;
+        }
+        if (email != null && !email.isBlank()) {
+            check(emails, email.trim().toLowerCase(Locale.ROOT), 1, emailRejections, "Too many comments from this author");
+        }
+        if (postId != null) {
+            check(posts, postId, 1, postRejections, "Too many comments on this post");
+        }
+    }
+
+    private static <K> void check(RateLimiter<K> limiter, K key, int permits, Counter rejections, String message) {
+        long waitNanos = limiter.tryAcquire(key, permits);
+        if (waitNanos > 0) {
+            rejections.increment();
+            log.debug("Rejected comment write: {}", message);
+            throw new RateLimitExceededException(message + ", retry later", Duration.ofNanos(waitNanos));
+        }
+    }
+}
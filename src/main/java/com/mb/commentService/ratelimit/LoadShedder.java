@@ -0,0 +1,133 @@
+package com.mb.commentService.ratelimit;
+
+import com.mb.commentService.config.CommentRateLimitProperties;
+import com.mb.commentService.metrics.CommentMetrics;
+import com.mb.commentService.metrics.CommentMetrics.DatabaseTime;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns away a growing share of comment writes while the database is overloaded, so it can recover instead of
+ * every request timing out on it. Each interval compares the average time per database call and the average
+ * wait for a pooled connection ({@code hikaricp.connections.acquire}) with their thresholds: an overloaded
+ * interval sheds {@code step} more of the writes, up to {@code max-ratio}, and a healthy one {@code step} less.
+ */
+@Component
+@ConditionalOnProperty(prefix = "comment.rate-limit", name = "enabled", havingValue = "true")
+@Slf4j
+public class LoadShedder {
+
+    private static final String POOL_ACQUIRE = "hikaricp.connections.acquire";
+
+    private final CommentRateLimitProperties.Shed properties;
+    private final CommentMetrics metrics;
+    private final MeterRegistry meterRegistry;
+
+    private volatile double shedRatio;
+    // Only the sampling thread touches these.
+    private long lastDbCount;
+    private double lastDbNanos;
+    private long lastPoolCount;
+    private double lastPoolNanos;
+
+    private ScheduledExecutorService scheduler;
+
+    public LoadShedder(CommentRateLimitProperties properties, CommentMetrics metrics, MeterRegistry meterRegistry) {
+        this.properties = properties.getShed();
+        this.metrics = metrics;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("comment.shed.ratio", this, LoadShedder::getShedRatio)
+                .description("Share of comment writes currently shed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-load-shedder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::sampleQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean shouldShed() {
+        double ratio = shedRatio;
+        return ratio > 0 && ThreadLocalRandom.current().nextDouble() < ratio;
+    }
+
+    public double getShedRatio() {
+        return shedRatio;
+    }
+
+    /**
+     * Whole seconds until the next adjustment, for the {@code Retry-After} header of shed requests.
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (properties.getInterval().toMillis() + 999) / 1000);
+    }
+
+    void sample() {
+        DatabaseTime db = metrics.databaseTime();
+        double dbLatency = average(db.totalNanos() - lastDbNanos, db.count() - lastDbCount);
+        lastDbCount = db.count();
+        lastDbNanos = db.totalNanos();
+
+        long poolCount = 0;
+        double poolNanos = 0;
+        for (Timer timer : meterRegistry.find(POOL_ACQUIRE).timers()) {
+            poolCount += timer.count();
+            poolNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        double poolWait = average(poolNanos - lastPoolNanos, poolCount - lastPoolCount);
+        lastPoolCount = poolCount;
+        lastPoolNanos = poolNanos;
+
+        boolean overloaded = dbLatency > properties.getDbLatencyThreshold().toNanos()
+                || poolWait > properties.getPoolWaitThreshold().toNanos();
+        double previous = shedRatio;
+        shedRatio = overloaded
+                ? Math.min(properties.getMaxRatio(), previous + properties.getStep())
+                : Math.max(0, previous - properties.getStep());
+        if (overloaded && previous == 0) {
+            log.warn("Database overloaded (avg call {} ms, avg pool wait {} ms), shedding comment writes",
+                    TimeUnit.NANOSECONDS.toMillis((long) dbLatency), TimeUnit.NANOSECONDS.toMillis((long) poolWait));
+        } else if (previous > 0 && shedRatio == 0) {
+            log.info("Database recovered, no longer shedding comment writes");
+        }
+    }
+
+    private static double average(double totalNanos, long count) {
+        return count > 0 ? totalNanos / count : 0;
+    }
+
+    private void sampleQuietly() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.error("Comment load shedding sample failed", e);
+        }
+    }
+}
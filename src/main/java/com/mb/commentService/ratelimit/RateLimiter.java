@@ -0,0 +1,94 @@
+package com.mb.commentService.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mb.commentService.config.CommentRateLimitProperties.Limit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per key, kept as the generic cell rate algorithm: each key holds only the time at which its
+ * bucket would be full again, advanced with a compare-and-set, so admitting a request takes no lock.
+ * <p>
+ * A bucket left alone long enough to refill is indistinguishable from a new one, so buckets expire after that;
+ * one owing more than a refill, after a charge beyond the burst, is kept until it has paid that off.
+ */
+public class RateLimiter<K> {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Cache<K, AtomicLong> buckets;
+
+    public RateLimiter(Limit limit, int maxKeys) {
+        this.intervalNanos = Math.max(1, limit.getPeriod().toNanos() / Math.max(1, limit.getPermits()));
+        this.toleranceNanos = intervalNanos * Math.max(1, limit.getBurst());
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new Expiry<K, AtomicLong>() {
+                    @Override
+                    public long expireAfterCreate(K key, AtomicLong full, long currentTime) {
+                        return toleranceNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(K key, AtomicLong full, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(K key, AtomicLong full, long currentTime, long currentDuration) {
+                        return Math.max(currentDuration, toleranceNanos);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Takes a token for {@code key}, if there is one.
+     *
+     * @return 0 when admitted, otherwise nanoseconds until the key has a token again
+     */
+    public long tryAcquire(K key) {
+        return tryAcquire(key, 1, System.nanoTime());
+    }
+
+    /**
+     * Takes {@code permits} tokens for {@code key} at once, if it has them. A charge larger than the burst is
+     * admitted only while the bucket is full, and leaves the key owing the excess: it gets no token until that
+     * has been paid off.
+     *
+     * @return 0 when admitted, otherwise nanoseconds until the key has the tokens again
+     */
+    public long tryAcquire(K key, int permits) {
+        return tryAcquire(key, permits, System.nanoTime());
+    }
+
+    long tryAcquire(K key, long nowNanos) {
+        return tryAcquire(key, 1, nowNanos);
+    }
+
+    long tryAcquire(K key, int permits, long nowNanos) {
+        if (permits <= 0) {
+            return 0;
+        }
+        AtomicLong full = buckets.get(key, k -> new AtomicLong(nowNanos));
+        while (true) {
+            long current = full.get();
+            long next = Math.max(current, nowNanos) + intervalNanos * permits;
+            // Within the burst the first term decides; beyond it, only a full bucket will do.
+            long allowedAt = Math.min(next - toleranceNanos, current);
+            if (allowedAt > nowNanos) {
+                return allowedAt - nowNanos;
+            }
+            if (full.compareAndSet(current, next)) {
+                if (next - nowNanos > toleranceNanos) {
+                    buckets.policy().expireVariably().ifPresent(
+                            expiry -> expiry.setExpiresAfter(key, Duration.ofNanos(next - nowNanos)));
+                }
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads spanning many posts in one statement, for callers that would otherwise issue one query per post.
+ */
+public interface CommentBatchReadRepository {
+
+    /**
+     * The newest {@code limitPerPost} comments of each given post, grouped by post and newest first within a
+     * post. Posts without comments contribute no rows.
+     */
+    List<CommentDto> findLatestByPostIds(Collection<Long> postIds, int limitPerPost);
+}
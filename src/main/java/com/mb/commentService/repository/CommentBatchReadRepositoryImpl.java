@@ -0,0 +1,53 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link CommentBatchReadRepository}.
+ */
+public class CommentBatchReadRepositoryImpl implements CommentBatchReadRepository {
+
+    /**
+     * One bounded index scan per post on {@code idx_comments_post_id_created_at_id}: the lateral subquery stops
+     * after {@code limit} rows however long the thread is, which a window function over all of a post's rows
+     * would not.
+     */
+    private static final String FIND_LATEST_BY_POST_IDS = """
+            SELECT c.id, c.name, c.email, c.comment, c.post_id, c.created_at, c.updated_at
+            FROM unnest(?) WITH ORDINALITY AS p(post_id, position)
+            CROSS JOIN LATERAL (
+                SELECT * FROM comments
+                WHERE comments.post_id = p.post_id
+                ORDER BY created_at DESC, id DESC
+                LIMIT ?
+            ) c
+            ORDER BY p.position, c.created_at DESC, c.id DESC
+            """;
+
+    private static final RowMapper<CommentDto> COMMENT_DTO_ROW_MAPPER = (rs, rowNum) -> new CommentDto(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getString("comment"),
+            rs.getLong("post_id"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<CommentDto> findLatestByPostIds(Collection<Long> postIds, int limitPerPost) {
+        return jdbcTemplate.query(FIND_LATEST_BY_POST_IDS, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", postIds.toArray()));
+            ps.setInt(2, limitPerPost);
+        }, COMMENT_DTO_ROW_MAPPER);
+    }
+}
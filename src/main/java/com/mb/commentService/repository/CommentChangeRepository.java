@@ -0,0 +1,101 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reads a post's change feed from {@code comments.change_txid} and {@code comment_tombstones}, both maintained
+ * by triggers (see migration V5).
+ */
+@Repository
+public class CommentChangeRepository {
+
+    /**
+     * A change of the feed: the comment's current state, or only its id if it was deleted.
+     */
+    public record Change(long txid, long commentId, CommentDto comment) {
+
+        public boolean isDeleted() {
+            return comment == null;
+        }
+    }
+
+    private static final String CURRENT_HORIZON = "SELECT txid_snapshot_xmin(txid_current_snapshot())";
+
+    /**
+     * Each branch is a bounded range scan on its {@code (post_id, change_txid, id)} index; the row comparison
+     * continues exactly after the cursor.
+     */
+    private static final String FIND_CHANGES = """
+            (SELECT change_txid, id, FALSE AS deleted, name, email, comment, post_id, created_at, updated_at
+             FROM comments
+             WHERE post_id = ? AND (change_txid, id) > (?, ?) AND change_txid < ?
+             ORDER BY change_txid, id
+             LIMIT ?)
+            UNION ALL
+            (SELECT change_txid, comment_id, TRUE, NULL, NULL, NULL, post_id, NULL, NULL
+             FROM comment_tombstones
+             WHERE post_id = ? AND (change_txid, comment_id) > (?, ?) AND change_txid < ?
+             ORDER BY change_txid, comment_id
+             LIMIT ?)
+            ORDER BY 1, 2
+            LIMIT ?
+            """;
+
+    private static final String PURGE_TOMBSTONES = """
+            DELETE FROM comment_tombstones WHERE ctid = ANY(ARRAY(
+                SELECT ctid FROM comment_tombstones WHERE deleted_at < ? LIMIT ?))
+            """;
+
+    private static final RowMapper<Change> CHANGE_ROW_MAPPER = (rs, rowNum) -> {
+        long txid = rs.getLong(1);
+        long id = rs.getLong(2);
+        if (rs.getBoolean(3)) {
+            return new Change(txid, id, null);
+        }
+        return new Change(txid, id, new CommentDto(
+                id,
+                rs.getString(4),
+                rs.getString(5),
+                rs.getString(6),
+                rs.getLong(7),
+                rs.getObject(8, LocalDateTime.class),
+                rs.getObject(9, LocalDateTime.class)));
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Oldest transaction id still running. Every change below it is committed or rolled back for good, so
+     * nothing can appear behind a cursor below it any more.
+     */
+    public long currentHorizon() {
+        return jdbcTemplate.queryForObject(CURRENT_HORIZON, Long.class);
+    }
+
+    /**
+     * Up to {@code limit} changes of a post after {@code (afterTxid, afterId)} and below {@code horizon}, in feed
+     * order.
+     */
+    public List<Change> findChanges(Long postId, long afterTxid, long afterId, long horizon, int limit) {
+        return jdbcTemplate.query(FIND_CHANGES, CHANGE_ROW_MAPPER,
+                postId, afterTxid, afterId, horizon, limit,
+                postId, afterTxid, afterId, horizon, limit,
+                limit);
+    }
+
+    /**
+     * Removes up to {@code limit} tombstones of deletes before {@code deletedBefore} and returns how many went.
+     */
+    public int purgeTombstones(LocalDateTime deletedBefore, int limit) {
+        return jdbcTemplate.update(PURGE_TOMBSTONES, Timestamp.valueOf(deletedBefore), limit);
+    }
+}
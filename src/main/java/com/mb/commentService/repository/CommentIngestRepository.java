@@ -0,0 +1,138 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Statements of the write-behind ingest path: reserving ids ahead of the insert, and applying logged comments
+ * in a way that can be repeated after a crash.
+ * <p>
+ * Inserts and post deletes meet on a transaction-level advisory lock keyed by post id: inserts share it, a post
+ * delete takes it exclusively while recording itself in {@code post_deletions} (V8). An insert therefore either
+ * commits before the delete is recorded, and its rows are removed by the delete that follows, or reads the
+ * record and leaves the post's older comments out.
+ */
+@Repository
+public class CommentIngestRepository {
+
+    private static final String ID_BLOCK_SIZE = """
+            SELECT increment_by FROM pg_sequences
+            WHERE schemaname = current_schema() AND sequencename = 'comments_seq'
+            """;
+
+    private static final String NEXT_ID_BLOCKS = "SELECT nextval('comments_seq') FROM generate_series(1, ?)";
+
+    private static final String SHARE_POST_LOCKS = """
+            SELECT pg_advisory_xact_lock_shared(post_id)
+            FROM (SELECT DISTINCT unnest(?::bigint[]) AS post_id ORDER BY 1) AS posts
+            """;
+
+    private static final String MARK_POST_DELETED = """
+            INSERT INTO post_deletions (post_id, deleted_at) VALUES (?, ?)
+            ON CONFLICT (post_id) DO UPDATE SET deleted_at = GREATEST(post_deletions.deleted_at, EXCLUDED.deleted_at)
+            """;
+
+    private static final String INSERT_DEAD_LETTER = """
+            INSERT INTO comment_ingest_dead_letters (id, post_id, name, email, comment, created_at, error)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    /**
+     * One statement per batch however many rows it carries. Rows already present are skipped, as are rows
+     * deleted since, which left a tombstone behind (V5), and rows of posts deleted after they were created
+     * (V8); replaying a log whose records were partly applied before a crash therefore neither fails nor brings
+     * deleted comments back. A logged id always comes with the same post id, so the primary key
+     * {@code (id, post_id)} (V7) identifies rows stored before.
+     */
+    private static final String INSERT_MISSING = """
+            INSERT INTO comments (id, name, email, comment, post_id, created_at, updated_at)
+            SELECT r.id, r.name, r.email, r.comment, r.post_id, r.created_at, r.updated_at
+            FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::text[], ?::bigint[], ?::timestamp[], ?::timestamp[])
+                AS r(id, name, email, comment, post_id, created_at, updated_at)
+            WHERE NOT EXISTS (SELECT 1 FROM comment_tombstones t WHERE t.comment_id = r.id)
+                AND NOT EXISTS (SELECT 1 FROM post_deletions d WHERE d.post_id = r.post_id AND d.deleted_at >= r.created_at)
+            ON CONFLICT (id, post_id) DO NOTHING
+            RETURNING id
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ids each {@link #nextIdBlocks} value stands for, the increment of {@code comments_seq}.
+     */
+    public int idBlockSize() {
+        return jdbcTemplate.queryForObject(ID_BLOCK_SIZE, Integer.class);
+    }
+
+    /**
+     * Draws {@code count} values from {@code comments_seq}. Like Hibernate's pooled optimizer, each value
+     * {@code v} reserves the ids {@code v - idBlockSize() + 1} through {@code v}.
+     */
+    public List<Long> nextIdBlocks(int count) {
+        return jdbcTemplate.queryForList(NEXT_ID_BLOCKS, Long.class, count);
+    }
+
+    /**
+     * Inserts the comments, ids included, that are neither stored nor deleted, and returns the ids inserted.
+     */
+    @Transactional
+    public List<Long> insertMissing(List<CommentDto> comments) {
+        int size = comments.size();
+        Long[] ids = new Long[size];
+        String[] names = new String[size];
+        String[] emails = new String[size];
+        String[] texts = new String[size];
+        Long[] postIds = new Long[size];
+        Timestamp[] createdAts = new Timestamp[size];
+        Timestamp[] updatedAts = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            CommentDto comment = comments.get(i);
+            ids[i] = comment.getId();
+            names[i] = comment.getName();
+            emails[i] = comment.getEmail();
+            texts[i] = comment.getComment();
+            postIds[i] = comment.getPostId();
+            createdAts[i] = Timestamp.valueOf(comment.getCreatedAt());
+            updatedAts[i] = Timestamp.valueOf(comment.getUpdatedAt());
+        }
+        // A statement of its own: the insert's snapshot must be taken after the locks are granted.
+        jdbcTemplate.query(SHARE_POST_LOCKS, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", postIds)),
+                rs -> { });
+        return jdbcTemplate.query(INSERT_MISSING, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", names));
+            ps.setArray(3, ps.getConnection().createArrayOf("varchar", emails));
+            ps.setArray(4, ps.getConnection().createArrayOf("text", texts));
+            ps.setArray(5, ps.getConnection().createArrayOf("bigint", postIds));
+            ps.setArray(6, ps.getConnection().createArrayOf("timestamp", createdAts));
+            ps.setArray(7, ps.getConnection().createArrayOf("timestamp", updatedAts));
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Records that the post's comments are being deleted as of {@code deletedAt}, so that no drainer inserts
+     * logged comments of the post created up to then. Waits for inserts of the post in progress to commit.
+     */
+    @Transactional
+    public void markPostDeleted(Long postId, LocalDateTime deletedAt) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> { }, postId);
+        jdbcTemplate.update(MARK_POST_DELETED, postId, Timestamp.valueOf(deletedAt));
+    }
+
+    /**
+     * Keeps a logged comment the database refused, with the reason; a comment kept before is left as it is.
+     */
+    public void deadLetter(CommentDto comment, String error) {
+        jdbcTemplate.update(INSERT_DEAD_LETTER, comment.getId(), comment.getPostId(), comment.getName(),
+                comment.getEmail(), comment.getComment(), Timestamp.valueOf(comment.getCreatedAt()), error);
+    }
+}
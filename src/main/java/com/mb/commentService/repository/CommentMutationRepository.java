@@ -0,0 +1,23 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.model.Comment;
+
+import java.util.Optional;
+
+/**
+ * Single-statement mutations that skip the read-before-write of the entity path; a missing comment is reported
+ * by the affected row count rather than a prior lookup.
+ */
+public interface CommentMutationRepository {
+
+    /**
+     * Rewrites a comment's editable columns and returns the stored row, or empty if no comment has this id. A
+     * comment already holding these values is left as it is.
+     */
+    Optional<Comment> updateContent(Long id, String name, String email, String comment);
+
+    /**
+     * Deletes a comment and returns the post it belonged to, or empty if no comment has this id.
+     */
+    Optional<Long> deleteReturningPostId(Long id);
+}
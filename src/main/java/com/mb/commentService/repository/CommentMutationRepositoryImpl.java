@@ -0,0 +1,62 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.model.Comment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC implementation of {@link CommentMutationRepository}. Runs on the same connection as the surrounding JPA
+ * transaction, if any; returned entities are detached.
+ */
+public class CommentMutationRepositoryImpl implements CommentMutationRepository {
+
+    // An edit that changes nothing writes no row version, so neither updated_at nor the change feed moves; the
+    // stored row comes back from the same statement instead.
+    private static final String UPDATE_CONTENT = """
+            WITH updated AS (
+                UPDATE comments SET name = ?, email = ?, comment = ?, updated_at = ?
+                WHERE id = ? AND (name, email, comment) IS DISTINCT FROM (?, ?, ?)
+                RETURNING id, name, email, comment, post_id, created_at, updated_at
+            )
+            SELECT * FROM updated
+            UNION ALL
+            SELECT id, name, email, comment, post_id, created_at, updated_at FROM comments
+            WHERE id = ? AND NOT EXISTS (SELECT 1 FROM updated)
+            """;
+
+    private static final String DELETE_RETURNING_POST_ID = "DELETE FROM comments WHERE id = ? RETURNING post_id";
+
+    private static final RowMapper<Comment> COMMENT_ROW_MAPPER = (rs, rowNum) -> new Comment(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getString("comment"),
+            rs.getLong("post_id"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<Comment> updateContent(Long id, String name, String email, String comment) {
+        // Same precision as Comment#onUpdate, so callers get back exactly what was stored.
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        List<Comment> rows = jdbcTemplate.query(UPDATE_CONTENT, COMMENT_ROW_MAPPER,
+                name, email, comment, updatedAt, id, name, email, comment, id);
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public Optional<Long> deleteReturningPostId(Long id) {
+        List<Long> rows = jdbcTemplate.queryForList(DELETE_RETURNING_POST_ID, Long.class, id);
+        return rows.stream().findFirst();
+    }
+}
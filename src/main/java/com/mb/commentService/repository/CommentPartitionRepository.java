@@ -0,0 +1,155 @@
+package com.mb.commentService.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lists, creates and archives the post id range partitions of {@code comments} (see migration V7).
+ */
+@Repository
+public class CommentPartitionRepository {
+
+    /**
+     * A range partition holding the comments of posts {@code fromPostId} (inclusive) to {@code toPostId}
+     * (exclusive); {@link Long#MIN_VALUE} stands for an open lower end.
+     */
+    public record Partition(String name, long fromPostId, long toPostId, boolean archived) {
+
+        public boolean contains(long postId) {
+            return fromPostId <= postId && postId < toPostId;
+        }
+    }
+
+    private static final String DEFAULT_PARTITION = "comments_default";
+
+    private static final Pattern RANGE_BOUND = Pattern.compile("FROM \\('?(MINVALUE|-?\\d+)'?\\) TO \\('?(MAXVALUE|-?\\d+)'?\\)");
+
+    private static final String FIND_PARTITIONS = """
+            SELECT c.relname, pg_get_expr(c.relpartbound, c.oid), a.partition_name IS NOT NULL
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            LEFT JOIN comment_archived_partitions a ON a.partition_name = c.relname
+            WHERE i.inhparent = 'comments'::regclass AND c.relname <> '""" + DEFAULT_PARTITION + "'";
+
+    private static final String MAX_POST_ID = "SELECT MAX(post_id) FROM comments";
+
+    private static final String DEFAULT_PARTITION_RANGES =
+            "SELECT DISTINCT post_id / ? * ? FROM " + DEFAULT_PARTITION;
+
+    private static final String PARTITION_EXISTS = "SELECT to_regclass(?) IS NOT NULL";
+
+    /**
+     * Moves the rows the new partition takes over out of the default partition; attaching fails while the default
+     * partition still holds any of them. Deleting from the partition directly leaves no tombstones: the
+     * statement trigger only fires for deletes through {@code comments}.
+     */
+    private static final String MOVE_FROM_DEFAULT = """
+            WITH moved AS (
+                DELETE FROM %s WHERE post_id >= ? AND post_id < ?
+                RETURNING id, name, email, comment, post_id, created_at, updated_at, change_txid)
+            INSERT INTO %s (id, name, email, comment, post_id, created_at, updated_at, change_txid)
+            SELECT * FROM moved
+            """;
+
+    private static final String FIND_INDEXES = """
+            SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+            WHERE i.indrelid = to_regclass(?)
+            """;
+
+    private static final String RECORD_ARCHIVED =
+            "INSERT INTO comment_archived_partitions (partition_name) VALUES (?) ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The range partitions, lowest post ids first; the default partition is left out.
+     */
+    public List<Partition> findPartitions() {
+        List<Partition> partitions = new ArrayList<>(jdbcTemplate.query(FIND_PARTITIONS, (rs, rowNum) -> {
+            Matcher bound = RANGE_BOUND.matcher(rs.getString(2));
+            if (!bound.find()) {
+                throw new IllegalStateException("Unexpected bound of partition " + rs.getString(1) + ": " + rs.getString(2));
+            }
+            return new Partition(rs.getString(1), parseBound(bound.group(1)), parseBound(bound.group(2)), rs.getBoolean(3));
+        }));
+        partitions.sort((a, b) -> Long.compare(a.fromPostId(), b.fromPostId()));
+        return partitions;
+    }
+
+    public Long findMaxPostId() {
+        return jdbcTemplate.queryForObject(MAX_POST_ID, Long.class);
+    }
+
+    /**
+     * Lower ends of the {@code width} aligned post id ranges the default partition holds comments of.
+     */
+    public List<Long> findDefaultPartitionRanges(long width) {
+        return jdbcTemplate.queryForList(DEFAULT_PARTITION_RANGES, Long.class, width, width);
+    }
+
+    /**
+     * Creates partition {@code name} for posts {@code fromPostId} to {@code toPostId}, taking over their comments
+     * from the default partition, and returns how many it took over, or -1 if the partition exists already.
+     * <p>
+     * The new table is filled while detached and then attached, which only needs a share update exclusive lock
+     * on {@code comments}, so reads and writes of other partitions carry on. Writes routed to the default
+     * partition wait until the partition is attached. Gives up after {@code lockTimeout} rather than queueing
+     * every other statement behind a lock it cannot get.
+     */
+    @Transactional
+    public int createPartition(String name, long fromPostId, long toPostId, Duration lockTimeout) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeout.toMillis());
+        // Serializes instances creating partitions at the same time and keeps new comments out of the default
+        // partition between moving its rows and attaching.
+        jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN EXCLUSIVE MODE");
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITION_EXISTS, Boolean.class, name))) {
+            return -1;
+        }
+        String table = quote(name);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE comments INCLUDING DEFAULTS INCLUDING GENERATED)");
+        int moved = jdbcTemplate.update(MOVE_FROM_DEFAULT.formatted(DEFAULT_PARTITION, table), fromPostId, toPostId);
+        jdbcTemplate.execute("ALTER TABLE comments ATTACH PARTITION " + table
+                + " FOR VALUES FROM (" + fromPostId + ") TO (" + toPostId + ")");
+        return moved;
+    }
+
+    /**
+     * Moves a partition that no longer changes much out of the hot set: optionally onto {@code tablespace},
+     * indexes included, then freezes it so anti-wraparound vacuums can skip it from then on.
+     * <p>
+     * Runs outside a transaction, as {@code VACUUM} has to. Moving to a tablespace rewrites the partition under an
+     * exclusive lock; reads of its posts wait for that.
+     */
+    public void archive(String name, String tablespace) {
+        String table = quote(name);
+        if (tablespace != null && !tablespace.isBlank()) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " SET TABLESPACE " + quote(tablespace));
+            for (String index : jdbcTemplate.queryForList(FIND_INDEXES, String.class, name)) {
+                jdbcTemplate.execute("ALTER INDEX " + quote(index) + " SET TABLESPACE " + quote(tablespace));
+            }
+        }
+        jdbcTemplate.execute("VACUUM (FREEZE, ANALYZE) " + table);
+        jdbcTemplate.update(RECORD_ARCHIVED, name);
+    }
+
+    private static long parseBound(String bound) {
+        return switch (bound) {
+            case "MINVALUE" -> Long.MIN_VALUE;
+            case "MAXVALUE" -> Long.MAX_VALUE;
+            default -> Long.parseLong(bound);
+        };
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
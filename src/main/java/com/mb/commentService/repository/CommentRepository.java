@@ -1,15 +1,85 @@
 package com.mb.commentService.repository;
 
+import com.mb.commentService.dto.CommentDto;
 import com.mb.commentService.model.Comment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Reads project straight into {@link CommentDto} with constructor expressions: rows never become managed
+ * entities, so there is no hydration, no dirty-checking snapshot and no second copy through a mapper.
+ */
 @Repository
-public interface CommentRepository extends JpaRepository<Comment, Long> {
-    
-    List<Comment> findByPostIdOrderByCreatedAtDesc(Long postId);
+public interface CommentRepository extends JpaRepository<Comment, Long>, CommentMutationRepository,
+        CommentBatchReadRepository, CommentSearchRepository {
+
+    String SELECT_DTO = "select new com.mb.commentService.dto.CommentDto("
+            + "c.id, c.name, c.email, c.comment, c.postId, c.createdAt, c.updatedAt) from Comment c";
+
+    @Query(SELECT_DTO + " where c.id = :id")
+    Optional<CommentDto> findDtoById(@Param("id") Long id);
+
+    @Query(SELECT_DTO + " where c.postId = :postId order by c.createdAt desc, c.id desc")
+    List<CommentDto> findThreadByPostId(@Param("postId") Long postId);
+
+    @Query(SELECT_DTO + " where c.postId = :postId order by c.createdAt desc, c.id desc")
+    List<CommentDto> findPageByPostId(@Param("postId") Long postId, Limit limit);
+
+    /**
+     * Keyset page after {@code (createdAt, id)}. The redundant {@code createdAt <= :createdAt} bound keeps the
+     * predicate a single range on the post index, so the planner walks it in order instead of sorting.
+     */
+    @Query(SELECT_DTO + " where c.postId = :postId and c.createdAt <= :createdAt"
+            + " and (c.createdAt < :createdAt or c.id < :id)"
+            + " order by c.createdAt desc, c.id desc")
+    List<CommentDto> findPageByPostIdAfter(@Param("postId") Long postId,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id,
+                                           Limit limit);
+
+    /**
+     * Streams a post's comments straight off the JDBC cursor. Must be consumed
+     * inside a transaction so the driver honours the fetch size instead of buffering the whole result.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_DTO + " where c.postId = :postId order by c.createdAt desc, c.id desc")
+    Stream<CommentDto> streamByPostId(@Param("postId") Long postId);
     
-    void deleteByPostId(Long postId);
+    @Query("select c.id, c.postId from Comment c where c.id in :ids")
+    List<Object[]> findPostIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes all of a post's comments with one set-based statement, without loading them.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Comment c where c.postId = :postId")
+    int deleteAllByPostId(@Param("postId") Long postId);
+
+    /**
+     * Removes up to {@code limit} of a post's comments in a transaction of its own, so that deleting a huge
+     * thread can be split into short statements that each hold their row locks only briefly. Rows are addressed
+     * by ctid so the delete itself is a TID scan rather than a join back to the table. A ctid is only unique within
+     * a partition, so the delete repeats the post id to stay in the post's partition.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from comments where post_id = :postId and ctid = any(array("
+            + "select ctid from comments where post_id = :postId limit :limit))",
+            nativeQuery = true)
+    int deleteChunkByPostId(@Param("postId") Long postId, @Param("limit") int limit);
 }
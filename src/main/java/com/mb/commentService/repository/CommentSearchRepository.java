@@ -0,0 +1,27 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.SearchCursor;
+
+import java.util.List;
+
+/**
+ * Full-text search over comment text, author name and email, backed by the {@code search_vector} GIN index.
+ */
+public interface CommentSearchRepository {
+
+    /**
+     * Comments matching a web-search style query ({@code "quoted phrases"}, {@code or}, {@code -excluded}),
+     * best ranked first, ties broken by newest id.
+     * <p>
+     * Only the newest {@code maxCandidates} matches are ranked, which keeps a query for a common word from ranking
+     * every row containing it; the results after {@code after} are drawn from the same candidates.
+     *
+     * @param postId restricts the search to one post, or {@code null} for all posts
+     * @param after  position of the last result of the previous page, or {@code null} for the first page
+     */
+    List<Hit> search(String query, Long postId, SearchCursor after, int limit, int maxCandidates);
+
+    record Hit(CommentDto comment, float rank) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.SearchCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link CommentSearchRepository}.
+ */
+public class CommentSearchRepositoryImpl implements CommentSearchRepository {
+
+    /**
+     * The candidates are the newest matches, so every page of a search ranks the same ones whatever order the
+     * rows lie in on disk. They are ordered by {@code id + 0} rather than {@code id} so that the planner cannot
+     * serve the order by walking the primary key backwards and filtering every row, which for a rare or unmatched
+     * term means reading the whole table: it has to take the matches off a bitmap scan of
+     * {@code idx_comments_search_vector} and keep the newest in a bounded top-N sort.
+     */
+    private static final String SEARCH = """
+            SELECT id, name, email, comment, post_id, created_at, updated_at, rank FROM (
+                SELECT id, name, email, comment, post_id, created_at, updated_at,
+                       ts_rank(search_vector, query) AS rank
+                FROM comments, websearch_to_tsquery('english', ?) AS query
+                WHERE search_vector @@ query%s
+                ORDER BY id + 0 DESC
+                LIMIT ?
+            ) matches%s
+            ORDER BY rank DESC, id DESC
+            LIMIT ?
+            """;
+    private static final String POST_FILTER = " AND post_id = ?";
+    private static final String AFTER_FILTER = " WHERE (rank, id) < (?, ?)";
+
+    private static final RowMapper<Hit> HIT_ROW_MAPPER = (rs, rowNum) -> new Hit(new CommentDto(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getString("comment"),
+            rs.getLong("post_id"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class)),
+            rs.getFloat("rank"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Hit> search(String query, Long postId, SearchCursor after, int limit, int maxCandidates) {
+        // One statement per combination of filters rather than "? IS NULL OR ...", so each keeps its own plan.
+        String sql = SEARCH.formatted(postId == null ? "" : POST_FILTER, after == null ? "" : AFTER_FILTER);
+        List<Object> args = new ArrayList<>(6);
+        args.add(query);
+        if (postId != null) {
+            args.add(postId);
+        }
+        args.add(maxCandidates);
+        if (after != null) {
+            args.add(after.getRank());
+            args.add(after.getId());
+        }
+        args.add(limit);
+        return jdbcTemplate.query(sql, HIT_ROW_MAPPER, args.toArray());
+    }
+}
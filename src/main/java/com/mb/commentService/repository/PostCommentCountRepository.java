@@ -0,0 +1,187 @@
+package com.mb.commentService.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The {@code post_comment_counts} table. Deltas are added with set-based statements, so several instances can
+ * flush concurrently without locking rows ahead; recounts replace a row with the real count.
+ * <p>
+ * A recount records when it was taken (V9). Deltas come with the time each write was seen, after its transaction
+ * committed, and only those seen later are added: the recount has counted the others already, whichever
+ * instance buffered them.
+ */
+@Repository
+public class PostCommentCountRepository {
+
+    private static final String FIND_COUNTS =
+            "SELECT post_id, comment_count FROM post_comment_counts WHERE post_id = ANY(?)";
+
+    private static final String FIND_COUNTED_AT =
+            "SELECT post_id, counted_at FROM post_comment_counts WHERE post_id = ANY(?)";
+
+    // Applies only where the count is still the one the deltas were filtered against.
+    private static final String ADD_DELTAS = """
+            UPDATE post_comment_counts p SET comment_count = GREATEST(p.comment_count + d.delta, 0)
+            FROM unnest(?::bigint[], ?::bigint[], ?::timestamp[]) AS d(post_id, delta, counted_at)
+            WHERE p.post_id = d.post_id AND p.counted_at IS NOT DISTINCT FROM d.counted_at
+            RETURNING p.post_id
+            """;
+
+    // A negative delta for a missing row means the table has drifted; it is clamped and left to reconciliation.
+    private static final String INSERT_DELTAS = """
+            INSERT INTO post_comment_counts (post_id, comment_count)
+            SELECT d.post_id, GREATEST(d.delta, 0) FROM unnest(?::bigint[], ?::bigint[]) AS d(post_id, delta)
+            ON CONFLICT (post_id) DO NOTHING
+            RETURNING post_id
+            """;
+
+    private static final String RECOUNT = """
+            INSERT INTO post_comment_counts (post_id, comment_count, counted_at)
+            SELECT p.post_id, (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.post_id), ?
+            FROM unnest(?) AS p(post_id)
+            ON CONFLICT (post_id)
+            DO UPDATE SET comment_count = EXCLUDED.comment_count, counted_at = EXCLUDED.counted_at
+            """;
+
+    private static final String CLAIM_RECONCILIATION = """
+            UPDATE post_comment_count_reconciliations SET reconciled_at = now()
+            WHERE id = 1 AND reconciled_at <= now() - ? * INTERVAL '1 millisecond'
+            """;
+
+    private static final String RECONCILE_COUNTED = """
+            INSERT INTO post_comment_counts (post_id, comment_count, counted_at)
+            SELECT post_id, COUNT(*), ? FROM comments GROUP BY post_id
+            ON CONFLICT (post_id)
+            DO UPDATE SET comment_count = EXCLUDED.comment_count, counted_at = EXCLUDED.counted_at
+            WHERE post_comment_counts.comment_count <> EXCLUDED.comment_count
+            """;
+
+    private static final String RECONCILE_EMPTIED = """
+            UPDATE post_comment_counts p SET comment_count = 0, counted_at = ?
+            WHERE p.comment_count <> 0 AND NOT EXISTS (SELECT 1 FROM comments c WHERE c.post_id = p.post_id)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stored counts of the given posts; posts without a row are left out.
+     */
+    public Map<Long, Long> findCounts(Collection<Long> postIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(FIND_COUNTS,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", postIds.toArray())),
+                rs -> {
+                    counts.put(rs.getLong("post_id"), rs.getLong("comment_count"));
+                });
+        return counts;
+    }
+
+    /**
+     * Adds each post's deltas, keyed by the time their writes were seen, except those seen before the post was
+     * last counted. A post recounted between reading that time and adding is read again.
+     */
+    @Transactional
+    public void addDeltas(Map<Long, ? extends NavigableMap<LocalDateTime, Long>> deltasBySeenAt) {
+        Set<Long> remaining = new TreeSet<>(deltasBySeenAt.keySet());
+        while (!remaining.isEmpty()) {
+            Map<Long, LocalDateTime> countedAt = findCountedAt(remaining);
+            List<Long> postIds = new ArrayList<>(remaining.size());
+            List<Long> deltas = new ArrayList<>(remaining.size());
+            List<Timestamp> expected = new ArrayList<>(remaining.size());
+            for (Long postId : remaining) {
+                LocalDateTime since = countedAt.get(postId);
+                NavigableMap<LocalDateTime, Long> bySeenAt = deltasBySeenAt.get(postId);
+                long delta = 0;
+                for (long seen : (since == null ? bySeenAt : bySeenAt.tailMap(since, false)).values()) {
+                    delta += seen;
+                }
+                if (delta != 0) {
+                    postIds.add(postId);
+                    deltas.add(delta);
+                    expected.add(since == null ? null : Timestamp.valueOf(since));
+                }
+            }
+            Set<Long> applied = new HashSet<>(jdbcTemplate.query(ADD_DELTAS, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint", postIds.toArray()));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", deltas.toArray()));
+                ps.setArray(3, ps.getConnection().createArrayOf("timestamp", expected.toArray(new Timestamp[0])));
+            }, (rs, rowNum) -> rs.getLong(1)));
+            List<Long> newPostIds = new ArrayList<>();
+            List<Long> newDeltas = new ArrayList<>();
+            for (int i = 0; i < postIds.size(); i++) {
+                if (!applied.contains(postIds.get(i)) && !countedAt.containsKey(postIds.get(i))) {
+                    newPostIds.add(postIds.get(i));
+                    newDeltas.add(deltas.get(i));
+                }
+            }
+            if (!newPostIds.isEmpty()) {
+                applied.addAll(jdbcTemplate.query(INSERT_DELTAS, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", newPostIds.toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", newDeltas.toArray()));
+                }, (rs, rowNum) -> rs.getLong(1)));
+            }
+            remaining = new TreeSet<>(postIds);
+            remaining.removeAll(applied);
+        }
+    }
+
+    /**
+     * Replaces the stored counts of the given posts with their current number of comments.
+     */
+    public void recount(Collection<Long> postIds) {
+        jdbcTemplate.update(RECOUNT, ps -> {
+            ps.setTimestamp(1, now());
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", postIds.toArray()));
+        });
+    }
+
+    /**
+     * Recomputes every stored count from the comments table with one aggregate over the post index and returns
+     * the number of rows that were wrong; empty when some instance already did so within {@code interval}.
+     */
+    @Transactional
+    public OptionalInt reconcileAll(Duration interval) {
+        // The claimed row stays locked until commit: a concurrent claim waits, then finds it taken.
+        if (jdbcTemplate.update(CLAIM_RECONCILIATION, interval.toMillis()) == 0) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(jdbcTemplate.update(RECONCILE_COUNTED, now())
+                + jdbcTemplate.update(RECONCILE_EMPTIED, now()));
+    }
+
+    private Map<Long, LocalDateTime> findCountedAt(Collection<Long> postIds) {
+        Map<Long, LocalDateTime> countedAt = new HashMap<>();
+        jdbcTemplate.query(FIND_COUNTED_AT,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", postIds.toArray())),
+                rs -> {
+                    countedAt.put(rs.getLong("post_id"), rs.getObject("counted_at", LocalDateTime.class));
+                });
+        return countedAt;
+    }
+
+    /**
+     * Taken just before a counting statement starts, so every write seen up to then is part of its snapshot.
+     */
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    }
+}
@@ -0,0 +1,261 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.config.CommentReactiveProperties;
+import com.mb.commentService.dto.CommentDto;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link CommentRepository} on the R2DBC PostgreSQL driver, for the reactive API.
+ * Same table, same statements; rows map straight to {@link CommentDto}s.
+ * <p>
+ * The connection factory is deliberately not a bean: Spring Boot would otherwise add an R2DBC transaction
+ * manager next to the JPA one and every unqualified {@code @Transactional} would become ambiguous.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "comment.reactive", name = "enabled", havingValue = "true")
+public class ReactiveCommentRepository {
+
+    private static final String COLUMNS = "id, name, email, comment, post_id, created_at, updated_at";
+
+    private static final String INSERT = """
+            INSERT INTO comments (id, name, email, comment, post_id, created_at, updated_at)
+            VALUES (:id, :name, :email, :comment, :postId, :createdAt, :createdAt)
+            RETURNING\s""" + COLUMNS;
+
+    private static final String NEXT_ID_BLOCK = """
+            SELECT nextval('comments_seq') AS last_id, increment_by AS block_size FROM pg_sequences
+            WHERE schemaname = current_schema() AND sequencename = 'comments_seq'
+            """;
+
+    private static final String FIND_BY_ID = "SELECT " + COLUMNS + " FROM comments WHERE id = :id";
+
+    private static final String FIND_THREAD = "SELECT " + COLUMNS
+            + " FROM comments WHERE post_id = :postId ORDER BY created_at DESC, id DESC";
+
+    // As in CommentMutationRepositoryImpl, an edit that changes nothing leaves the row as it is.
+    private static final String UPDATE_CONTENT = """
+            WITH updated AS (
+                UPDATE comments SET name = :name, email = :email, comment = :comment, updated_at = :updatedAt
+                WHERE id = :id AND (name, email, comment) IS DISTINCT FROM (:name, :email, :comment)
+                RETURNING id, name, email, comment, post_id, created_at, updated_at
+            )
+            SELECT * FROM updated
+            UNION ALL
+            SELECT id, name, email, comment, post_id, created_at, updated_at FROM comments
+            WHERE id = :id AND NOT EXISTS (SELECT 1 FROM updated)
+            """;
+
+    private static final String DELETE_RETURNING_POST_ID = "DELETE FROM comments WHERE id = :id RETURNING post_id";
+
+    private static final String DELETE_ALL_BY_POST_ID = "DELETE FROM comments WHERE post_id = :postId";
+
+    private static final String DELETE_CHUNK_BY_POST_ID = """
+            DELETE FROM comments WHERE post_id = :postId AND ctid = ANY(ARRAY(
+                SELECT ctid FROM comments WHERE post_id = :postId LIMIT :limit))
+            """;
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+    // Guarded by this. Each block is the highest id of a range of idBlockSize ids, as in CommentIdReserve.
+    private final Deque<Long> idBlocks = new ArrayDeque<>();
+    private long idBlockSize;
+    private long nextId = 1;
+    private long lastId = 0;
+
+    @Autowired
+    public ReactiveCommentRepository(CommentReactiveProperties properties, DataSourceProperties dataSourceProperties) {
+        this(createPool(properties, dataSourceProperties), properties.getFetchSize());
+    }
+
+    public ReactiveCommentRepository(ConnectionFactory connectionFactory, int fetchSize) {
+        this.connectionFactory = connectionFactory;
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.fetchSize = fetchSize;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionFactory instanceof Disposable pool) {
+            pool.dispose();
+        }
+    }
+
+    /**
+     * Inserts under an id of the block last drawn from {@code comments_seq}, so only one insert in
+     * {@code increment_by} pays for a {@code nextval}, as with Hibernate's pooled optimizer on the blocking path.
+     * Ids drawn but unused when the application stops leave gaps there too.
+     */
+    public Mono<CommentDto> insert(String name, String email, String comment, Long postId) {
+        // Same precision as Comment#onCreate, so callers get back exactly what was stored.
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        return nextId().flatMap(id -> databaseClient.sql(INSERT)
+                .bind("id", id)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("comment", comment)
+                .bind("postId", postId)
+                .bind("createdAt", createdAt)
+                .map(ReactiveCommentRepository::toDto)
+                .one());
+    }
+
+    private Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            Long id = takeId();
+            if (id != null) {
+                return Mono.just(id);
+            }
+            // Callers that find the block used up at the same time each draw one; the others are kept for later.
+            return databaseClient.sql(NEXT_ID_BLOCK)
+                    .map(row -> takeId(row.get("last_id", Long.class), row.get("block_size", Long.class)))
+                    .one();
+        });
+    }
+
+    private synchronized Long takeId() {
+        if (nextId > lastId) {
+            Long block = idBlocks.poll();
+            if (block == null) {
+                return null;
+            }
+            lastId = block;
+            nextId = Math.max(1, block - idBlockSize + 1);
+        }
+        return nextId++;
+    }
+
+    private synchronized Long takeId(long block, long blockSize) {
+        idBlockSize = blockSize;
+        idBlocks.add(block);
+        return takeId();
+    }
+
+    public Mono<CommentDto> findById(Long id) {
+        return databaseClient.sql(FIND_BY_ID)
+                .bind("id", id)
+                .map(ReactiveCommentRepository::toDto)
+                .one();
+    }
+
+    /**
+     * Streams a post's thread newest first. The driver reads it through a portal {@code fetch-size} rows at a
+     * time and only asks for more as downstream demand arrives, so a slow client holds back the query instead
+     * of the rows piling up in memory.
+     */
+    public Flux<CommentDto> findThreadByPostId(Long postId) {
+        return databaseClient.sql(FIND_THREAD)
+                .bind("postId", postId)
+                .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)))
+                .map(ReactiveCommentRepository::toDto)
+                .all();
+    }
+
+    public Mono<CommentDto> updateContent(Long id, String name, String email, String comment) {
+        LocalDateTime updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        return databaseClient.sql(UPDATE_CONTENT)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("comment", comment)
+                .bind("updatedAt", updatedAt)
+                .bind("id", id)
+                .map(ReactiveCommentRepository::toDto)
+                .one();
+    }
+
+    public Mono<Long> deleteReturningPostId(Long id) {
+        return databaseClient.sql(DELETE_RETURNING_POST_ID)
+                .bind("id", id)
+                .map(row -> row.get("post_id", Long.class))
+                .one();
+    }
+
+    public Mono<Long> deleteAllByPostId(Long postId) {
+        return databaseClient.sql(DELETE_ALL_BY_POST_ID)
+                .bind("postId", postId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Same ctid-addressed chunk as {@link CommentRepository#deleteChunkByPostId}, auto-committed on its own.
+     */
+    public Mono<Long> deleteChunkByPostId(Long postId, int limit) {
+        return databaseClient.sql(DELETE_CHUNK_BY_POST_ID)
+                .bind("postId", postId)
+                .bind("limit", limit)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static CommentDto toDto(Readable row) {
+        return new CommentDto(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("comment", String.class),
+                row.get("post_id", Long.class),
+                row.get("created_at", LocalDateTime.class),
+                row.get("updated_at", LocalDateTime.class)
+        );
+    }
+
+    /**
+     * {@code jdbc:postgresql://host/db?...} to {@code r2dbc:postgresql://host/db?...}. R2DBC refuses credentials
+     * in the query string, so those are dropped in favour of {@code spring.datasource.username/password}.
+     */
+    static String toR2dbcUrl(String jdbcUrl) {
+        String url = "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return url;
+        }
+        String parameters = Arrays.stream(url.substring(query + 1).split("&"))
+                .filter(parameter -> !parameter.startsWith("user=") && !parameter.startsWith("password="))
+                .collect(Collectors.joining("&"));
+        return parameters.isEmpty() ? url.substring(0, query) : url.substring(0, query + 1) + parameters;
+    }
+
+    private static ConnectionFactory createPool(CommentReactiveProperties properties,
+                                                DataSourceProperties dataSourceProperties) {
+        String url = properties.getUrl();
+        if (!StringUtils.hasText(url)) {
+            url = toR2dbcUrl(dataSourceProperties.determineUrl());
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        String username = dataSourceProperties.determineUsername();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        String password = dataSourceProperties.determinePassword();
+        if (StringUtils.hasText(password)) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .maxSize(properties.getPoolMaxSize())
+                .build());
+    }
+}
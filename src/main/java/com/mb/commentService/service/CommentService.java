@@ -1,9 +1,14 @@
 package com.mb.commentService.service;
 
 
+import com.mb.commentService.dto.BulkItemResultDto;
+import com.mb.commentService.dto.CommentChangesDto;
 import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface CommentService {
     
@@ -13,9 +18,27 @@ public interface CommentService {
     
     List<CommentDto> getCommentsByPostId(Long postId);
 
-    void deleteCommentsByPostId(Long postId);
+    CommentPageDto getCommentsPageByPostId(Long postId, String after, Integer limit);
+
+    void streamCommentsByPostId(Long postId, Consumer<CommentDto> consumer);
+
+    CommentChangesDto getCommentChanges(Long postId, String since, Integer limit);
+
+    Map<Long, CommentPageDto> getLatestCommentsByPostIds(List<Long> postIds, Integer limit);
+
+    Map<Long, Long> getCommentCounts(List<Long> postIds);
+
+    CommentPageDto searchComments(String query, Long postId, String after, Integer limit);
+
+    long deleteCommentsByPostId(Long postId);
     
     CommentDto updateComment(Long id, CommentDto commentDto);
     
     void deleteComment(Long id);
+
+    List<BulkItemResultDto> createComments(List<CommentDto> commentDtos);
+
+    List<BulkItemResultDto> updateComments(List<CommentDto> commentDtos);
+
+    List<BulkItemResultDto> deleteComments(List<Long> ids);
 }
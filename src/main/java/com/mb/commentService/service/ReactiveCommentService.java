@@ -0,0 +1,24 @@
+package com.mb.commentService.service;
+
+import com.mb.commentService.dto.CommentDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of {@link CommentService}: same operations, validation rules and errors, delivered as
+ * signals instead of return values.
+ */
+public interface ReactiveCommentService {
+
+    Mono<CommentDto> createComment(CommentDto commentDto);
+
+    Mono<CommentDto> getCommentById(Long id);
+
+    Flux<CommentDto> getCommentsByPostId(Long postId);
+
+    Mono<Long> deleteCommentsByPostId(Long postId);
+
+    Mono<CommentDto> updateComment(Long id, CommentDto commentDto);
+
+    Mono<Void> deleteComment(Long id);
+}
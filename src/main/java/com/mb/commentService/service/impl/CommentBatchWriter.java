@@ -0,0 +1,71 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one chunk of a bulk request per transaction. Every method flushes the chunk as JDBC batches and clears the
+ * persistence context afterwards, so a long import does not accumulate managed entities (open-in-view shares one
+ * context across the whole request).
+ */
+@Component
+public class CommentBatchWriter {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public List<Comment> insertAll(List<Comment> comments) {
+        List<Comment> saved = commentRepository.saveAll(comments);
+        entityManager.flush();
+        entityManager.clear();
+        return saved;
+    }
+
+    /**
+     * Applies the changes to the comments that exist and returns them keyed by id; missing ids are absent.
+     */
+    @Transactional
+    public Map<Long, Comment> updateAll(Map<Long, CommentDto> changes) {
+        Map<Long, Comment> updated = new HashMap<>();
+        for (Comment comment : commentRepository.findAllById(changes.keySet())) {
+            CommentDto change = changes.get(comment.getId());
+            comment.setName(change.getName());
+            comment.setEmail(change.getEmail());
+            comment.setComment(change.getComment());
+            updated.put(comment.getId(), comment);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return updated;
+    }
+
+    /**
+     * Deletes the comments that exist with a single statement and returns their post ids keyed by comment id.
+     */
+    @Transactional
+    public Map<Long, Long> deleteAll(List<Long> ids) {
+        Map<Long, Long> postIds = new HashMap<>();
+        for (Object[] row : commentRepository.findPostIdsByIdIn(ids)) {
+            postIds.put((Long) row[0], (Long) row[1]);
+        }
+        if (!postIds.isEmpty()) {
+            commentRepository.deleteAllByIdInBatch(new ArrayList<>(postIds.keySet()));
+        }
+        return postIds;
+    }
+}
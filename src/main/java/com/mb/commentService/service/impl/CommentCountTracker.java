@@ -0,0 +1,195 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentCountProperties;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.repository.PostCommentCountRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code post_comment_counts} in step with the comments table.
+ * <p>
+ * Creates and deletes only add to a per-post delta in memory; every {@code flush-interval} the deltas are
+ * written with one batched upsert, so a burst of comments on a hot post costs one row update instead of one
+ * per comment, and writers never contend on the counter row. Deleting a whole post schedules a recount of that
+ * post instead, since the number of rows removed is no delta of anything buffered here. Counts served by this
+ * instance include its own unflushed deltas; other instances see them after the next flush.
+ * <p>
+ * Each delta is kept under the time its write was seen, after the write committed, so that a recount or
+ * reconciliation taken meanwhile on any instance, which counted the write already, is not added to again (see
+ * {@link PostCommentCountRepository#addDeltas}). Deltas buffered when the process dies and writes made by
+ * anything other than this service are corrected by the periodic reconciliation against the comments table,
+ * which one instance per {@code reconcile-interval} runs.
+ */
+@Component
+@Slf4j
+public class CommentCountTracker {
+
+    private final PostCommentCountRepository countRepository;
+    private final CommentCountProperties properties;
+    // Each post's deltas by the time they were seen, only ever touched inside the map's per-key operations.
+    private final Map<Long, NavigableMap<LocalDateTime, Long>> pendingDeltas = new ConcurrentHashMap<>();
+    private final Set<Long> pendingRecounts = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    public CommentCountTracker(PostCommentCountRepository countRepository, CommentCountProperties properties) {
+        this.countRepository = countRepository;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-count-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushMillis = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        long reconcileMillis = properties.getReconcileInterval().toMillis();
+        if (reconcileMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileMillis, reconcileMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            flushQuietly();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentEvent(CommentEvent event) {
+        switch (event.getType()) {
+            case CREATED -> addDelta(event.getPostId(), 1L);
+            case DELETED -> addDelta(event.getPostId(), -1L);
+            case POST_DELETED -> {
+                pendingRecounts.add(event.getPostId());
+                pendingDeltas.remove(event.getPostId());
+            }
+            case UPDATED -> {
+            }
+        }
+    }
+
+    /**
+     * Comment counts of the given posts in request order, 0 for posts without comments.
+     */
+    public Map<Long, Long> getCounts(Collection<Long> postIds) {
+        Map<Long, Long> stored = countRepository.findCounts(postIds);
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        for (Long postId : postIds) {
+            // A post waiting for its recount was emptied; only comments written since then are left.
+            long base = pendingRecounts.contains(postId) ? 0 : stored.getOrDefault(postId, 0L);
+            counts.put(postId, Math.max(0, base + pendingDelta(postId)));
+        }
+        return counts;
+    }
+
+    /**
+     * Writes all buffered deltas and pending recounts. Called from the tracker thread, and on shutdown.
+     */
+    public void flush() {
+        // Deltas first: a recount then replaces them along with the rest of the stored count.
+        if (!pendingDeltas.isEmpty()) {
+            Map<Long, NavigableMap<LocalDateTime, Long>> deltas = new HashMap<>();
+            for (Long postId : pendingDeltas.keySet()) {
+                NavigableMap<LocalDateTime, Long> bySeenAt = pendingDeltas.remove(postId);
+                if (bySeenAt != null) {
+                    deltas.put(postId, bySeenAt);
+                }
+            }
+            try {
+                countRepository.addDeltas(deltas);
+            } catch (RuntimeException e) {
+                // Put them back for the next attempt.
+                deltas.forEach(this::restore);
+                throw e;
+            }
+        }
+        if (!pendingRecounts.isEmpty()) {
+            List<Long> recounts = List.copyOf(pendingRecounts);
+            countRepository.recount(recounts);
+            pendingRecounts.removeAll(recounts);
+        }
+    }
+
+    /**
+     * Flushes this instance's deltas, then recomputes every count unless another instance did within the
+     * reconcile interval.
+     */
+    public void reconcile() {
+        flush();
+        OptionalInt corrected = countRepository.reconcileAll(properties.getReconcileInterval());
+        if (corrected.isEmpty()) {
+            log.debug("Comment counts were reconciled by another instance");
+        } else if (corrected.getAsInt() > 0) {
+            log.info("Comment count reconciliation corrected {} posts", corrected.getAsInt());
+        }
+    }
+
+    private void addDelta(Long postId, long delta) {
+        // Seen after the write committed: a count taken earlier cannot include it, one taken later does.
+        LocalDateTime seenAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        pendingDeltas.compute(postId, (id, deltas) -> {
+            NavigableMap<LocalDateTime, Long> bySeenAt = deltas == null ? new TreeMap<>() : deltas;
+            bySeenAt.merge(seenAt, delta, Long::sum);
+            return bySeenAt;
+        });
+    }
+
+    private long pendingDelta(Long postId) {
+        long[] total = new long[1];
+        pendingDeltas.computeIfPresent(postId, (id, deltas) -> {
+            deltas.values().forEach(delta -> total[0] += delta);
+            return deltas;
+        });
+        return total[0];
+    }
+
+    private void restore(Long postId, NavigableMap<LocalDateTime, Long> bySeenAt) {
+        pendingDeltas.compute(postId, (id, deltas) -> {
+            NavigableMap<LocalDateTime, Long> merged = deltas == null ? new TreeMap<>() : deltas;
+            bySeenAt.forEach((seenAt, delta) -> merged.merge(seenAt, delta, Long::sum));
+            return merged;
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Comment count flush failed", e);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Comment count reconciliation failed", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.model.Comment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between {@link Comment} entities and {@link CommentDto}s for the write paths; reads project
+ * straight into DTOs in the repository.
+ */
+public final class CommentMapper {
+
+    private CommentMapper() {
+    }
+
+    public static CommentDto toDto(Comment comment) {
+        return new CommentDto(
+                comment.getId(),
+                comment.getName(),
+                comment.getEmail(),
+                comment.getComment(),
+                comment.getPostId(),
+                comment.getCreatedAt(),
+                comment.getUpdatedAt()
+        );
+    }
+
+    public static List<CommentDto> toDtos(List<Comment> comments) {
+        List<CommentDto> dtos = new ArrayList<>(comments.size());
+        for (Comment comment : comments) {
+            dtos.add(toDto(comment));
+        }
+        return dtos;
+    }
+
+    public static Comment toNewEntity(CommentDto commentDto) {
+        Comment comment = new Comment();
+        comment.setName(commentDto.getName());
+        comment.setEmail(commentDto.getEmail());
+        comment.setComment(commentDto.getComment());
+        comment.setPostId(commentDto.getPostId());
+        return comment;
+    }
+}
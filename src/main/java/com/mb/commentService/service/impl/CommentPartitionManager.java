@@ -0,0 +1,125 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentPartitionProperties;
+import com.mb.commentService.repository.CommentPartitionRepository;
+import com.mb.commentService.repository.CommentPartitionRepository.Partition;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the post id range partitions of {@code comments} ahead of new posts and archives the ones of old posts.
+ * <p>
+ * Partitions cover {@code posts-per-partition} aligned post ids. Each run creates the partition of the newest
+ * post and {@code partitions-ahead} after it if they are missing, plus one for every range the default partition
+ * has caught comments of. Partitions older than the {@code hot-partitions} newest with comments are archived
+ * once: moved to the archive tablespace if one is set, and frozen. Archived partitions stay attached, so their
+ * comments are still served.
+ */
+@Component
+@Slf4j
+public class CommentPartitionManager {
+
+    private final CommentPartitionRepository partitionRepository;
+    private final CommentPartitionProperties properties;
+
+    private ScheduledExecutorService scheduler;
+
+    public CommentPartitionManager(CommentPartitionRepository partitionRepository, CommentPartitionProperties properties) {
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-partition-manager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getMaintenanceInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void maintain() {
+        Long maxPostId = partitionRepository.findMaxPostId();
+        createPartitions(maxPostId == null ? 0 : maxPostId);
+        if (maxPostId != null) {
+            archiveColdPartitions(maxPostId);
+        }
+    }
+
+    private void createPartitions(long maxPostId) {
+        long width = properties.getPostsPerPartition();
+        TreeSet<Long> lowerBounds = new TreeSet<>(partitionRepository.findDefaultPartitionRanges(width));
+        long newest = Math.floorDiv(maxPostId, width) * width;
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++) {
+            lowerBounds.add(newest + i * width);
+        }
+        List<Partition> partitions = partitionRepository.findPartitions();
+        for (long lowerBound : lowerBounds) {
+            long from = lowerBound;
+            long to = lowerBound + width;
+            // Only the part of the range no partition covers yet, in case the width was changed.
+            for (Partition partition : partitions) {
+                if (partition.contains(from)) {
+                    from = partition.toPostId();
+                } else if (partition.fromPostId() > from && partition.fromPostId() < to) {
+                    to = partition.fromPostId();
+                }
+            }
+            if (from >= to) {
+                continue;
+            }
+            int moved = partitionRepository.createPartition("comments_p" + from, from, to, properties.getLockTimeout());
+            if (moved >= 0) {
+                log.info("Created comment partition for posts {} to {}, took over {} comments from the default partition",
+                        from, to - 1, moved);
+            }
+        }
+    }
+
+    private void archiveColdPartitions(long maxPostId) {
+        List<Partition> partitions = partitionRepository.findPartitions();
+        int newest = -1;
+        for (int i = 0; i < partitions.size(); i++) {
+            if (partitions.get(i).fromPostId() <= maxPostId) {
+                newest = i;
+            }
+        }
+        for (int i = 0; i <= newest - properties.getHotPartitions(); i++) {
+            Partition partition = partitions.get(i);
+            if (!partition.archived()) {
+                long start = System.nanoTime();
+                partitionRepository.archive(partition.name(), properties.getArchiveTablespace());
+                log.info("Archived comment partition {} in {} ms", partition.name(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Comment partition maintenance failed", e);
+        }
+    }
+}
@@ -1,145 +1,820 @@
 package com.mb.commentService.service.impl;
 
+import com.mb.commentService.cache.CommentCache;
+import com.mb.commentService.config.CommentChangeProperties;
+import com.mb.commentService.config.CommentCountProperties;
+import com.mb.commentService.config.CommentSearchProperties;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.datasource.ReplicaReads;
+import com.mb.commentService.dto.BulkItemResultDto;
+import com.mb.commentService.dto.ChangeCursor;
+import com.mb.commentService.dto.CommentChangesDto;
+import com.mb.commentService.dto.CommentCursor;
 import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import com.mb.commentService.dto.SearchCursor;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.ChangeCursorExpiredException;
 import com.mb.commentService.exception.CommentNotFoundException;
 import com.mb.commentService.exception.InvalidCommentDataException;
+import com.mb.commentService.ingest.WriteBehindCommentWriter;
+import com.mb.commentService.metrics.CommentMetrics;
+import com.mb.commentService.metrics.CommentMetrics.Operation;
 import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentChangeRepository;
 import com.mb.commentService.repository.CommentRepository;
+import com.mb.commentService.repository.CommentSearchRepository.Hit;
 import com.mb.commentService.service.CommentService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class CommentServiceImpl implements CommentService {
 
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int DEFAULT_LATEST_PER_POST = 3;
+    static final int MAX_LATEST_PER_POST = 20;
+    static final int MAX_LATEST_POSTS = 100;
+    private static final Comparator<CommentDto> THREAD_ORDER =
+            Comparator.comparing(CommentDto::getCreatedAt).thenComparing(CommentDto::getId).reversed();
+
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private CommentCache commentCache;
+
+    @Autowired
+    private GroupCommitCommentWriter groupCommitWriter;
+
+    @Autowired
+    private CommentBatchWriter batchWriter;
+
+    @Autowired
+    private WriteBehindCommentWriter writeBehindWriter;
+
+    @Autowired
+    private CommentWriteProperties writeProperties;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CommentMetrics metrics;
+
+    @Autowired
+    private CommentCountTracker countTracker;
+
+    @Autowired
+    private CommentCountProperties countProperties;
+
+    @Autowired
+    private CommentChangeRepository changeRepository;
+
+    @Autowired
+    private CommentChangeProperties changeProperties;
+
+    @Autowired
+    private CommentSearchProperties searchProperties;
+
+    @Autowired
+    private ReplicaReads replicaReads;
+
     @Override
     public CommentDto createComment(CommentDto commentDto) {
-        log.info("Creating comment for postId: {}", commentDto.getPostId());
+        long start = System.nanoTime();
+        try {
+            log.debug("Creating comment for postId: {}", commentDto.getPostId());
 
-        if (commentDto.getName() == null || commentDto.getName().trim().isEmpty()) {
-            log.error("Invalid comment data: Name is missing");
-            throw new InvalidCommentDataException("Name is required");
+            CommentValidator.validateForCreate(commentDto);
+
+            long phase = System.nanoTime();
+            Comment comment = CommentMapper.toNewEntity(commentDto);
+            metrics.recordMapping(Operation.CREATE, phase);
+
+            if (writeBehindWriter.isEnabled()) {
+                phase = System.nanoTime();
+                Optional<CommentDto> logged = writeBehindWriter.append(comment);
+                if (logged.isPresent()) {
+                    metrics.recordDatabase(Operation.CREATE, phase);
+                    // Its created event follows once the drainer has inserted it.
+                    log.debug("Logged comment with id: {}", logged.get().getId());
+                    return logged.get();
+                }
+            }
+
+            phase = System.nanoTime();
+            Comment savedComment = groupCommitWriter.isEnabled()
+                    ? groupCommitWriter.insert(comment)
+                    : commentRepository.save(comment);
+            metrics.recordDatabase(Operation.CREATE, phase);
+            log.debug("Saved comment with id: {}", savedComment.getId());
+
+            phase = System.nanoTime();
+            CommentDto savedDto = CommentMapper.toDto(savedComment);
+            metrics.recordMapping(Operation.CREATE, phase);
+            eventPublisher.publishEvent(CommentEvent.created(savedDto));
+            return savedDto;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.CREATE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.CREATE, start);
         }
-        if (commentDto.getEmail() == null || commentDto.getEmail().trim().isEmpty()) {
-            log.error("Invalid comment data: Email is missing");
-            throw new InvalidCommentDataException("Email is required");
+    }
+
+    @Override
+    public CommentDto getCommentById(Long id) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Fetching comment with id: {}", id);
+            Optional<CommentDto> pending = writeBehindWriter.findPending(id);
+            if (pending.isPresent()) {
+                return pending.get();
+            }
+            return commentCache.getComment(id, this::loadCommentById);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.GET, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.GET, start);
         }
-        if (commentDto.getComment() == null || commentDto.getComment().trim().isEmpty()) {
-            log.error("Invalid comment data: Comment text is missing");
-            throw new InvalidCommentDataException("Comment is required");
+    }
+
+    private CommentDto loadCommentById(Long id) {
+        long start = System.nanoTime();
+        // A replica may not have the comment yet, or an older version of it.
+        Optional<CommentDto> comment = replicaReads.read(() -> commentRepository.findDtoById(id),
+                found -> found.map(dto -> replicaReads.isRecentlyWritten(dto.getPostId())).orElse(true));
+        metrics.recordDatabase(Operation.GET, start);
+        return comment.orElseThrow(() -> {
+            log.debug("Comment not found with id: {}", id);
+            return new CommentNotFoundException("Comment not found with id: " + id);
+        });
+    }
+
+    @Override
+    public List<CommentDto> getCommentsByPostId(Long postId) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Fetching comments for postId: {}", postId);
+            // Taken before the thread: a comment applied in between is then in the thread instead.
+            List<CommentDto> pending = writeBehindWriter.pendingForPost(postId);
+            List<CommentDto> comments = commentCache.getThread(postId, () -> loadCommentsByPostId(postId));
+            if (!pending.isEmpty()) {
+                comments = mergePending(pending, comments);
+            }
+            metrics.recordResultSize(Operation.THREAD, postId, comments.size());
+            return comments;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.THREAD, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.THREAD, start, postId);
         }
-        if (commentDto.getPostId() == null) {
-            log.error("Invalid comment data: PostId is missing");
-            throw new InvalidCommentDataException("Post ID is required");
+    }
+
+    /**
+     * Both lists are newest first, and pending comments are almost always newer than stored ones; a comment
+     * present in both was applied after the pending list was taken.
+     */
+    private static List<CommentDto> mergePending(List<CommentDto> pending, List<CommentDto> stored) {
+        Set<Long> storedIds = new HashSet<>();
+        stored.forEach(comment -> storedIds.add(comment.getId()));
+        List<CommentDto> merged = new ArrayList<>(pending.size() + stored.size());
+        pending.stream().filter(comment -> !storedIds.contains(comment.getId())).forEach(merged::add);
+        merged.addAll(stored);
+        merged.sort(THREAD_ORDER);
+        return merged;
+    }
+
+    private List<CommentDto> loadCommentsByPostId(Long postId) {
+        long start = System.nanoTime();
+        List<CommentDto> commentDtos = replicaReads.readPost(postId, () -> commentRepository.findThreadByPostId(postId));
+        metrics.recordDatabase(Operation.THREAD, start);
+        log.debug("Fetched {} comments for postId: {}", commentDtos.size(), postId);
+        return commentDtos;
+    }
+
+    @Override
+    public CommentPageDto getCommentsPageByPostId(Long postId, String after, Integer limit) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Fetching comments page for postId: {} after: {}", postId, after);
+            int pageSize = resolvePageSize(limit);
+            String cursor = after == null || after.isBlank() ? null : after;
+            CommentPageDto page = commentCache.getPage(postId, cursor, pageSize, () -> loadCommentsPage(postId, cursor, pageSize));
+            metrics.recordResultSize(Operation.PAGE, postId, page.getComments().size());
+            return page;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.PAGE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.PAGE, start, postId);
         }
+    }
 
-        Comment comment = new Comment();
-        comment.setName(commentDto.getName());
-        comment.setEmail(commentDto.getEmail());
-        comment.setComment(commentDto.getComment());
-        comment.setPostId(commentDto.getPostId());
+    private CommentPageDto loadCommentsPage(Long postId, String after, int pageSize) {
+        // Fetch one extra row to learn whether another page exists without a COUNT query.
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<CommentDto> comments;
+        if (after == null) {
+            long start = System.nanoTime();
+            comments = replicaReads.readPost(postId, () -> commentRepository.findPageByPostId(postId, fetchLimit));
+            metrics.recordDatabase(Operation.PAGE, start);
+        } else {
+            CommentCursor cursor = CommentCursor.decode(after);
+            long start = System.nanoTime();
+            comments = replicaReads.readPost(postId, () ->
+                    commentRepository.findPageByPostIdAfter(postId, cursor.getCreatedAt(), cursor.getId(), fetchLimit));
+            metrics.recordDatabase(Operation.PAGE, start);
+        }
 
-        Comment savedComment = commentRepository.save(comment);
-        log.debug("Saved comment with id: {}", savedComment.getId());
+        boolean hasMore = comments.size() > pageSize;
+        List<CommentDto> commentDtos = hasMore ? comments.subList(0, pageSize) : comments;
 
-        return convertToDto(savedComment);
+        String nextCursor = hasMore ? CommentCursor.of(commentDtos.get(commentDtos.size() - 1)).encode() : null;
+        log.debug("Fetched {} comments for postId: {}, hasMore: {}", commentDtos.size(), postId, hasMore);
+        return new CommentPageDto(commentDtos, nextCursor);
     }
 
+    /**
+     * Database, mapping and serialization interleave row by row here, so only the whole stream is timed.
+     */
     @Override
-    public CommentDto getCommentById(Long id) {
-        log.info("Fetching comment with id: {}", id);
-        Comment comment = commentRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Comment not found with id: {}", id);
-                    return new CommentNotFoundException("Comment not found with id: " + id);
-                });
-        return convertToDto(comment);
+    @Transactional(readOnly = true)
+    public void streamCommentsByPostId(Long postId, Consumer<CommentDto> consumer) {
+        log.debug("Streaming comments for postId: {}", postId);
+        long start = System.nanoTime();
+        // The query runs when the stream is opened, so that is when it has to be routed.
+        try (Stream<CommentDto> comments = replicaReads.readPost(postId, () -> commentRepository.streamByPostId(postId))) {
+            long count = 0;
+            Iterator<CommentDto> iterator = comments.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+            metrics.recordResultSize(Operation.STREAM, postId, count);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.STREAM, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.STREAM, start, postId);
+        }
     }
 
+    /**
+     * Changes to a post's comments after {@code since}; without {@code since}, no changes and a cursor at the
+     * current position, to be taken before loading the thread. Changes are read only up to the oldest running
+     * transaction, so a write that commits late still shows up on a later poll instead of being skipped.
+     */
     @Override
-    public List<CommentDto> getCommentsByPostId(Long postId) {
-        log.info("Fetching comments for postId: {}", postId);
-        List<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtDesc(postId);
+    public CommentChangesDto getCommentChanges(Long postId, String since, Integer limit) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Fetching comment changes for postId: {} since: {}", postId, since);
+            int pageSize = resolvePageSize(limit);
+            long now = System.currentTimeMillis();
+            ChangeCursor cursor = since == null || since.isBlank() ? null : ChangeCursor.decode(since);
+            if (cursor != null && now - cursor.getIssuedAt() > changeProperties.getTombstoneRetention().toMillis()) {
+                log.debug("Change cursor for postId: {} expired", postId);
+                throw new ChangeCursorExpiredException("Cursor has expired, reload the thread");
+            }
+
+            long phase = System.nanoTime();
+            // The horizon and the changes below it have to come from the same database.
+            ChangeRead read = replicaReads.readPost(postId, () -> {
+                long horizon = changeRepository.currentHorizon();
+                return cursor == null ? new ChangeRead(horizon, List.of()) : new ChangeRead(horizon,
+                        changeRepository.findChanges(postId, cursor.getTxid(), cursor.getId(), horizon, pageSize + 1));
+            });
+            metrics.recordDatabase(Operation.CHANGES, phase);
+            long horizon = read.horizon();
+            if (cursor == null) {
+                return new CommentChangesDto(List.of(), List.of(), new ChangeCursor(horizon, 0, now).encode(), false);
+            }
+            List<CommentChangeRepository.Change> changes = read.changes();
 
-        List<CommentDto> commentDtos = new ArrayList<>();
-        for (Comment comment : comments) {
-            commentDtos.add(convertToDto(comment));
+            boolean hasMore = changes.size() > pageSize;
+            List<CommentChangeRepository.Change> page = hasMore ? changes.subList(0, pageSize) : changes;
+            List<CommentDto> changed = new ArrayList<>();
+            List<Long> deleted = new ArrayList<>();
+            for (CommentChangeRepository.Change change : page) {
+                if (change.isDeleted()) {
+                    deleted.add(change.commentId());
+                } else {
+                    changed.add(change.comment());
+                }
+            }
+
+            ChangeCursor next;
+            if (hasMore) {
+                CommentChangeRepository.Change last = page.get(page.size() - 1);
+                next = new ChangeCursor(last.txid(), last.commentId(), now);
+            } else if (horizon > cursor.getTxid()) {
+                // Everything of this post below the horizon has been returned.
+                next = new ChangeCursor(horizon, 0, now);
+            } else {
+                next = new ChangeCursor(cursor.getTxid(), cursor.getId(), now);
+            }
+            metrics.recordResultSize(Operation.CHANGES, postId, page.size());
+            return new CommentChangesDto(changed, deleted, next.encode(), hasMore);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.CHANGES, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.CHANGES, start, postId);
         }
+    }
 
-        log.debug("Fetched {} comments for postId: {}", commentDtos.size(), postId);
-        return commentDtos;
+    /**
+     * The newest comments of many posts at once, e.g. for a feed. Posts whose head page is cached are served
+     * from it; the rest are read with a single query. Each page's cursor continues through
+     * {@link #getCommentsPageByPostId}.
+     */
+    @Override
+    public Map<Long, CommentPageDto> getLatestCommentsByPostIds(List<Long> postIds, Integer limit) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Fetching latest comments for {} posts", postIds.size());
+            Set<Long> distinctPostIds = resolvePostIds(postIds, MAX_LATEST_POSTS);
+            int pageSize = limit == null ? DEFAULT_LATEST_PER_POST : Math.min(resolvePageSize(limit), MAX_LATEST_PER_POST);
+            return commentCache.getHeadPages(distinctPostIds, pageSize, missing -> loadLatestComments(missing, pageSize));
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.LATEST, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.LATEST, start);
+        }
+    }
+
+    private Map<Long, CommentPageDto> loadLatestComments(Set<Long> postIds, int pageSize) {
+        long start = System.nanoTime();
+        // One extra row per post tells whether the post has another page, as in loadCommentsPage.
+        List<CommentDto> rows = replicaReads.readPosts(postIds, () -> commentRepository.findLatestByPostIds(postIds, pageSize + 1));
+        metrics.recordDatabase(Operation.LATEST, start);
+
+        Map<Long, List<CommentDto>> byPost = new HashMap<>();
+        for (CommentDto row : rows) {
+            byPost.computeIfAbsent(row.getPostId(), id -> new ArrayList<>()).add(row);
+        }
+        Map<Long, CommentPageDto> pages = new LinkedHashMap<>();
+        for (Long postId : postIds) {
+            List<CommentDto> comments = byPost.getOrDefault(postId, List.of());
+            boolean hasMore = comments.size() > pageSize;
+            List<CommentDto> page = hasMore ? comments.subList(0, pageSize) : comments;
+            String nextCursor = hasMore ? CommentCursor.of(page.get(page.size() - 1)).encode() : null;
+            pages.put(postId, new CommentPageDto(page, nextCursor));
+        }
+        log.debug("Fetched {} comments for {} posts", rows.size(), postIds.size());
+        return pages;
+    }
+
+    @Override
+    public Map<Long, Long> getCommentCounts(List<Long> postIds) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Fetching comment counts for {} posts", postIds.size());
+            Set<Long> distinctPostIds = resolvePostIds(postIds, countProperties.getMaxPostIds());
+            long phase = System.nanoTime();
+            Map<Long, Long> counts = countTracker.getCounts(distinctPostIds);
+            metrics.recordDatabase(Operation.COUNTS, phase);
+            return counts;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.COUNTS, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.COUNTS, start);
+        }
+    }
+
+    /**
+     * Comments matching {@code query} in their text, author name or email, best match first. Pages continue
+     * with the returned cursor like post pages do; they are not cached, since any write anywhere could change
+     * them.
+     */
+    @Override
+    public CommentPageDto searchComments(String query, Long postId, String after, Integer limit) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Searching comments for query: {} postId: {} after: {}", query, postId, after);
+            String searchQuery = resolveSearchQuery(query);
+            int pageSize = resolvePageSize(limit);
+            SearchCursor cursor = after == null || after.isBlank() ? null : SearchCursor.decode(after);
+
+            long phase = System.nanoTime();
+            // One extra row tells whether another page exists, as in loadCommentsPage.
+            Supplier<List<Hit>> search = () -> commentRepository.search(searchQuery, postId, cursor, pageSize + 1,
+                    searchProperties.getMaxCandidates());
+            List<Hit> hits = postId == null ? replicaReads.read(search) : replicaReads.readPost(postId, search);
+            metrics.recordDatabase(Operation.SEARCH, phase);
+
+            boolean hasMore = hits.size() > pageSize;
+            List<Hit> page = hasMore ? hits.subList(0, pageSize) : hits;
+            List<CommentDto> comments = page.stream().map(Hit::comment).toList();
+            String nextCursor = null;
+            if (hasMore) {
+                Hit last = page.get(page.size() - 1);
+                nextCursor = new SearchCursor(last.rank(), last.comment().getId()).encode();
+            }
+            log.debug("Found {} comments for query: {}, hasMore: {}", comments.size(), query, hasMore);
+            return new CommentPageDto(comments, nextCursor);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SEARCH, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.SEARCH, start);
+        }
     }
 
     @Override
     public CommentDto updateComment(Long id, CommentDto commentDto) {
-        log.info("Updating comment with id: {}", id);
+        long start = System.nanoTime();
+        try {
+            log.debug("Updating comment with id: {}", id);
 
-        Comment comment = commentRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Cannot update, comment not found with id: {}", id);
-                    return new CommentNotFoundException("Comment not found with id: " + id);
-                });
+            CommentValidator.validateForUpdate(commentDto);
+            writeBehindWriter.awaitApplied(id);
 
-        if (commentDto.getName() == null || commentDto.getName().trim().isEmpty()) {
-            log.error("Invalid update data: Name is missing");
-            throw new InvalidCommentDataException("Name is required");
+            long phase = System.nanoTime();
+            Optional<Comment> result = commentRepository.updateContent(id, commentDto.getName(), commentDto.getEmail(), commentDto.getComment());
+            metrics.recordDatabase(Operation.UPDATE, phase);
+            Comment updatedComment = result.orElseThrow(() -> {
+                log.debug("Cannot update, comment not found with id: {}", id);
+                return new CommentNotFoundException("Comment not found with id: " + id);
+            });
+            log.debug("Updated comment with id: {}", updatedComment.getId());
+
+            phase = System.nanoTime();
+            CommentDto updatedDto = CommentMapper.toDto(updatedComment);
+            metrics.recordMapping(Operation.UPDATE, phase);
+            eventPublisher.publishEvent(CommentEvent.updated(updatedDto));
+            return updatedDto;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.UPDATE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.UPDATE, start);
         }
-        if (commentDto.getEmail() == null || commentDto.getEmail().trim().isEmpty()) {
-            log.error("Invalid update data: Email is missing");
-            throw new InvalidCommentDataException("Email is required");
+    }
+
+    @Override
+    public void deleteComment(Long id) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Deleting comment with id: {}", id);
+            writeBehindWriter.awaitApplied(id);
+
+            // The post comes back from the DELETE itself: cache invalidation needs it.
+            long phase = System.nanoTime();
+            Optional<Long> result = commentRepository.deleteReturningPostId(id);
+            metrics.recordDatabase(Operation.DELETE, phase);
+            Long postId = result.orElseThrow(() -> {
+                log.debug("Cannot delete, comment not found with id: {}", id);
+                return new CommentNotFoundException("Comment not found with id: " + id);
+            });
+
+            log.debug("Deleted comment with id: {}", id);
+            eventPublisher.publishEvent(CommentEvent.deleted(id, postId));
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.DELETE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.DELETE, start);
         }
-        if (commentDto.getComment() == null || commentDto.getComment().trim().isEmpty()) {
-            log.error("Invalid update data: Comment text is missing");
-            throw new InvalidCommentDataException("Comment is required");
+    }
+
+    @Override
+    public long deleteCommentsByPostId(Long postId) {
+        long start = System.nanoTime();
+        try {
+            log.info("Deleting all comments for postId: {}", postId);
+            writeBehindWriter.preparePostDelete(postId);
+
+            int chunkSize = writeProperties.getPostDeleteChunkSize();
+            long deleted = 0;
+            long phase = System.nanoTime();
+            if (chunkSize <= 0) {
+                deleted = commentRepository.deleteAllByPostId(postId);
+            } else {
+                // Each chunk commits on its own; readers may briefly see a partially deleted thread. A short chunk
+                // does not mean the post is done: rows updated while a chunk ran moved to a new ctid and were
+                // skipped, so only a chunk that removes nothing ends the loop.
+                int removed;
+                do {
+                    removed = commentRepository.deleteChunkByPostId(postId, chunkSize);
+                    deleted += removed;
+                } while (removed > 0);
+            }
+            metrics.recordDatabase(Operation.DELETE_POST, phase);
+            metrics.recordResultSize(Operation.DELETE_POST, postId, deleted);
+
+            log.debug("Deleted {} comments for postId: {}", deleted, postId);
+            eventPublisher.publishEvent(CommentEvent.postDeleted(postId));
+            return deleted;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.DELETE_POST, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.DELETE_POST, start, postId);
         }
+    }
 
-        comment.setName(commentDto.getName());
-        comment.setEmail(commentDto.getEmail());
-        comment.setComment(commentDto.getComment());
+    @Override
+    public List<BulkItemResultDto> createComments(List<CommentDto> commentDtos) {
+        long start = System.nanoTime();
+        try {
+            return bulkCreateComments(commentDtos);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.BULK_CREATE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.BULK_CREATE, start);
+        }
+    }
 
-        Comment updatedComment = commentRepository.save(comment);
-        log.debug("Updated comment with id: {}", updatedComment.getId());
+    private List<BulkItemResultDto> bulkCreateComments(List<CommentDto> commentDtos) {
+        log.info("Bulk creating {} comments", commentDtos.size());
+        checkBulkSize(commentDtos.size());
 
-        return convertToDto(updatedComment);
+        BulkItemResultDto[] results = new BulkItemResultDto[commentDtos.size()];
+        List<Integer> valid = new ArrayList<>(commentDtos.size());
+        for (int i = 0; i < commentDtos.size(); i++) {
+            try {
+                CommentDto commentDto = commentDtos.get(i);
+                if (commentDto == null) {
+                    throw new InvalidCommentDataException("Comment data is required");
+                }
+                CommentValidator.validateForCreate(commentDto);
+                valid.add(i);
+            } catch (InvalidCommentDataException e) {
+                results[i] = new BulkItemResultDto(i, null, BulkItemResultDto.Status.INVALID, e.getMessage());
+            }
+        }
+
+        for (List<Integer> chunk : chunks(valid)) {
+            List<Comment> comments = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                comments.add(CommentMapper.toNewEntity(commentDtos.get(index)));
+            }
+            try {
+                long phase = System.nanoTime();
+                batchWriter.insertAll(comments);
+                metrics.recordDatabase(Operation.BULK_CREATE, phase);
+                for (int i = 0; i < chunk.size(); i++) {
+                    results[chunk.get(i)] = created(chunk.get(i), comments.get(i));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Bulk insert of {} comments failed, retrying individually: {}", chunk.size(), e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Comment comment = comments.get(i);
+                    // Ids handed out by the rolled-back persist would make save() merge instead of insert.
+                    comment.setId(null);
+                    try {
+                        batchWriter.insertAll(List.of(comment));
+                        results[chunk.get(i)] = created(chunk.get(i), comment);
+                    } catch (RuntimeException rowFailure) {
+                        results[chunk.get(i)] = failed(chunk.get(i), null, rowFailure);
+                    }
+                }
+            }
+        }
+        return List.of(results);
     }
 
     @Override
-    public void deleteComment(Long id) {
-        log.info("Deleting comment with id: {}", id);
+    public List<BulkItemResultDto> updateComments(List<CommentDto> commentDtos) {
+        long start = System.nanoTime();
+        try {
+            return bulkUpdateComments(commentDtos);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.BULK_UPDATE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.BULK_UPDATE, start);
+        }
+    }
 
-        if (!commentRepository.existsById(id)) {
-            log.warn("Cannot delete, comment not found with id: {}", id);
-            throw new CommentNotFoundException("Comment not found with id: " + id);
+    private List<BulkItemResultDto> bulkUpdateComments(List<CommentDto> commentDtos) {
+        log.info("Bulk updating {} comments", commentDtos.size());
+        checkBulkSize(commentDtos.size());
+
+        BulkItemResultDto[] results = new BulkItemResultDto[commentDtos.size()];
+        List<Integer> valid = new ArrayList<>(commentDtos.size());
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < commentDtos.size(); i++) {
+            CommentDto commentDto = commentDtos.get(i);
+            if (commentDto == null) {
+                results[i] = new BulkItemResultDto(i, null, BulkItemResultDto.Status.INVALID, "Comment data is required");
+                continue;
+            }
+            try {
+                if (commentDto.getId() == null) {
+                    throw new InvalidCommentDataException("Comment ID is required");
+                }
+                if (!seen.add(commentDto.getId())) {
+                    throw new InvalidCommentDataException("Duplicate comment ID: " + commentDto.getId());
+                }
+                CommentValidator.validateForUpdate(commentDto);
+                valid.add(i);
+            } catch (InvalidCommentDataException e) {
+                results[i] = new BulkItemResultDto(i, commentDto.getId(), BulkItemResultDto.Status.INVALID, e.getMessage());
+            }
         }
 
-        commentRepository.deleteById(id);
-        log.debug("Deleted comment with id: {}", id);
+        for (List<Integer> chunk : chunks(valid)) {
+            Map<Long, CommentDto> changes = new HashMap<>();
+            for (Integer index : chunk) {
+                changes.put(commentDtos.get(index).getId(), commentDtos.get(index));
+            }
+            try {
+                writeBehindWriter.awaitApplied(changes.keySet());
+                long phase = System.nanoTime();
+                Map<Long, Comment> updated = batchWriter.updateAll(changes);
+                metrics.recordDatabase(Operation.BULK_UPDATE, phase);
+                for (Integer index : chunk) {
+                    results[index] = updated(index, commentDtos.get(index).getId(), updated);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Bulk update of {} comments failed, retrying individually: {}", chunk.size(), e.getMessage());
+                for (Integer index : chunk) {
+                    Long id = commentDtos.get(index).getId();
+                    try {
+                        results[index] = updated(index, id, batchWriter.updateAll(Map.of(id, commentDtos.get(index))));
+                    } catch (RuntimeException rowFailure) {
+                        results[index] = failed(index, id, rowFailure);
+                    }
+                }
+            }
+        }
+        return List.of(results);
     }
 
     @Override
-    public void deleteCommentsByPostId(Long postId) {
-        log.info("Deleting all comments for postId: {}", postId);
-        commentRepository.deleteByPostId(postId);
-        log.debug("Deleted all comments for postId: {}", postId);
-    }
-
-    private CommentDto convertToDto(Comment comment) {
-        return new CommentDto(
-                comment.getId(),
-                comment.getName(),
-                comment.getEmail(),
-                comment.getComment(),
-                comment.getPostId(),
-                comment.getCreatedAt(),
-                comment.getUpdatedAt()
-        );
-    }
-}
\ No newline at end of file
+    public List<BulkItemResultDto> deleteComments(List<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            return bulkDeleteComments(ids);
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.BULK_DELETE, e);
+            throw e;
+        } finally {
+            metrics.recordOperation(Operation.BULK_DELETE, start);
+        }
+    }
+
+    private List<BulkItemResultDto> bulkDeleteComments(List<Long> ids) {
+        log.info("Bulk deleting {} comments", ids.size());
+        checkBulkSize(ids.size());
+
+        BulkItemResultDto[] results = new BulkItemResultDto[ids.size()];
+        List<Integer> valid = new ArrayList<>(ids.size());
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                results[i] = new BulkItemResultDto(i, null, BulkItemResultDto.Status.INVALID, "Comment ID is required");
+            } else if (!seen.add(id)) {
+                results[i] = new BulkItemResultDto(i, id, BulkItemResultDto.Status.INVALID, "Duplicate comment ID: " + id);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        for (List<Integer> chunk : chunks(valid)) {
+            List<Long> chunkIds = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                chunkIds.add(ids.get(index));
+            }
+            try {
+                writeBehindWriter.awaitApplied(chunkIds);
+                long phase = System.nanoTime();
+                Map<Long, Long> deleted = batchWriter.deleteAll(chunkIds);
+                metrics.recordDatabase(Operation.BULK_DELETE, phase);
+                for (Integer index : chunk) {
+                    results[index] = deleted(index, ids.get(index), deleted);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Bulk delete of {} comments failed, retrying individually: {}", chunk.size(), e.getMessage());
+                for (Integer index : chunk) {
+                    Long id = ids.get(index);
+                    try {
+                        results[index] = deleted(index, id, batchWriter.deleteAll(List.of(id)));
+                    } catch (RuntimeException rowFailure) {
+                        results[index] = failed(index, id, rowFailure);
+                    }
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    private BulkItemResultDto created(int index, Comment comment) {
+        CommentDto savedDto = CommentMapper.toDto(comment);
+        eventPublisher.publishEvent(CommentEvent.created(savedDto));
+        return new BulkItemResultDto(index, comment.getId(), BulkItemResultDto.Status.CREATED, null);
+    }
+
+    private BulkItemResultDto updated(int index, Long id, Map<Long, Comment> updated) {
+        Comment comment = updated.get(id);
+        if (comment == null) {
+            return new BulkItemResultDto(index, id, BulkItemResultDto.Status.NOT_FOUND, "Comment not found with id: " + id);
+        }
+        eventPublisher.publishEvent(CommentEvent.updated(CommentMapper.toDto(comment)));
+        return new BulkItemResultDto(index, id, BulkItemResultDto.Status.UPDATED, null);
+    }
+
+    private BulkItemResultDto deleted(int index, Long id, Map<Long, Long> deleted) {
+        Long postId = deleted.get(id);
+        if (postId == null) {
+            return new BulkItemResultDto(index, id, BulkItemResultDto.Status.NOT_FOUND, "Comment not found with id: " + id);
+        }
+        eventPublisher.publishEvent(CommentEvent.deleted(id, postId));
+        return new BulkItemResultDto(index, id, BulkItemResultDto.Status.DELETED, null);
+    }
+
+    private BulkItemResultDto failed(int index, Long id, RuntimeException e) {
+        log.error("Bulk item {} failed: {}", index, e.getMessage());
+        return new BulkItemResultDto(index, id, BulkItemResultDto.Status.FAILED, e.getMessage());
+    }
+
+    private void checkBulkSize(int size) {
+        int maxItems = writeProperties.getBulk().getMaxItems();
+        if (size > maxItems) {
+            log.error("Invalid bulk request: {} items exceeds the limit of {}", size, maxItems);
+            throw new InvalidCommentDataException("Bulk requests are limited to " + maxItems + " items");
+        }
+    }
+
+    private List<List<Integer>> chunks(List<Integer> indexes) {
+        int chunkSize = writeProperties.getBulk().getChunkSize();
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < indexes.size(); from += chunkSize) {
+            chunks.add(indexes.subList(from, Math.min(from + chunkSize, indexes.size())));
+        }
+        return chunks;
+    }
+
+    private static Set<Long> resolvePostIds(List<Long> postIds, int maxPostIds) {
+        Set<Long> distinctPostIds = new LinkedHashSet<>(postIds);
+        if (distinctPostIds.isEmpty() || distinctPostIds.contains(null)) {
+            log.debug("Invalid multi-post request: {} post ids", postIds.size());
+            throw new InvalidCommentDataException("At least one post ID is required and none may be empty");
+        }
+        if (distinctPostIds.size() > maxPostIds) {
+            log.debug("Invalid multi-post request: {} post ids exceeds the limit of {}", distinctPostIds.size(), maxPostIds);
+            throw new InvalidCommentDataException("At most " + maxPostIds + " post IDs are allowed per request");
+        }
+        return distinctPostIds;
+    }
+
+    private String resolveSearchQuery(String query) {
+        String trimmed = query == null ? "" : query.trim();
+        if (trimmed.isEmpty()) {
+            log.debug("Invalid search request: empty query");
+            throw new InvalidCommentDataException("Search query is required");
+        }
+        if (trimmed.length() > searchProperties.getMaxQueryLength()) {
+            log.debug("Invalid search request: query length {} exceeds the limit of {}",
+                    trimmed.length(), searchProperties.getMaxQueryLength());
+            throw new InvalidCommentDataException(
+                    "Search query must be at most " + searchProperties.getMaxQueryLength() + " characters");
+        }
+        return trimmed;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            log.debug("Invalid page request: limit {} is not positive", limit);
+            throw new InvalidCommentDataException("Limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private record ChangeRead(long horizon, List<CommentChangeRepository.Change> changes) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.exception.InvalidCommentDataException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Validation rules shared by every write path, single or bulk.
+ */
+@Slf4j
+public final class CommentValidator {
+
+    private CommentValidator() {
+    }
+
+    public static void validateForCreate(CommentDto commentDto) {
+        if (commentDto.getName() == null || commentDto.getName().trim().isEmpty()) {
+            log.debug("Invalid comment data: Name is missing");
+            throw new InvalidCommentDataException("Name is required");
+        }
+        if (commentDto.getEmail() == null || commentDto.getEmail().trim().isEmpty()) {
+            log.debug("Invalid comment data: Email is missing");
+            throw new InvalidCommentDataException("Email is required");
+        }
+        if (commentDto.getComment() == null || commentDto.getComment().trim().isEmpty()) {
+            log.debug("Invalid comment data: Comment text is missing");
+            throw new InvalidCommentDataException("Comment is required");
+        }
+        if (commentDto.getPostId() == null) {
+            log.debug("Invalid comment data: PostId is missing");
+            throw new InvalidCommentDataException("Post ID is required");
+        }
+    }
+
+    public static void validateForUpdate(CommentDto commentDto) {
+        if (commentDto.getName() == null || commentDto.getName().trim().isEmpty()) {
+            log.debug("Invalid update data: Name is missing");
+            throw new InvalidCommentDataException("Name is required");
+        }
+        if (commentDto.getEmail() == null || commentDto.getEmail().trim().isEmpty()) {
+            log.debug("Invalid update data: Email is missing");
+            throw new InvalidCommentDataException("Email is required");
+        }
+        if (commentDto.getComment() == null || commentDto.getComment().trim().isEmpty()) {
+            log.debug("Invalid update data: Comment text is missing");
+            throw new InvalidCommentDataException("Comment is required");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for comment inserts. Callers enqueue a new comment and block until a flusher thread has written it
+ * together with whatever other creates arrived within {@code max-delay} (or until {@code max-batch-size} rows are
+ * collected), in a single transaction whose inserts Hibernate sends as one JDBC batch.
+ * <p>
+ * Each caller still receives its own managed entity back, with the id drawn from the pooled sequence and the
+ * timestamps set by {@code @PrePersist}. If the shared transaction fails, its rows are retried one by one so a
+ * single bad row only fails its own caller.
+ */
+@Component
+@Slf4j
+public class GroupCommitCommentWriter {
+
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CommentWriteProperties.GroupCommit properties;
+    private final BlockingQueue<PendingInsert> queue;
+    private final List<Thread> flushers = new ArrayList<>();
+    private volatile boolean running;
+
+    public GroupCommitCommentWriter(CommentRepository commentRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    CommentWriteProperties writeProperties) {
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = writeProperties.getGroupCommit();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < properties.getFlusherThreads(); i++) {
+            Thread flusher = new Thread(this::runFlusher, "comment-group-commit-" + i);
+            flusher.setDaemon(true);
+            flusher.start();
+            flushers.add(flusher);
+        }
+        log.info("Group commit enabled: up to {} rows or {} per batch", properties.getMaxBatchSize(), properties.getMaxDelay());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread flusher : flushers) {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<PendingInsert> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public Comment insert(Comment comment) {
+        PendingInsert pending = new PendingInsert(comment);
+        if (!running || !queue.offer(pending)) {
+            // Queue full: write directly rather than add unbounded waiting time.
+            return commentRepository.save(comment);
+        }
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void runFlusher() {
+        List<PendingInsert> batch = new ArrayList<>(properties.getMaxBatchSize());
+        long maxDelayNanos = properties.getMaxDelay().toNanos();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    queue.drainTo(batch, properties.getMaxBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getMaxBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Group commit flusher failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void write(List<PendingInsert> batch) {
+        List<Comment> comments = new ArrayList<>(batch.size());
+        for (PendingInsert pending : batch) {
+            comments.add(pending.comment);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                commentRepository.saveAll(comments);
+                commentRepository.flush();
+            });
+            for (PendingInsert pending : batch) {
+                pending.result.complete(pending.comment);
+            }
+            log.debug("Group-committed {} comments", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} comments failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (PendingInsert pending : batch) {
+                // Ids handed out by the rolled-back persist would make save() merge instead of insert.
+                pending.comment.setId(null);
+                try {
+                    pending.result.complete(commentRepository.save(pending.comment));
+                } catch (RuntimeException rowFailure) {
+                    pending.result.completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+
+    static final class PendingInsert {
+        private final Comment comment;
+        final CompletableFuture<Comment> result = new CompletableFuture<>();
+
+        PendingInsert(Comment comment) {
+            this.comment = comment;
+        }
+    }
+}
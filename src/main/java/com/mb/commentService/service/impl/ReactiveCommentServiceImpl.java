@@ -0,0 +1,195 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.CommentNotFoundException;
+import com.mb.commentService.ingest.WriteBehindCommentWriter;
+import com.mb.commentService.metrics.CommentMetrics;
+import com.mb.commentService.metrics.CommentMetrics.Operation;
+import com.mb.commentService.repository.ReactiveCommentRepository;
+import com.mb.commentService.service.ReactiveCommentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Reads bypass the {@link com.mb.commentService.cache.CommentCache}, whose loaders are blocking; writes publish
+ * the same {@link CommentEvent}s as {@link CommentServiceImpl}, so the cache and its peers stay coherent with
+ * changes made through either API. Operations are timed under the same {@link CommentMetrics}, and comments
+ * still pending in the {@link WriteBehindCommentWriter} are read, awaited and fenced off as there.
+ * <p>
+ * New comments are inserted directly rather than logged: acknowledging a logged comment waits for the log to
+ * reach the disk, which is what the reactive API is meant not to do.
+ */
+@Service
+@ConditionalOnProperty(prefix = "comment.reactive", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReactiveCommentServiceImpl implements ReactiveCommentService {
+
+    @Autowired
+    private ReactiveCommentRepository commentRepository;
+
+    @Autowired
+    private CommentWriteProperties writeProperties;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private WriteBehindCommentWriter writeBehindWriter;
+
+    @Autowired
+    private CommentMetrics metrics;
+
+    @Override
+    public Mono<CommentDto> createComment(CommentDto commentDto) {
+        return timed(Operation.CREATE, Mono.defer(() -> {
+            log.debug("Creating comment for postId: {}", commentDto.getPostId());
+            CommentValidator.validateForCreate(commentDto);
+            return database(Operation.CREATE, () -> commentRepository.insert(commentDto.getName(),
+                    commentDto.getEmail(), commentDto.getComment(), commentDto.getPostId()));
+        }).doOnNext(savedDto -> {
+            log.debug("Saved comment with id: {}", savedDto.getId());
+            eventPublisher.publishEvent(CommentEvent.created(savedDto));
+        }));
+    }
+
+    @Override
+    public Mono<CommentDto> getCommentById(Long id) {
+        return timed(Operation.GET, Mono.defer(() -> {
+            log.debug("Fetching comment with id: {}", id);
+            return writeBehindWriter.findPending(id)
+                    .map(Mono::just)
+                    .orElseGet(() -> database(Operation.GET, () -> commentRepository.findById(id)))
+                    .switchIfEmpty(notFound("Comment not found with id: {}", id));
+        }));
+    }
+
+    /**
+     * Pending comments come first: they are almost always newer than stored ones. A comment applied after the
+     * pending list was taken is left out of the stored rows rather than sent twice.
+     */
+    @Override
+    public Flux<CommentDto> getCommentsByPostId(Long postId) {
+        return Flux.defer(() -> {
+            log.debug("Fetching comments for postId: {}", postId);
+            long start = System.nanoTime();
+            AtomicLong count = new AtomicLong();
+            // Taken before the thread: a comment applied in between is then in the thread as well.
+            List<CommentDto> pending = writeBehindWriter.pendingForPost(postId);
+            Flux<CommentDto> stored = commentRepository.findThreadByPostId(postId);
+            if (!pending.isEmpty()) {
+                Set<Long> pendingIds = pending.stream().map(CommentDto::getId).collect(Collectors.toSet());
+                stored = Flux.fromIterable(pending)
+                        .concatWith(stored.filter(comment -> !pendingIds.contains(comment.getId())));
+            }
+            return stored
+                    .doOnNext(comment -> count.incrementAndGet())
+                    .doOnComplete(() -> metrics.recordResultSize(Operation.STREAM, postId, count.get()))
+                    .doOnError(RuntimeException.class, e -> metrics.recordError(Operation.STREAM, e))
+                    .doFinally(signal -> metrics.recordOperation(Operation.STREAM, start, postId));
+        });
+    }
+
+    @Override
+    public Mono<CommentDto> updateComment(Long id, CommentDto commentDto) {
+        return timed(Operation.UPDATE, Mono.defer(() -> {
+            log.debug("Updating comment with id: {}", id);
+            CommentValidator.validateForUpdate(commentDto);
+            return awaitApplied(id).then(database(Operation.UPDATE, () -> commentRepository.updateContent(id,
+                    commentDto.getName(), commentDto.getEmail(), commentDto.getComment())));
+        }).switchIfEmpty(notFound("Cannot update, comment not found with id: {}", id))
+                .doOnNext(updatedDto -> {
+                    log.debug("Updated comment with id: {}", updatedDto.getId());
+                    eventPublisher.publishEvent(CommentEvent.updated(updatedDto));
+                }));
+    }
+
+    @Override
+    public Mono<Void> deleteComment(Long id) {
+        return timed(Operation.DELETE, Mono.defer(() -> {
+            log.debug("Deleting comment with id: {}", id);
+            // The post comes back from the DELETE itself: cache invalidation needs it.
+            return awaitApplied(id).then(database(Operation.DELETE, () -> commentRepository.deleteReturningPostId(id)));
+        }).switchIfEmpty(notFound("Cannot delete, comment not found with id: {}", id))
+                .doOnNext(postId -> {
+                    log.debug("Deleted comment with id: {}", id);
+                    eventPublisher.publishEvent(CommentEvent.deleted(id, postId));
+                })
+                .then());
+    }
+
+    @Override
+    public Mono<Long> deleteCommentsByPostId(Long postId) {
+        return timed(Operation.DELETE_POST, Mono.defer(() -> {
+            log.info("Deleting all comments for postId: {}", postId);
+            int chunkSize = writeProperties.getPostDeleteChunkSize();
+            Mono<Long> deleted;
+            if (chunkSize <= 0) {
+                deleted = database(Operation.DELETE_POST, () -> commentRepository.deleteAllByPostId(postId));
+            } else {
+                // Each chunk commits on its own; readers may briefly see a partially deleted thread. As in
+                // CommentServiceImpl, only a chunk that removes nothing means the post is done.
+                Mono<Long> chunk = database(Operation.DELETE_POST,
+                        () -> commentRepository.deleteChunkByPostId(postId, chunkSize));
+                deleted = chunk.expand(removed -> removed > 0 ? chunk : Mono.empty())
+                        .reduce(0L, Long::sum);
+            }
+            return blocking(() -> writeBehindWriter.preparePostDelete(postId)).then(deleted);
+        }).doOnNext(count -> {
+            log.debug("Deleted {} comments for postId: {}", count, postId);
+            eventPublisher.publishEvent(CommentEvent.postDeleted(postId));
+        }));
+    }
+
+    /**
+     * Waits, off the event loop, until the comment is no longer pending; nothing to wait for in the common case.
+     */
+    private Mono<Void> awaitApplied(Long id) {
+        return writeBehindWriter.findPending(id).isEmpty()
+                ? Mono.empty()
+                : blocking(() -> writeBehindWriter.awaitApplied(id));
+    }
+
+    private static Mono<Void> blocking(Runnable call) {
+        return Mono.fromRunnable(call).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    /**
+     * The try/catch/finally around each {@link CommentServiceImpl} operation: times it from subscription until it
+     * completes, fails or is cancelled, and counts its errors.
+     */
+    private <T> Mono<T> timed(Operation operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnError(RuntimeException.class, e -> metrics.recordError(operation, e))
+                    .doFinally(signal -> metrics.recordOperation(operation, start));
+        });
+    }
+
+    private <T> Mono<T> database(Operation operation, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.get().doFinally(signal -> metrics.recordDatabase(operation, start));
+        });
+    }
+
+    private static <T> Mono<T> notFound(String logMessage, Long id) {
+        return Mono.defer(() -> {
+            log.debug(logMessage, id);
+            return Mono.error(new CommentNotFoundException("Comment not found with id: " + id));
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentChangeProperties;
+import com.mb.commentService.repository.CommentChangeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes tombstones older than the change feed's retention, in chunks so no statement holds many row locks.
+ * Cursors old enough to need them are refused by the feed anyway.
+ */
+@Component
+@Slf4j
+public class TombstonePurger {
+
+    private final CommentChangeRepository changeRepository;
+    private final CommentChangeProperties properties;
+
+    private ScheduledExecutorService scheduler;
+
+    public TombstonePurger(CommentChangeRepository changeRepository, CommentChangeProperties properties) {
+        this.changeRepository = changeRepository;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tombstone-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getPurgeInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::purgeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public long purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getTombstoneRetention());
+        int chunkSize = properties.getPurgeChunkSize();
+        long purged = 0;
+        int removed;
+        do {
+            removed = changeRepository.purgeTombstones(cutoff, chunkSize);
+            purged += removed;
+        } while (removed == chunkSize && !Thread.currentThread().isInterrupted());
+        if (purged > 0) {
+            log.info("Purged {} comment tombstones deleted before {}", purged, cutoff);
+        }
+        return purged;
+    }
+
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            log.error("Comment tombstone purge failed", e);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.mb.commentService.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.commentService.config.CommentStreamProperties;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.SubscriberLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans comment writes out to the Server-Sent Event streams of the posts they belong to.
+ * <p>
+ * A write costs the writing thread one task hand-off: events are encoded once, on the single fan-out thread,
+ * and the same encoded event is offered to every subscriber of the post, which keeps events of a post in
+ * write order. Subscribers with queued events are drained by a small pool of sender threads, so an open stream
+ * holds no thread of its own. A subscriber that cannot keep up gets a {@code resync} event in place of its
+ * backlog and is disconnected if it cannot even take that in time.
+ * <p>
+ * Emitters are only ever sent to and completed by sender threads, never by the fan-out or a shutdown thread:
+ * {@code SseEmitter} does both under one lock, held for as long as a send to a stalled client blocks. A send
+ * blocked longer than the write timeout disconnects its subscriber, and an extra sender takes the blocked one's
+ * place until the server's socket write timeout fails that write.
+ * <p>
+ * Every stream starts with a {@code ready} event carrying a change feed cursor; after a {@code resync} or a
+ * reconnect the client catches up through {@code GET /api/comments/post/{postId}/changes}. Only writes made
+ * on this instance are pushed.
+ */
+@Component
+@Slf4j
+public class CommentStreamHub {
+
+    static final String READY = "ready";
+    static final String RESYNC = "resync";
+
+    private final ObjectMapper objectMapper;
+    private final CommentStreamProperties properties;
+    private final long slowConsumerTimeoutNanos;
+    private final long writeTimeoutNanos;
+    private final Map<Long, Set<CommentSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Set<DataWithMediaType> resyncEvent;
+    private final Set<DataWithMediaType> heartbeatEvent = SseEmitter.event().comment("keep-alive").build();
+    private final Counter rejected;
+    private final Counter coalesced;
+    private final Counter slowDisconnects;
+    private final Counter stalledSends;
+    // Sender threads added in place of ones blocked in an abandoned send; only the fan-out thread adds them.
+    private final AtomicInteger replacementSenders = new AtomicInteger();
+
+    private ScheduledExecutorService fanOut;
+    private ThreadPoolExecutor senders;
+
+    public CommentStreamHub(ObjectMapper objectMapper, CommentStreamProperties properties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.slowConsumerTimeoutNanos = properties.getSlowConsumerTimeout().toNanos();
+        this.writeTimeoutNanos = properties.getWriteTimeout().toNanos();
+        this.resyncEvent = SseEmitter.event().name(RESYNC).data("{}").build();
+        this.rejected = meterRegistry.counter("comment.stream.rejected");
+        this.coalesced = meterRegistry.counter("comment.stream.coalesced");
+        this.slowDisconnects = meterRegistry.counter("comment.stream.slow.disconnects");
+        this.stalledSends = meterRegistry.counter("comment.stream.stalled.sends");
+        Gauge.builder("comment.stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        fanOut = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "comment-stream-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderIndex = new AtomicInteger();
+        int senderThreads = properties.getSenderThreads();
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "comment-stream-sender-" + senderIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMillis = properties.getHeartbeatInterval().toMillis();
+        fanOut.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long stallCheckMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos) / 2);
+        fanOut.scheduleWithFixedDelay(this::abandonStalledSends, stallCheckMillis, stallCheckMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands the remaining streams to the senders to complete and gives them up to the write timeout to do so.
+     */
+    @PreDestroy
+    public void stop() {
+        completeStreams();
+        if (fanOut == null) {
+            return;
+        }
+        fanOut.shutdownNow();
+        senders.shutdown();
+        try {
+            if (!senders.awaitTermination(writeTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                senders.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            senders.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ends open streams as soon as shutdown begins. Graceful shutdown of the web server waits for in-flight
+     * requests, and an open stream never finishes on its own; clients reconnect to another instance. Returns
+     * without waiting for the streams, which the sender threads complete.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void completeStreams() {
+        subscribers.values().forEach(posts -> posts.forEach(this::disconnect));
+    }
+
+    /**
+     * Opens a stream of the comment writes of a post.
+     *
+     * @param cursor change feed cursor taken before subscribing, sent as the {@code ready} event
+     * @throws SubscriberLimitExceededException when this instance already holds {@code max-subscribers} streams
+     */
+    public SseEmitter subscribe(Long postId, String cursor) {
+        return register(postId, cursor, new SseEmitter(properties.getTimeout().toMillis()));
+    }
+
+    SseEmitter register(Long postId, String cursor, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            rejected.increment();
+            throw new SubscriberLimitExceededException("Too many open comment streams, retry later");
+        }
+        CommentSubscriber subscriber = new CommentSubscriber(postId, emitter, properties.getQueueCapacity());
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> disconnect(subscriber));
+        emitter.onError(e -> unregister(subscriber));
+        // Queued before the subscriber is visible to the fan-out, so it is always the first event.
+        subscriber.offer(encode(READY, Map.of("cursor", cursor)), System.nanoTime(), slowConsumerTimeoutNanos);
+        subscribers.compute(postId, (id, posts) -> {
+            Set<CommentSubscriber> updated = posts == null ? ConcurrentHashMap.newKeySet() : posts;
+            updated.add(subscriber);
+            return updated;
+        });
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentEvent(CommentEvent event) {
+        if (!subscribers.containsKey(event.getPostId())) {
+            return;
+        }
+        try {
+            fanOut.execute(() -> publish(event));
+        } catch (RejectedExecutionException e) {
+            log.debug("Comment stream hub stopped, dropping {}", event);
+        }
+    }
+
+    private void publish(CommentEvent event) {
+        Set<CommentSubscriber> posts = subscribers.get(event.getPostId());
+        if (posts == null) {
+            return;
+        }
+        Set<DataWithMediaType> encoded = switch (event.getType()) {
+            case CREATED -> encode("created", event.getComment());
+            case UPDATED -> encode("updated", event.getComment());
+            case DELETED -> encode("deleted", Map.of("id", event.getCommentId()));
+            case POST_DELETED -> encode("post-deleted", Map.of("postId", event.getPostId()));
+        };
+        long now = System.nanoTime();
+        for (CommentSubscriber subscriber : posts) {
+            offer(subscriber, subscriber.offer(encoded, now, slowConsumerTimeoutNanos));
+        }
+    }
+
+    private void heartbeat() {
+        long now = System.nanoTime();
+        for (Set<CommentSubscriber> posts : subscribers.values()) {
+            for (CommentSubscriber subscriber : posts) {
+                offer(subscriber, subscriber.offerIfIdle(heartbeatEvent, now, slowConsumerTimeoutNanos));
+            }
+        }
+    }
+
+    private void offer(CommentSubscriber subscriber, CommentSubscriber.Offer result) {
+        switch (result) {
+            case QUEUED -> schedule(subscriber);
+            case COALESCED -> {
+                coalesced.increment();
+                schedule(subscriber);
+            }
+            case TOO_SLOW -> {
+                slowDisconnects.increment();
+                log.debug("Disconnecting slow comment stream subscriber of postId: {}", subscriber.getPostId());
+                disconnect(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Disconnects subscribers whose send has been blocked longer than the write timeout. Each blocked sender is
+     * replaced by an extra thread, at most {@code sender-threads} of them at a time, so that a few stalled
+     * clients cannot hold up every other stream; the extra thread goes away once the blocked send returns.
+     */
+    private void abandonStalledSends() {
+        long startedBefore = System.nanoTime() - writeTimeoutNanos;
+        for (Set<CommentSubscriber> posts : subscribers.values()) {
+            for (CommentSubscriber subscriber : posts) {
+                if (!subscriber.isSendStalled(startedBefore)) {
+                    continue;
+                }
+                stalledSends.increment();
+                log.debug("Disconnecting comment stream subscriber of postId: {}, send blocked for over {}",
+                        subscriber.getPostId(), properties.getWriteTimeout());
+                if (replacementSenders.get() < properties.getSenderThreads()
+                        && subscriber.abandonSend(startedBefore)) {
+                    replacementSenders.incrementAndGet();
+                    resizeSenders(1);
+                }
+                disconnect(subscriber);
+            }
+        }
+    }
+
+    private void resizeSenders(int delta) {
+        synchronized (senders) {
+            // Core never exceeds the maximum, so raise the maximum first and lower it last.
+            if (delta > 0) {
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            } else {
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private void schedule(CommentSubscriber subscriber) {
+        if (!subscriber.tryMarkScheduled()) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the server closes the connection.
+            unregister(subscriber);
+        }
+    }
+
+    private void drain(CommentSubscriber subscriber) {
+        boolean more;
+        try {
+            more = subscriber.drain(resyncEvent);
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, or the emitter was already completed.
+            more = false;
+            disconnect(subscriber);
+        } finally {
+            if (subscriber.takeSendAbandoned()) {
+                replacementSenders.decrementAndGet();
+                resizeSenders(-1);
+            }
+        }
+        if (more) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Stops events to the subscriber and has a sender complete its emitter: completing takes the emitter's lock,
+     * which a send blocked on a stalled client holds, so it must not be done on the fan-out or a shutdown thread.
+     */
+    private void disconnect(CommentSubscriber subscriber) {
+        unregister(subscriber);
+        schedule(subscriber);
+    }
+
+    private void unregister(CommentSubscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.getPostId(), (id, posts) -> {
+            posts.remove(subscriber);
+            return posts.isEmpty() ? null : posts;
+        });
+    }
+
+    private Set<DataWithMediaType> encode(String name, Object payload) {
+        try {
+            return SseEmitter.event().name(name).data(objectMapper.writeValueAsString(payload)).build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.mb.commentService.stream;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One open event stream: a bounded queue of encoded events in front of its {@link SseEmitter}.
+ * <p>
+ * Any thread may offer events; the queue is a lock-free linked queue whose length is capped by a separate
+ * counter. At most one sender thread drains a subscriber at a time, guarded by {@link #tryMarkScheduled()}.
+ * Once the queue overflows, the backlog is thrown away and replaced by a single {@code resync} event, and
+ * offers are coalesced into that event until it has been handed to the emitter.
+ * <p>
+ * Only the draining sender touches the emitter. {@code SseEmitter} sends and completes under its own lock, which
+ * a send to a client that stopped reading holds, so a closed subscriber is completed by its next drain rather
+ * than by the thread that closed it.
+ */
+final class CommentSubscriber {
+
+    enum Offer {
+        QUEUED,
+        COALESCED,
+        /**
+         * The subscriber has not taken its resync event within the slow consumer timeout.
+         */
+        TOO_SLOW
+    }
+
+    private static final long NOT_OVERFLOWED = Long.MIN_VALUE;
+    private static final long NOT_SENDING = Long.MIN_VALUE;
+    private static final long ABANDONED = Long.MIN_VALUE + 1;
+
+    private final Long postId;
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Queue<Set<DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong overflowedAt = new AtomicLong(NOT_OVERFLOWED);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean completed = new AtomicBoolean();
+    // Start of the send in progress, or NOT_SENDING, or ABANDONED once the hub gave up waiting for it.
+    private final AtomicLong sendingSince = new AtomicLong(NOT_SENDING);
+    // Only the draining sender reads and writes it.
+    private boolean sendAbandoned;
+
+    CommentSubscriber(Long postId, SseEmitter emitter, int capacity) {
+        this.postId = postId;
+        this.emitter = emitter;
+        this.capacity = capacity;
+    }
+
+    Long getPostId() {
+        return postId;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    Offer offer(Set<DataWithMediaType> event, long nowNanos, long slowConsumerTimeoutNanos) {
+        long since = overflowedAt.get();
+        if (since != NOT_OVERFLOWED) {
+            return nowNanos - since > slowConsumerTimeoutNanos ? Offer.TOO_SLOW : Offer.COALESCED;
+        }
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            overflowedAt.compareAndSet(NOT_OVERFLOWED, nowNanos);
+            return Offer.COALESCED;
+        }
+        queue.offer(event);
+        return Offer.QUEUED;
+    }
+
+    /**
+     * Queues a keep-alive only when nothing else is waiting, so it never pushes the subscriber into overflow.
+     */
+    Offer offerIfIdle(Set<DataWithMediaType> event, long nowNanos, long slowConsumerTimeoutNanos) {
+        long since = overflowedAt.get();
+        if (since != NOT_OVERFLOWED) {
+            return nowNanos - since > slowConsumerTimeoutNanos ? Offer.TOO_SLOW : Offer.COALESCED;
+        }
+        return size.get() == 0 ? offer(event, nowNanos, slowConsumerTimeoutNanos) : Offer.COALESCED;
+    }
+
+    /**
+     * Marks the subscriber for a drain, unless one is already running or its emitter is completed. Closed
+     * subscribers are still scheduled once, to complete their emitter.
+     */
+    boolean tryMarkScheduled() {
+        return !completed.get() && scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Writes queued events until the queue is empty, or completes the emitter once the subscriber is closed. Must
+     * only be called by the thread that marked the subscriber scheduled; returns whether more work arrived after
+     * the queue was found empty.
+     */
+    boolean drain(Set<DataWithMediaType> resyncEvent) throws IOException {
+        try {
+            while (!closed.get()) {
+                if (overflowedAt.get() != NOT_OVERFLOWED) {
+                    int dropped = 0;
+                    while (queue.poll() != null) {
+                        dropped++;
+                    }
+                    size.addAndGet(-dropped);
+                    // Reset before sending: events offered from now on are queued behind the resync, everything
+                    // coalesced so far committed before the client can act on it.
+                    overflowedAt.set(NOT_OVERFLOWED);
+                    send(resyncEvent);
+                    continue;
+                }
+                Set<DataWithMediaType> event = queue.poll();
+                if (event == null) {
+                    break;
+                }
+                size.decrementAndGet();
+                send(event);
+            }
+            if (closed.get() && completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        // Read after releasing the schedule, so a close racing with the end of this drain is never missed.
+        return !completed.get() && (closed.get() || !queue.isEmpty() || overflowedAt.get() != NOT_OVERFLOWED);
+    }
+
+    private void send(Set<DataWithMediaType> event) throws IOException {
+        long started = System.nanoTime();
+        sendingSince.set(started);
+        try {
+            emitter.send(event);
+        } finally {
+            if (!sendingSince.compareAndSet(started, NOT_SENDING)) {
+                sendingSince.set(NOT_SENDING);
+                sendAbandoned = true;
+            }
+        }
+    }
+
+    /**
+     * Whether a send started before {@code startedBefore} (a {@link System#nanoTime()} value) is still blocked.
+     */
+    boolean isSendStalled(long startedBefore) {
+        long since = sendingSince.get();
+        return since != NOT_SENDING && since != ABANDONED && since - startedBefore < 0;
+    }
+
+    /**
+     * Gives up on a stalled send, see {@link #isSendStalled(long)}; returns {@code true} if this call did, in
+     * which case the drain running it reports so through {@link #takeSendAbandoned()} once the send returns.
+     */
+    boolean abandonSend(long startedBefore) {
+        long since = sendingSince.get();
+        return since != NOT_SENDING && since != ABANDONED && since - startedBefore < 0
+                && sendingSince.compareAndSet(since, ABANDONED);
+    }
+
+    /**
+     * Whether the last drain returned from an abandoned send; resets the flag. Only for the draining sender.
+     */
+    boolean takeSendAbandoned() {
+        boolean abandoned = sendAbandoned;
+        sendAbandoned = false;
+        return abandoned;
+    }
+
+    /**
+     * Stops queueing events; the emitter is completed by the next drain. Returns {@code true} for the first call
+     * only.
+     */
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        queue.clear();
+        return true;
+    }
+}
@@ -0,0 +1,10 @@
+-- Matches the table previously generated by hibernate.ddl-auto=update, so existing databases are left untouched.
+CREATE TABLE IF NOT EXISTS comments (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    comment    TEXT         NOT NULL,
+    post_id    BIGINT       NOT NULL,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
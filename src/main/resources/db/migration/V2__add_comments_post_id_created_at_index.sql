@@ -0,0 +1,6 @@
+-- Serves the per-post listing (ORDER BY created_at DESC, id DESC), the keyset page predicate and
+-- the post_id lookup behind deleteByPostId with a single index.
+-- On a large existing table, build it by hand first with CREATE INDEX CONCURRENTLY under the same name;
+-- IF NOT EXISTS then turns this migration into a no-op instead of a write-blocking build.
+CREATE INDEX IF NOT EXISTS idx_comments_post_id_created_at_id
+    ON comments (post_id, created_at DESC, id DESC);
@@ -0,0 +1,9 @@
+-- IDENTITY ids are assigned by the INSERT itself, which stops Hibernate from batching inserts. A sequence with
+-- INCREMENT BY 50 lets the pooled optimizer reserve 50 ids per round trip (allocationSize on Comment.id must match).
+CREATE SEQUENCE IF NOT EXISTS comments_seq INCREMENT BY 50;
+SELECT setval('comments_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM comments), false);
+
+-- Inserts that do not supply an id draw from the same sequence, so they can never collide with pooled ids.
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT nextval('comments_seq');
+ALTER SEQUENCE comments_seq OWNED BY comments.id;
@@ -0,0 +1,10 @@
+-- Per-post comment counts, maintained from the service's write events (see CommentCountTracker) so count reads
+-- never scan comments. Rows for posts that lost all their comments are kept at 0.
+CREATE TABLE IF NOT EXISTS post_comment_counts (
+    post_id BIGINT PRIMARY KEY,
+    comment_count BIGINT NOT NULL
+);
+
+INSERT INTO post_comment_counts (post_id, comment_count)
+SELECT post_id, COUNT(*) FROM comments GROUP BY post_id
+ON CONFLICT (post_id) DO UPDATE SET comment_count = EXCLUDED.comment_count;
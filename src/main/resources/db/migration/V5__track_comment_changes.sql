@@ -0,0 +1,57 @@
+-- Change feed for live threads (GET /api/comments/post/{postId}/changes).
+--
+-- Every comment row carries the id of the transaction that last wrote it, and deletes leave a tombstone carrying
+-- the deleting transaction's id. A reader only returns changes of transactions older than its snapshot's xmin,
+-- i.e. transactions that have all finished, so a slow commit can never land behind a cursor that already moved
+-- past it, which a timestamp or sequence cursor would allow. Triggers keep this true for every write path:
+-- JPA, the JDBC and R2DBC statements, and set-based post deletes.
+--
+-- On a large existing table, the UPDATE below rewrites every row; run it in batches by hand first if needed.
+ALTER TABLE comments ADD COLUMN IF NOT EXISTS change_txid BIGINT;
+UPDATE comments SET change_txid = txid_current() WHERE change_txid IS NULL;
+ALTER TABLE comments ALTER COLUMN change_txid SET DEFAULT txid_current();
+ALTER TABLE comments ALTER COLUMN change_txid SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_comments_post_id_change_txid_id
+    ON comments (post_id, change_txid, id);
+
+CREATE TABLE IF NOT EXISTS comment_tombstones (
+    comment_id BIGINT PRIMARY KEY,
+    post_id BIGINT NOT NULL,
+    change_txid BIGINT NOT NULL DEFAULT txid_current(),
+    deleted_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_comment_tombstones_post_id_change_txid_comment_id
+    ON comment_tombstones (post_id, change_txid, comment_id);
+CREATE INDEX IF NOT EXISTS idx_comment_tombstones_deleted_at
+    ON comment_tombstones (deleted_at);
+
+CREATE OR REPLACE FUNCTION comments_set_change_txid() RETURNS trigger AS $$
+BEGIN
+    NEW.change_txid := txid_current();
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS comments_change_txid ON comments;
+CREATE TRIGGER comments_change_txid
+    BEFORE UPDATE ON comments
+    FOR EACH ROW EXECUTE FUNCTION comments_set_change_txid();
+
+-- Statement level with a transition table: a post delete removing thousands of rows adds its tombstones with a
+-- single INSERT ... SELECT instead of one trigger call per row.
+CREATE OR REPLACE FUNCTION comments_record_tombstones() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO comment_tombstones (comment_id, post_id)
+    SELECT id, post_id FROM deleted_comments
+    ON CONFLICT (comment_id) DO NOTHING;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS comments_tombstones ON comments;
+CREATE TRIGGER comments_tombstones
+    AFTER DELETE ON comments
+    REFERENCING OLD TABLE AS deleted_comments
+    FOR EACH STATEMENT EXECUTE FUNCTION comments_record_tombstones();
@@ -0,0 +1,15 @@
+-- Full-text search over comment text, name and email (GET /api/comments/search).
+-- A stored generated column follows every write path (JPA, JDBC batches, R2DBC) without application code, and
+-- ranking reads it instead of re-parsing the text of every match. Name matches weigh most, then email, then text.
+-- An address is parsed as a single token, so its local part and domain are indexed on their own as well.
+-- Adding the column rewrites the table under an exclusive lock: on a large existing table, schedule this
+-- migration for a quiet window.
+ALTER TABLE comments ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(name, '')), 'A')
+            || setweight(to_tsvector('english', coalesce(email, '') || ' ' || replace(coalesce(email, ''), '@', ' ')), 'B')
+            || setweight(to_tsvector('english', coalesce(comment, '')), 'C')
+    ) STORED;
+
+-- As with V2, build it by hand with CREATE INDEX CONCURRENTLY under the same name first to avoid blocking writes.
+CREATE INDEX IF NOT EXISTS idx_comments_search_vector ON comments USING GIN (search_vector);
@@ -0,0 +1,81 @@
+-- Partitions comments by ranges of post ids. Post ids grow with post age, so a range partition holds the threads
+-- of posts from one period: every thread read, page and post delete (WHERE post_id = ?) is pruned to a single
+-- partition, the indexes of the partitions of recent posts stay the size of recent data, and autovacuum only
+-- keeps revisiting the partitions that still change. CommentPartitionManager creates partitions ahead of new
+-- posts and archives cold ones; comment_archived_partitions records which ones it has archived.
+--
+-- The existing table is attached as the first partition, covering every post id up to the next multiple of
+-- 100000 (comment.partition.posts-per-partition), instead of being copied. Rebuilding its primary key as
+-- (id, post_id) and checking the partition bound each read the whole table under an exclusive lock: on a large
+-- existing table, schedule this migration for a quiet window. Requires PostgreSQL 13 or later (row triggers on
+-- partitioned tables).
+ALTER TABLE comments RENAME TO comments_p0;
+ALTER INDEX idx_comments_post_id_created_at_id RENAME TO comments_p0_post_id_created_at_id_idx;
+ALTER INDEX idx_comments_post_id_change_txid_id RENAME TO comments_p0_post_id_change_txid_id_idx;
+ALTER INDEX idx_comments_search_vector RENAME TO comments_p0_search_vector_idx;
+DROP TRIGGER comments_change_txid ON comments_p0;
+DROP TRIGGER comments_tombstones ON comments_p0;
+
+-- A unique constraint of a partitioned table has to include the partition key. Ids still come from one sequence
+-- and stay unique on their own.
+DO $$
+DECLARE
+    primary_key TEXT;
+BEGIN
+    SELECT conname INTO primary_key FROM pg_constraint WHERE conrelid = 'comments_p0'::regclass AND contype = 'p';
+    EXECUTE format('ALTER TABLE comments_p0 DROP CONSTRAINT %I', primary_key);
+END
+$$;
+ALTER TABLE comments_p0 ADD CONSTRAINT comments_p0_pkey PRIMARY KEY (id, post_id);
+
+CREATE TABLE comments (
+    id            BIGINT       NOT NULL DEFAULT nextval('comments_seq'),
+    name          VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    comment       TEXT         NOT NULL,
+    post_id       BIGINT       NOT NULL,
+    created_at    TIMESTAMP(6),
+    updated_at    TIMESTAMP(6),
+    change_txid   BIGINT       NOT NULL DEFAULT txid_current(),
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(name, '')), 'A')
+            || setweight(to_tsvector('english', coalesce(email, '') || ' ' || replace(coalesce(email, ''), '@', ' ')), 'B')
+            || setweight(to_tsvector('english', coalesce(comment, '')), 'C')
+    ) STORED,
+    CONSTRAINT comments_pkey PRIMARY KEY (id, post_id)
+) PARTITION BY RANGE (post_id);
+
+ALTER SEQUENCE comments_seq OWNED BY comments.id;
+
+CREATE INDEX idx_comments_post_id_created_at_id ON comments (post_id, created_at DESC, id DESC);
+CREATE INDEX idx_comments_post_id_change_txid_id ON comments (post_id, change_txid, id);
+CREATE INDEX idx_comments_search_vector ON comments USING GIN (search_vector);
+
+-- Same triggers as V5, now on the partitioned table: the row trigger is cloned to every partition, and the
+-- statement trigger sees the rows deleted from all partitions in its transition table.
+CREATE TRIGGER comments_change_txid
+    BEFORE UPDATE ON comments
+    FOR EACH ROW EXECUTE FUNCTION comments_set_change_txid();
+
+CREATE TRIGGER comments_tombstones
+    AFTER DELETE ON comments
+    REFERENCING OLD TABLE AS deleted_comments
+    FOR EACH STATEMENT EXECUTE FUNCTION comments_record_tombstones();
+
+-- The existing indexes match the partitioned ones and are attached rather than rebuilt.
+DO $$
+DECLARE
+    upper_bound BIGINT;
+BEGIN
+    SELECT (COALESCE(MAX(post_id), 0) / 100000 + 1) * 100000 INTO upper_bound FROM comments_p0;
+    EXECUTE format('ALTER TABLE comments ATTACH PARTITION comments_p0 FOR VALUES FROM (MINVALUE) TO (%s)', upper_bound);
+END
+$$;
+
+-- Catches comments of posts beyond the created partitions until the manager has created theirs.
+CREATE TABLE comments_default PARTITION OF comments DEFAULT;
+
+CREATE TABLE IF NOT EXISTS comment_archived_partitions (
+    partition_name TEXT PRIMARY KEY,
+    archived_at    TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,22 @@
+-- Safeguards of the write-behind ingest path (see WriteBehindCommentWriter).
+--
+-- A post delete on one instance cannot see comments still waiting in another instance's ingest log. Every post
+-- delete records when it began, and the drainers do not insert logged comments of the post created up to then.
+-- One row per deleted post, kept for as long as an ingest log might still hold comments of it.
+CREATE TABLE IF NOT EXISTS post_deletions (
+    post_id BIGINT PRIMARY KEY,
+    deleted_at TIMESTAMP NOT NULL
+);
+
+-- Logged comments the database refused outright. They were acknowledged to their authors, so they are kept here
+-- for inspection and manual repair rather than dropped. Columns are unconstrained so that any row fits.
+CREATE TABLE IF NOT EXISTS comment_ingest_dead_letters (
+    id BIGINT PRIMARY KEY,
+    post_id BIGINT,
+    name TEXT,
+    email TEXT,
+    comment TEXT,
+    created_at TIMESTAMP,
+    error TEXT NOT NULL,
+    failed_at TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,14 @@
+-- Counts replaced by a recount or reconciliation remember when they were taken. Deltas still buffered by any
+-- instance for writes seen before then are already part of the count and are left out when flushed (see
+-- PostCommentCountRepository), so a recount racing buffered deltas no longer counts those writes twice.
+ALTER TABLE post_comment_counts ADD COLUMN IF NOT EXISTS counted_at TIMESTAMP;
+
+-- When the full reconciliation last ran. Instances claim this row before scanning the comments table, so the scan
+-- runs on one instance per interval rather than on all of them.
+CREATE TABLE IF NOT EXISTS post_comment_count_reconciliations (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    reconciled_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO post_comment_count_reconciliations (id, reconciled_at) VALUES (1, TIMESTAMP '-infinity')
+ON CONFLICT (id) DO NOTHING;
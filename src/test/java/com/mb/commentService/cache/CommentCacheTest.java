@@ -0,0 +1,206 @@
+package com.mb.commentService.cache;
+
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import com.mb.commentService.event.CommentEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CommentCache commentCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        commentCache = new CommentCache(new CommentCacheProperties(), meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void getThread_isLoadedOncePerGeneration() {
+        commentCache.getThread(10L, this::loadThread);
+        commentCache.getThread(10L, this::loadThread);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void createdEvent_refreshesHeadButKeepsCursorPages() {
+        commentCache.getPage(10L, null, 20, this::loadPage);
+        commentCache.getPage(10L, "cursor", 20, this::loadPage);
+        commentCache.getThread(10L, this::loadThread);
+
+        commentCache.onCommentEvent(CommentEvent.created(comment(3L, 10L)));
+
+        commentCache.getPage(10L, null, 20, this::loadPage);
+        commentCache.getPage(10L, "cursor", 20, this::loadPage);
+        commentCache.getThread(10L, this::loadThread);
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void updatedEvent_dropsAllPagesOfPostAndPatchesComment() {
+        commentCache.getPage(10L, "cursor", 20, this::loadPage);
+        commentCache.getPage(20L, "cursor", 20, this::loadPage);
+        CommentDto updated = comment(1L, 10L);
+        updated.setComment("edited");
+
+        commentCache.onCommentEvent(CommentEvent.updated(updated));
+
+        commentCache.getPage(10L, "cursor", 20, this::loadPage);
+        commentCache.getPage(20L, "cursor", 20, this::loadPage);
+        assertEquals(3, loads.get());
+        assertEquals("edited", commentCache.getComment(1L, id -> fail("should be cached")).getComment());
+    }
+
+    @Test
+    void postDeletedEvent_dropsCommentsOfThatPostOnly() {
+        commentCache.getComment(1L, id -> comment(id, 10L));
+        commentCache.getComment(2L, id -> comment(id, 20L));
+
+        commentCache.onCommentEvent(CommentEvent.postDeleted(10L));
+
+        assertEquals(20L, commentCache.getComment(2L, id -> fail("should be cached")).getPostId());
+        assertEquals(10L, commentCache.getComment(1L, id -> {
+            loads.incrementAndGet();
+            return comment(id, 10L);
+        }).getPostId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void concurrentMisses_shareOneLoadWithoutBlockingOtherKeys() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CommentDto> first = executor.submit(() -> commentCache.getComment(1L, id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                awaitQuietly(release);
+                return comment(id, 10L);
+            }));
+            loading.await();
+
+            assertEquals(2L, commentCache.getComment(2L, id -> comment(id, 20L)).getId());
+            Future<CommentDto> second = executor.submit(() -> commentCache.getComment(1L, id -> {
+                loads.incrementAndGet();
+                return comment(id, 10L);
+            }));
+            release.countDown();
+
+            assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(1L, second.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoad_isRethrownAndNotCached() {
+        assertThrows(IllegalStateException.class,
+                () -> commentCache.getComment(1L, id -> {
+                    throw new IllegalStateException("database unavailable");
+                }));
+
+        assertEquals(1L, commentCache.getComment(1L, id -> comment(id, 10L)).getId());
+    }
+
+    @Test
+    void cachedThreads_areImmutable() {
+        List<CommentDto> thread = commentCache.getThread(10L, this::loadThread);
+
+        assertThrows(UnsupportedOperationException.class, () -> thread.add(comment(9L, 10L)));
+    }
+
+    @Test
+    void hitsAndMisses_areExposedAsMetrics() {
+        commentCache.getComment(1L, id -> comment(id, 10L));
+        commentCache.getComment(1L, id -> comment(id, 10L));
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "comments.byId").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "comments.byId").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void getHeadPages_loadsOnlyUncachedPostsAndSharesEntriesWithGetPage() {
+        commentCache.getPage(10L, null, 3, this::loadPage);
+        List<Set<Long>> loaded = new ArrayList<>();
+
+        Map<Long, CommentPageDto> pages = commentCache.getHeadPages(List.of(30L, 10L, 20L), 3, postIds -> {
+            loaded.add(postIds);
+            Map<Long, CommentPageDto> result = new HashMap<>();
+            postIds.forEach(postId -> result.put(postId, new CommentPageDto(List.of(comment(postId, postId)), null)));
+            return result;
+        });
+        commentCache.getHeadPages(List.of(10L, 20L, 30L), 3, postIds -> fail("all pages should be cached"));
+        commentCache.getPage(20L, null, 3, this::loadPage);
+
+        assertEquals(List.of(Set.of(30L, 20L)), loaded);
+        assertEquals(List.of(30L, 10L, 20L), List.copyOf(pages.keySet()));
+        assertEquals(1L, pages.get(10L).getComments().get(0).getId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void disabledCache_alwaysCallsLoader() {
+        CommentCacheProperties properties = new CommentCacheProperties();
+        properties.setEnabled(false);
+        CommentCache disabled = new CommentCache(properties, meterRegistry);
+
+        disabled.getThread(10L, this::loadThread);
+        disabled.getThread(10L, this::loadThread);
+
+        assertEquals(2, loads.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<CommentDto> loadThread() {
+        loads.incrementAndGet();
+        return List.of(comment(1L, 10L), comment(2L, 10L));
+    }
+
+    private CommentPageDto loadPage() {
+        loads.incrementAndGet();
+        return new CommentPageDto(List.of(comment(1L, 10L)), null);
+    }
+
+    private CommentDto comment(Long id, Long postId) {
+        CommentDto dto = new CommentDto();
+        dto.setId(id);
+        dto.setName("John");
+        dto.setEmail("john@example.com");
+        dto.setComment("Hello!");
+        dto.setPostId(postId);
+        return dto;
+    }
+}
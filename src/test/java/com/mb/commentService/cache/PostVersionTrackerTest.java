@@ -0,0 +1,74 @@
+package com.mb.commentService.cache;
+
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostVersionTrackerTest {
+
+    private PostVersionTracker postVersions;
+
+    @BeforeEach
+    void setUp() {
+        postVersions = new PostVersionTracker(new CommentCacheProperties());
+    }
+
+    @Test
+    void quietPosts_shareTheFloor() {
+        assertEquals(postVersions.lastModified(10L), postVersions.lastModified(20L));
+    }
+
+    @Test
+    void everyWrite_movesOnlyItsPostForward() {
+        long quiet = postVersions.lastModified(20L);
+        long before = postVersions.lastModified(10L);
+
+        // A comment timestamp older than the current version still has to produce a new one.
+        postVersions.onCommentEvent(CommentEvent.created(comment(10L, LocalDateTime.now().minusDays(1))));
+        long created = postVersions.lastModified(10L);
+        postVersions.onCommentEvent(CommentEvent.deleted(1L, 10L));
+        long deleted = postVersions.lastModified(10L);
+        postVersions.touch(10L);
+
+        assertTrue(before < created && created < deleted && deleted < postVersions.lastModified(10L));
+        assertEquals(quiet, postVersions.lastModified(20L));
+    }
+
+    @Test
+    void reset_changesEveryVersion() {
+        postVersions.touch(10L);
+        long touched = postVersions.lastModified(10L);
+        long quiet = postVersions.lastModified(20L);
+
+        postVersions.reset();
+
+        assertTrue(postVersions.lastModified(10L) > touched);
+        assertTrue(postVersions.lastModified(20L) > quiet);
+    }
+
+    @Test
+    void writtenSince_coversWrittenPostsAndEverythingAfterAReset() throws InterruptedException {
+        long since = System.currentTimeMillis() + 1;
+        Thread.sleep(5);
+        assertFalse(postVersions.writtenSince(10L, since));
+
+        postVersions.touch(10L);
+
+        assertTrue(postVersions.writtenSince(10L, since));
+        assertFalse(postVersions.writtenSince(20L, since));
+
+        postVersions.reset();
+
+        assertTrue(postVersions.writtenSince(20L, since));
+    }
+
+    private static CommentDto comment(Long postId, LocalDateTime createdAt) {
+        return new CommentDto(1L, "John", "john@example.com", "Hello!", postId, createdAt, createdAt);
+    }
+}
@@ -0,0 +1,243 @@
+package com.mb.commentService.cache.bus;
+
+import com.mb.commentService.cache.CommentCache;
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs three replicas in one JVM against a stand-in registry, with an in-memory transport that can drop batches.
+ */
+class CacheInvalidationBusTest {
+
+    private static final String SERVICE_ID = "comment-service";
+
+    private final Map<String, Replica> replicas = new HashMap<>();
+    private final List<CacheInvalidationBatch> delivered = new ArrayList<>();
+    private final Set<String> unreachable = new HashSet<>();
+    private SimpleDiscoveryClient registry;
+
+    @BeforeEach
+    void setUp() {
+        List<DefaultServiceInstance> instances = new ArrayList<>();
+        for (String id : List.of("a", "b", "c")) {
+            instances.add(new DefaultServiceInstance(id, SERVICE_ID, "10.0.0." + (instances.size() + 1), 8081, false));
+        }
+        SimpleDiscoveryProperties registryProperties = new SimpleDiscoveryProperties();
+        registryProperties.setInstances(Map.of(SERVICE_ID, instances));
+        registry = new SimpleDiscoveryClient(registryProperties);
+
+        PeerTransport transport = this::deliver;
+        for (DefaultServiceInstance instance : instances) {
+            CommentCache cache = new CommentCache(new CommentCacheProperties(), new SimpleMeterRegistry());
+            CacheInvalidationBus bus = new CacheInvalidationBus(cache, new PostVersionTracker(new CommentCacheProperties()),
+                    registry, transport,
+                    enabledBus(), SERVICE_ID, instance.getInstanceId());
+            replicas.put(instance.getInstanceId(), new Replica(cache, bus));
+        }
+    }
+
+    @Test
+    void writeOnOneReplica_invalidatesPeers() {
+        warmUp();
+        replicas.get("a").bus.onCommentEvent(CommentEvent.updated(comment(1L, 10L)));
+        replicas.get("a").bus.flush();
+
+        // First contact drops the whole cache; warm again to observe the targeted invalidation on its own.
+        warmUp();
+        replicas.get("a").bus.onCommentEvent(CommentEvent.updated(comment(1L, 10L)));
+        replicas.get("a").bus.flush();
+
+        for (String peer : List.of("b", "c")) {
+            Replica replica = replicas.get(peer);
+            replica.loads.set(0);
+            replica.cache.getThread(10L, replica::loadThread);
+            replica.cache.getThread(20L, replica::loadThread);
+            assertEquals(1, replica.loads.get(), "only post 10 reloads on " + peer);
+        }
+    }
+
+    @Test
+    void eventsAreCoalescedIntoOneCompactBatch() {
+        Replica a = replicas.get("a");
+        a.bus.onCommentEvent(CommentEvent.created(comment(1L, 10L)));
+        a.bus.onCommentEvent(CommentEvent.created(comment(2L, 10L)));
+        a.bus.onCommentEvent(CommentEvent.updated(comment(1L, 10L)));
+        a.bus.onCommentEvent(CommentEvent.created(comment(3L, 20L)));
+        a.bus.flush();
+
+        assertEquals(2, delivered.size(), "one batch per peer");
+        CacheInvalidationBatch batch = delivered.get(0);
+        assertEquals(Set.of(20L), batch.getHeadPostIds());
+        assertEquals(Set.of(10L), batch.getPostIds());
+        assertEquals(Set.of(1L), batch.getCommentIds());
+        assertEquals(1L, batch.getSequence());
+    }
+
+    @Test
+    void missedBatch_dropsWholeCacheOnReceiver() {
+        Replica a = replicas.get("a");
+        Replica b = replicas.get("b");
+        a.bus.onCommentEvent(CommentEvent.created(comment(1L, 10L)));
+        a.bus.flush();
+
+        unreachable.add("b");
+        a.bus.onCommentEvent(CommentEvent.updated(comment(1L, 30L)));
+        a.bus.flush();
+        unreachable.clear();
+
+        b.cache.getThread(20L, b::loadThread);
+        a.bus.onCommentEvent(CommentEvent.created(comment(2L, 10L)));
+        a.bus.flush();
+
+        b.loads.set(0);
+        b.cache.getThread(20L, b::loadThread);
+        assertEquals(1, b.loads.get(), "unrelated post 20 reloads after the gap");
+    }
+
+    @Test
+    void duplicateBatch_isIgnored() {
+        Replica a = replicas.get("a");
+        Replica b = replicas.get("b");
+        a.bus.onCommentEvent(CommentEvent.created(comment(1L, 10L)));
+        a.bus.flush();
+        CacheInvalidationBatch first = delivered.get(0);
+
+        b.cache.getThread(10L, b::loadThread);
+        b.bus.receive(first);
+
+        b.loads.set(0);
+        b.cache.getThread(10L, b::loadThread);
+        assertEquals(0, b.loads.get());
+    }
+
+    @Test
+    void start_refusesToRunWithoutAToken() {
+        CacheInvalidationBus bus = new CacheInvalidationBus(replicas.get("a").cache,
+                new PostVersionTracker(new CommentCacheProperties()), null, (peer, batch) -> { },
+                enabledBus(), SERVICE_ID, "a");
+
+        assertThrows(IllegalStateException.class, bus::start);
+    }
+
+    @Test
+    void stop_sendsWhatIsPendingFromTheBusThread() {
+        CommentCacheProperties.Bus properties = enabledBus();
+        properties.setToken("secret");
+        properties.setFlushInterval(Duration.ofHours(1));
+        List<String> senders = new ArrayList<>();
+        CacheInvalidationBus bus = new CacheInvalidationBus(replicas.get("a").cache,
+                new PostVersionTracker(new CommentCacheProperties()), registry,
+                (peer, batch) -> senders.add(Thread.currentThread().getName()), properties, SERVICE_ID, "a");
+        bus.start();
+        bus.onCommentEvent(CommentEvent.updated(comment(1L, 10L)));
+
+        bus.stop();
+
+        assertEquals(List.of("cache-invalidation-bus", "cache-invalidation-bus"), senders);
+    }
+
+    @Test
+    void defaultConfiguration_startsWithoutTheBus() {
+        CacheInvalidationBus bus = new CacheInvalidationBus(replicas.get("a").cache,
+                new PostVersionTracker(new CommentCacheProperties()), null, (peer, batch) -> { },
+                new CommentCacheProperties.Bus(), SERVICE_ID, "a");
+
+        assertDoesNotThrow(bus::start);
+        bus.onCommentEvent(CommentEvent.updated(comment(1L, 10L)));
+        bus.flush();
+        bus.stop();
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    void trackedSources_areBounded() {
+        CommentCacheProperties.Bus properties = enabledBus();
+        properties.setMaxSources(1);
+        Replica b = replicas.get("b");
+        CacheInvalidationBus bus = new CacheInvalidationBus(b.cache, new PostVersionTracker(new CommentCacheProperties()),
+                null, (peer, batch) -> { }, properties, SERVICE_ID, "b");
+        for (int source = 0; source < 100; source++) {
+            bus.receive(new CacheInvalidationBatch("forged-" + source, 1L, 1L, Set.of(), Set.of(), Set.of(), Set.of()));
+        }
+        b.cache.getThread(10L, b::loadThread);
+
+        // The evicted source counts as new again, which drops the cache rather than trusting a stale sequence.
+        bus.receive(new CacheInvalidationBatch("forged-0", 1L, 2L, Set.of(), Set.of(), Set.of(), Set.of()));
+
+        b.loads.set(0);
+        b.cache.getThread(10L, b::loadThread);
+        assertEquals(1, b.loads.get());
+    }
+
+    @Test
+    void emptyFlush_sendsNothing() {
+        replicas.get("a").bus.flush();
+
+        assertTrue(delivered.isEmpty());
+    }
+
+    private void deliver(ServiceInstance peer, CacheInvalidationBatch batch) {
+        if (unreachable.contains(peer.getInstanceId())) {
+            throw new IllegalStateException("connection refused");
+        }
+        delivered.add(batch);
+        replicas.get(peer.getInstanceId()).bus.receive(batch);
+    }
+
+    private void warmUp() {
+        replicas.values().forEach(replica -> {
+            replica.cache.getThread(10L, replica::loadThread);
+            replica.cache.getThread(20L, replica::loadThread);
+        });
+    }
+
+    private static CommentCacheProperties.Bus enabledBus() {
+        CommentCacheProperties.Bus properties = new CommentCacheProperties.Bus();
+        properties.setEnabled(true);
+        return properties;
+    }
+
+    private static CommentDto comment(Long id, Long postId) {
+        CommentDto dto = new CommentDto();
+        dto.setId(id);
+        dto.setPostId(postId);
+        dto.setComment("Hello!");
+        return dto;
+    }
+
+    private static class Replica {
+        private final CommentCache cache;
+        private final CacheInvalidationBus bus;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        Replica(CommentCache cache, CacheInvalidationBus bus) {
+            this.cache = cache;
+            this.bus = bus;
+        }
+
+        List<CommentDto> loadThread() {
+            loads.incrementAndGet();
+            return List.of(comment(1L, 10L));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mb.commentService.cache.bus;
+
+import com.mb.commentService.config.CommentCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationControllerTest {
+
+    private final CacheInvalidationBatch batch =
+            new CacheInvalidationBatch("peer", 1L, 1L, Set.of(10L), Set.of(), Set.of(), Set.of());
+
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Spy
+    private CommentCacheProperties cacheProperties = new CommentCacheProperties();
+
+    @InjectMocks
+    private CacheInvalidationController controller;
+
+    @BeforeEach
+    void setUp() {
+        cacheProperties.getBus().setToken("secret");
+    }
+
+    @Test
+    void batchWithTheToken_isApplied() {
+        assertEquals(HttpStatus.NO_CONTENT, controller.invalidate("secret", batch).getStatusCode());
+
+        verify(cacheInvalidationBus).receive(batch);
+    }
+
+    @Test
+    void batchWithoutTheToken_isRejected() {
+        assertEquals(HttpStatus.FORBIDDEN, controller.invalidate(null, batch).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.invalidate("secreT", batch).getStatusCode());
+
+        verifyNoInteractions(cacheInvalidationBus);
+    }
+
+    @Test
+    void blankConfiguredToken_rejectsEverything() {
+        cacheProperties.getBus().setToken("");
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.invalidate("", batch).getStatusCode());
+        verifyNoInteractions(cacheInvalidationBus);
+    }
+}
@@ -1,7 +1,19 @@
 package com.mb.commentService.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.BulkItemResultDto;
+import com.mb.commentService.dto.CommentChangesDto;
 import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import com.mb.commentService.dto.CommentThreadDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.RateLimitExceededException;
+import com.mb.commentService.ratelimit.CommentRateLimiter;
 import com.mb.commentService.service.impl.CommentServiceImpl;
+import com.mb.commentService.stream.CommentStreamHub;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,9 +24,19 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +47,21 @@ class CommentControllerTest {
     @Mock
     private CommentServiceImpl commentService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private CommentWriteProperties writeProperties = new CommentWriteProperties();
+
+    @Spy
+    private PostVersionTracker postVersions = new PostVersionTracker(new CommentCacheProperties());
+
+    @Mock
+    private CommentStreamHub streamHub;
+
+    @Mock
+    private CommentRateLimiter rateLimiter;
+
     @InjectMocks
     private CommentController commentController;
 
@@ -79,6 +116,18 @@ class CommentControllerTest {
         verify(commentService, times(1)).createComment(validDto);
     }
 
+    @Test
+    void createComment_overItsLimits_isRejectedBeforeTheService() {
+        doThrow(new RateLimitExceededException("Too many comments from this author, retry later", Duration.ofSeconds(12)))
+                .when(rateLimiter).checkCreate("john@example.com", 100L);
+
+        RateLimitExceededException ex = assertThrows(RateLimitExceededException.class,
+                () -> commentController.createComment(validDto));
+
+        assertEquals(12, ex.getRetryAfterSeconds());
+        verify(commentService, never()).createComment(any());
+    }
+
     @Test
     void getCommentById() {
         when(commentService.getCommentById(1L)).thenReturn(savedDto);
@@ -96,7 +145,7 @@ class CommentControllerTest {
     void getCommentsByPostId() {
         when(commentService.getCommentsByPostId(100L)).thenReturn(commentList);
 
-        ResponseEntity<List<CommentDto>> response = commentController.getCommentsByPostId(100L);
+        ResponseEntity<List<CommentDto>> response = commentController.getCommentsByPostId(100L, webRequest(null));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -105,6 +154,102 @@ class CommentControllerTest {
         verify(commentService, times(1)).getCommentsByPostId(100L);
     }
 
+    @Test
+    void getCommentThreadByPostId_statesPostIdOnce() throws Exception {
+        when(commentService.getCommentsByPostId(100L)).thenReturn(commentList);
+
+        ResponseEntity<CommentThreadDto> response = commentController.getCommentThreadByPostId(100L, webRequest(null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("Accept"), response.getHeaders().getVary());
+        String json = objectMapper.writeValueAsString(response.getBody());
+        assertTrue(json.startsWith("{\"postId\":100,\"comments\":["), json);
+        assertEquals(1, json.split("postId", -1).length - 1, json);
+    }
+
+    @Test
+    void getCommentsPageByPostId() {
+        CommentPageDto page = new CommentPageDto(commentList, "cursor");
+        when(commentService.getCommentsPageByPostId(100L, null, 3)).thenReturn(page);
+
+        ResponseEntity<CommentPageDto> response = commentController.getCommentsPageByPostId(100L, null, 3, webRequest(null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(3, response.getBody().getComments().size());
+        assertEquals("cursor", response.getBody().getNextCursor());
+    }
+
+    @Test
+    void searchComments() {
+        CommentPageDto page = new CommentPageDto(commentList, "cursor");
+        when(commentService.searchComments("great post", 100L, null, 3)).thenReturn(page);
+
+        ResponseEntity<CommentPageDto> response = commentController.searchComments("great post", 100L, null, 3);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, response.getBody());
+    }
+
+    @Test
+    void getCommentsByPostId_answersCurrentEtagWith304WithoutReadingComments() {
+        when(commentService.getCommentsByPostId(100L)).thenReturn(commentList);
+        String etag = commentController.getCommentsByPostId(100L, webRequest(null)).getHeaders().getETag();
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        ResponseEntity<List<CommentDto>> response = commentController.getCommentsByPostId(100L, webRequest(etag, notModified));
+
+        assertNull(response);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified.getStatus());
+        assertEquals(etag, notModified.getHeader("ETag"));
+        verify(commentService, times(1)).getCommentsByPostId(100L);
+    }
+
+    @Test
+    void getCommentsByPostId_newEtagAfterWriteToPost() {
+        when(commentService.getCommentsByPostId(100L)).thenReturn(commentList);
+        String etag = commentController.getCommentsByPostId(100L, webRequest(null)).getHeaders().getETag();
+
+        postVersions.onCommentEvent(CommentEvent.deleted(1L, 100L));
+        ResponseEntity<List<CommentDto>> response = commentController.getCommentsByPostId(100L, webRequest(etag));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(etag, response.getHeaders().getETag());
+        verify(commentService, times(2)).getCommentsByPostId(100L);
+    }
+
+    @Test
+    void subscribeToComments_takesChangeCursorBeforeSubscribing() {
+        SseEmitter emitter = new SseEmitter();
+        when(commentService.getCommentChanges(100L, null, null))
+                .thenReturn(new CommentChangesDto(List.of(), List.of(), "cursor", false));
+        when(streamHub.subscribe(100L, "cursor")).thenReturn(emitter);
+
+        assertSame(emitter, commentController.subscribeToComments(100L));
+        var order = inOrder(commentService, streamHub);
+        order.verify(commentService).getCommentChanges(100L, null, null);
+        order.verify(streamHub).subscribe(100L, "cursor");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamCommentsByPostId() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<CommentDto> consumer = invocation.getArgument(1);
+            commentList.forEach(consumer);
+            return null;
+        }).when(commentService).streamCommentsByPostId(eq(100L), any(Consumer.class));
+
+        ResponseEntity<StreamingResponseBody> response = commentController.streamCommentsByPostId(100L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        CommentDto[] streamed = objectMapper.readValue(out.toByteArray(), CommentDto[].class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, streamed.length);
+        assertEquals(2L, streamed[1].getId());
+    }
+
     @Test
     void updateComment() {
         when(commentService.updateComment(1L, savedDto)).thenReturn(savedDto);
@@ -128,9 +273,137 @@ class CommentControllerTest {
 
     @Test
     void deleteCommentsByPostId() {
+        when(commentService.deleteCommentsByPostId(100L)).thenReturn(3L);
+
         ResponseEntity<Void> response = commentController.deleteCommentsByPostId(100L);
 
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertEquals("3", response.getHeaders().getFirst("X-Deleted-Count"));
         verify(commentService, times(1)).deleteCommentsByPostId(100L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createComments_json_returnsPerItemResults() {
+        List<BulkItemResultDto> results = List.of(new BulkItemResultDto(0, 1L, BulkItemResultDto.Status.CREATED, null));
+        when(commentService.createComments(List.of(validDto))).thenReturn(results);
+
+        ResponseEntity<List<BulkItemResultDto>> response = commentController.createComments(List.of(validDto), writeRequest());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(results, response.getBody());
+    }
+
+    @Test
+    void createComments_ndjson_processesChunksAndOffsetsIndexes() throws Exception {
+        writeProperties.getBulk().setChunkSize(2);
+        String line = "{\"name\":\"John\",\"email\":\"john@example.com\",\"comment\":\"Hi\",\"postId\":100}\n";
+        when(commentService.createComments(anyList())).thenAnswer(invocation -> {
+            List<CommentDto> chunk = invocation.getArgument(0);
+            List<BulkItemResultDto> results = new java.util.ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(new BulkItemResultDto(i, 1L, BulkItemResultDto.Status.CREATED, null));
+            }
+            return results;
+        });
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        commentController.createComments(new ByteArrayInputStream(line.repeat(3).getBytes(StandardCharsets.UTF_8)),
+                writeRequest(), response);
+
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(2, objectMapper.readValue(lines[2], BulkItemResultDto.class).getIndex());
+        assertEquals("application/x-ndjson", response.getContentType());
+        verify(commentService, times(2)).createComments(anyList());
+    }
+
+    @Test
+    void deleteComments_ndjson_stopsAtMalformedLine() throws Exception {
+        when(commentService.deleteComments(List.of(1L, 2L))).thenReturn(List.of(
+                new BulkItemResultDto(0, 1L, BulkItemResultDto.Status.DELETED, null),
+                new BulkItemResultDto(1, 2L, BulkItemResultDto.Status.DELETED, null)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        commentController.deleteComments(new ByteArrayInputStream("1\n2\n{oops\n3\n".getBytes(StandardCharsets.UTF_8)),
+                writeRequest(), response);
+
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        BulkItemResultDto last = objectMapper.readValue(lines[2], BulkItemResultDto.class);
+        assertEquals(2, last.getIndex());
+        assertEquals(BulkItemResultDto.Status.INVALID, last.getStatus());
+        verify(commentService, times(1)).deleteComments(anyList());
+    }
+
+    @Test
+    void createComments_json_chargesTheClientPerItem_andLimitsEachItemsAuthorAndPost() {
+        CommentDto limited = new CommentDto();
+        limited.setEmail("busy@example.com");
+        limited.setPostId(100L);
+        lenient().doThrow(new RateLimitExceededException("Too many comments from this author, retry later",
+                Duration.ofSeconds(6))).when(rateLimiter).checkCreate("busy@example.com", 100L);
+        when(commentService.createComments(List.of(validDto, validDto))).thenReturn(List.of(
+                new BulkItemResultDto(0, 1L, BulkItemResultDto.Status.CREATED, null),
+                new BulkItemResultDto(1, 2L, BulkItemResultDto.Status.CREATED, null)));
+
+        List<BulkItemResultDto> results = commentController.createComments(List.of(validDto, limited, validDto),
+                writeRequest()).getBody();
+
+        verify(rateLimiter).checkClient("10.0.0.1", 2);
+        verify(rateLimiter, times(2)).checkCreate("john@example.com", 100L);
+        assertEquals(List.of(0, 1, 2), results.stream().map(BulkItemResultDto::getIndex).toList());
+        assertEquals(2L, results.get(2).getId());
+        assertEquals(BulkItemResultDto.Status.RATE_LIMITED, results.get(1).getStatus());
+    }
+
+    @Test
+    void deleteComments_json_overTheClientsLimit_isRejectedBeforeTheService() {
+        doThrow(new RateLimitExceededException("Too many writes from this client, retry later", Duration.ofSeconds(30)))
+                .when(rateLimiter).checkClient("10.0.0.1", 2);
+
+        assertThrows(RateLimitExceededException.class,
+                () -> commentController.deleteComments(List.of(1L, 2L, 3L), writeRequest()));
+        verify(commentService, never()).deleteComments(anyList());
+    }
+
+    @Test
+    void deleteComments_ndjson_chunkOverTheClientsLimit_isAnsweredRateLimitedAndEndsTheRequest() throws Exception {
+        writeProperties.getBulk().setChunkSize(2);
+        when(commentService.deleteComments(List.of(1L, 2L))).thenReturn(List.of(
+                new BulkItemResultDto(0, 1L, BulkItemResultDto.Status.DELETED, null),
+                new BulkItemResultDto(1, 2L, BulkItemResultDto.Status.DELETED, null)));
+        lenient().doThrow(new RateLimitExceededException("Too many writes from this client, retry later",
+                Duration.ofSeconds(30))).when(rateLimiter).checkClient("10.0.0.1", 2);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        commentController.deleteComments(new ByteArrayInputStream("1\n2\n3\n4\n5\n".getBytes(StandardCharsets.UTF_8)),
+                writeRequest(), response);
+
+        // The first chunk is charged one write less: the filter charged the request's first.
+        verify(rateLimiter).checkClient("10.0.0.1", 1);
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(4, lines.length);
+        BulkItemResultDto last = objectMapper.readValue(lines[3], BulkItemResultDto.class);
+        assertEquals(3, last.getIndex());
+        assertEquals(BulkItemResultDto.Status.RATE_LIMITED, last.getStatus());
+        verify(commentService, times(1)).deleteComments(anyList());
+    }
+
+    private static MockHttpServletRequest writeRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/comments/bulk");
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static ServletWebRequest webRequest(String ifNoneMatch) {
+        return webRequest(ifNoneMatch, new MockHttpServletResponse());
+    }
+
+    private static ServletWebRequest webRequest(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/comments/post/100");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
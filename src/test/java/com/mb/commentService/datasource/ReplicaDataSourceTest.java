@@ -0,0 +1,167 @@
+package com.mb.commentService.datasource;
+
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs against two local PostgreSQL servers, the shared test server as the primary and one of its own as the
+ * replica. Neither is in recovery, so both count as caught up; lag is simulated with a stubbed replica.
+ */
+class ReplicaDataSourceTest {
+
+    private static EmbeddedPostgres replicaServer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReplicaDataSource replicaDataSource;
+
+    @BeforeAll
+    static void startReplica() throws IOException {
+        replicaServer = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopReplica() throws IOException {
+        replicaServer.close();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (replicaDataSource != null) {
+            replicaDataSource.close();
+        }
+    }
+
+    @Test
+    void readsGoToHealthyReplicasInTurn() throws SQLException {
+        DataSource first = spy(replica());
+        DataSource unreachable = spy(dataSource(unusedPort()));
+        DataSource second = spy(replica());
+        replicaDataSource = replicaDataSource(List.of(first, unreachable, second));
+        replicaDataSource.start(Duration.ofMinutes(1));
+
+        assertTrue(replicaDataSource.isHealthy(0));
+        assertFalse(replicaDataSource.isHealthy(1));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(replicaServer.getPort(), port(replicaDataSource));
+        }
+        // One connection each for the health check, then two reads each.
+        verify(first, times(3)).getConnection();
+        verify(second, times(3)).getConnection();
+        verify(unreachable, times(1)).getConnection();
+        assertEquals(2.0, meterRegistry.get("comment.replica.healthy").gauge().value());
+        assertEquals(0.0, meterRegistry.get("comment.replica.primary.fallbacks").counter().count());
+    }
+
+    @Test
+    void pinnedReads_goToThePrimary() throws SQLException {
+        replicaDataSource = replicaDataSource(List.of(replica()));
+        replicaDataSource.start(Duration.ofMinutes(1));
+
+        try (ReplicaRouting.Pin pin = ReplicaRouting.pinPrimary()) {
+            assertEquals(EmbeddedPostgresSupport.postgres().getPort(), port(replicaDataSource));
+        }
+        assertEquals(replicaServer.getPort(), port(replicaDataSource));
+    }
+
+    @Test
+    void replicaGoingAway_fallsBackToThePrimary() throws SQLException {
+        DataSource flaky = spy(replica());
+        replicaDataSource = replicaDataSource(List.of(flaky));
+        replicaDataSource.start(Duration.ofMinutes(1));
+        assertTrue(replicaDataSource.isHealthy(0));
+        doThrow(new SQLException("Connection refused")).when(flaky).getConnection();
+
+        assertEquals(EmbeddedPostgresSupport.postgres().getPort(), port(replicaDataSource));
+        assertFalse(replicaDataSource.isHealthy(0));
+        assertEquals(1.0, meterRegistry.get("comment.replica.primary.fallbacks").counter().count());
+    }
+
+    @Test
+    void laggingReplica_isOutOfRotationUntilItCatchesUp() throws SQLException {
+        DataSource lagging = mock(DataSource.class, RETURNS_DEEP_STUBS);
+        ResultSet replay = mock(ResultSet.class);
+        when(lagging.getConnection().createStatement().executeQuery(anyString())).thenReturn(replay);
+        when(replay.next()).thenReturn(true);
+        when(replay.getBoolean(1)).thenReturn(true);
+        when(replay.getString(2)).thenReturn("0/0");
+        replicaDataSource = replicaDataSource(List.of(lagging));
+
+        replicaDataSource.checkHealth();
+        assertFalse(replicaDataSource.isHealthy(0));
+
+        when(replay.getString(2)).thenReturn("FFFF/0");
+        replicaDataSource.checkHealth();
+        assertTrue(replicaDataSource.isHealthy(0));
+    }
+
+    @Test
+    void connectionsWithOtherCredentials_areNotSupported() {
+        replicaDataSource = replicaDataSource(List.of(replica()));
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> replicaDataSource.getConnection("other", "secret"));
+    }
+
+    @Test
+    void parsePosition_ordersWalPositions() {
+        assertEquals(0x16_B374_D848L, ReplicaDataSource.parsePosition("16/B374D848"));
+        assertTrue(ReplicaDataSource.parsePosition("1/0") > ReplicaDataSource.parsePosition("0/FFFFFFFF"));
+    }
+
+    private ReplicaDataSource replicaDataSource(List<DataSource> replicas) {
+        List<String> names = IntStream.range(0, replicas.size()).mapToObj(i -> "replica-" + i).toList();
+        return new ReplicaDataSource(EmbeddedPostgresSupport.postgres().getPostgresDatabase(), replicas, names,
+                Duration.ofSeconds(2), meterRegistry);
+    }
+
+    private static DataSource replica() {
+        return dataSource(replicaServer.getPort());
+    }
+
+    private static DataSource dataSource(int port) {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setServerNames(new String[]{"localhost"});
+        dataSource.setPortNumbers(new int[]{port});
+        dataSource.setDatabaseName("postgres");
+        dataSource.setUser("postgres");
+        dataSource.setConnectTimeout(1);
+        return dataSource;
+    }
+
+    private static int unusedPort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int port(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT current_setting('port')::int")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mb.commentService.datasource;
+
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.config.CommentReplicaProperties;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaReadsTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    private final PostVersionTracker postVersions = new PostVersionTracker(new CommentCacheProperties());
+    private final CommentReplicaProperties properties = new CommentReplicaProperties();
+    private ReplicaReads replicaReads;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        properties.setEnabled(true);
+        properties.setMaxLag(Duration.ofMillis(50));
+        properties.setHealthCheckInterval(Duration.ofMillis(50));
+        replicaReads = new ReplicaReads(properties, postVersions, transactionManager, entityManagerFactory);
+        // Past the tracker's startup, which counts as a write it may have missed.
+        Thread.sleep(properties.stalenessBound().toMillis() + 10);
+    }
+
+    @Test
+    void readPost_goesToAReplicaInAReadOnlyTransaction() {
+        assertFalse(replicaReads.readPost(10L, ReplicaRouting::isPrimaryPinned));
+
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    void readPost_recentlyWrittenPost_staysOnThePrimary() {
+        postVersions.touch(10L);
+
+        assertTrue(replicaReads.readPost(10L, ReplicaRouting::isPrimaryPinned));
+        assertTrue(replicaReads.readPosts(List.of(20L, 10L), ReplicaRouting::isPrimaryPinned));
+        assertFalse(replicaReads.readPost(20L, ReplicaRouting::isPrimaryPinned));
+        assertFalse(ReplicaRouting.isPrimaryPinned());
+    }
+
+    @Test
+    void read_staleResult_isReadAgainOnThePrimary() {
+        assertTrue(replicaReads.read(ReplicaRouting::isPrimaryPinned, pinned -> !pinned));
+        assertFalse(replicaReads.read(ReplicaRouting::isPrimaryPinned, pinned -> false));
+    }
+
+    @Test
+    void disabled_readsRunAsTheyAre() {
+        ReplicaReads disabled = new ReplicaReads(new CommentReplicaProperties(), postVersions, transactionManager,
+                entityManagerFactory);
+        postVersions.touch(10L);
+
+        assertFalse(disabled.readPost(10L, ReplicaRouting::isPrimaryPinned));
+        assertEquals("found", disabled.read(() -> "found", found -> true));
+        verifyNoInteractions(transactionManager);
+    }
+}
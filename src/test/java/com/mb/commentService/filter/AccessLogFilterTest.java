@@ -0,0 +1,105 @@
+package com.mb.commentService.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.mb.commentService.config.CommentAccessLogProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(AccessLogFilter.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final CommentAccessLogProperties properties = new CommentAccessLogProperties();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void unsampledSuccess_isNotLogged() throws Exception {
+        properties.setSampleRate(0);
+
+        new AccessLogFilter(properties).doFilter(apiRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void serverError_isLoggedWithoutBody() throws Exception {
+        properties.setSampleRate(0);
+        MockHttpServletRequest request = apiRequest();
+        request.setContent("{\"email\":\"john@example.com\"}".getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(500);
+
+        new AccessLogFilter(properties).doFilter(request, response, new MockFilterChain());
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.startsWith("POST /api/comments 500 "), line);
+        assertFalse(line.contains("john@example.com"), line);
+    }
+
+    @Test
+    void fullSampleRate_logsEveryRequest() throws Exception {
+        properties.setSampleRate(1);
+        AccessLogFilter filter = new AccessLogFilter(properties);
+
+        filter.doFilter(apiRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(apiRequest(), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(2, appender.list.size());
+    }
+
+    @Test
+    void longAsyncResponse_isSlowOnlyWhenItsFirstByteWas() throws Exception {
+        properties.setSampleRate(0);
+        properties.setSlowThreshold(Duration.ofMillis(50));
+        AccessLogFilter filter = new AccessLogFilter(properties);
+
+        MockHttpServletRequest subscription = asyncRequest("/api/comments/post/1/events");
+        filter.doFilter(subscription, new MockHttpServletResponse(), (req, res) -> {
+            req.startAsync();
+            res.getOutputStream().write('\n');
+        });
+        Thread.sleep(100);
+        ((MockAsyncContext) subscription.getAsyncContext()).complete();
+        assertTrue(appender.list.isEmpty());
+
+        MockHttpServletRequest slow = asyncRequest("/api/reactive/comments/1");
+        filter.doFilter(slow, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        Thread.sleep(100);
+        ((MockAsyncContext) slow.getAsyncContext()).complete();
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("GET /api/reactive/comments/1 200 "));
+    }
+
+    private static MockHttpServletRequest asyncRequest(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    private MockHttpServletRequest apiRequest() {
+        return new MockHttpServletRequest("POST", "/api/comments");
+    }
+}
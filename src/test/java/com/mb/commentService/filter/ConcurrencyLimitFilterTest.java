@@ -0,0 +1,110 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.config.CommentConcurrencyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        CommentConcurrencyProperties properties = new CommentConcurrencyProperties();
+        properties.setMaxConcurrentRequests(1);
+        properties.setAcquireTimeout(Duration.ofMillis(50));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(properties, meterRegistry);
+    }
+
+    @Test
+    void requestBeyondLimit_isRejectedWith503() throws Exception {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blockingChain = (request, response) -> {
+            inside.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> {
+                filter.doFilter(apiRequest(), new MockHttpServletResponse(), blockingChain);
+                return null;
+            });
+            inside.await();
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(apiRequest(), rejected, chain);
+
+            assertEquals(503, rejected.getStatus());
+            assertEquals("1", rejected.getHeader("Retry-After"));
+            assertNull(chain.getRequest());
+            assertEquals(1.0, meterRegistry.get("comment.concurrency.rejected").counter().count());
+            assertEquals(1.0, meterRegistry.get("comment.concurrency.in-flight").gauge().value());
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(apiRequest(), new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void asyncResponse_keepsItsSlotUntilItCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/comments/post/1/stream");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertEquals(1.0, meterRegistry.get("comment.concurrency.in-flight").gauge().value());
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0.0, meterRegistry.get("comment.concurrency.in-flight").gauge().value());
+    }
+
+    @Test
+    void eventSubscription_givesItsSlotBackOnceSubscribed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/comments/post/1/events");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertEquals(0.0, meterRegistry.get("comment.concurrency.in-flight").gauge().value());
+    }
+
+    @Test
+    void requestsOutsideCommentApi_areNotLimited() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/health");
+
+        assertTrue(filter.shouldNotFilter(request));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/reactive/comments/1")));
+    }
+
+    private MockHttpServletRequest apiRequest() {
+        return new MockHttpServletRequest("GET", "/api/comments/1");
+    }
+}
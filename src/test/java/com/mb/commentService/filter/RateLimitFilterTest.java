@@ -0,0 +1,88 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.config.CommentRateLimitProperties;
+import com.mb.commentService.config.CommentRateLimitProperties.Limit;
+import com.mb.commentService.ratelimit.CommentRateLimiter;
+import com.mb.commentService.ratelimit.LoadShedder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoadShedder loadShedder = mock(LoadShedder.class);
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        CommentRateLimitProperties properties = new CommentRateLimitProperties();
+        properties.setEnabled(true);
+        properties.setClient(new Limit(1, Duration.ofMinutes(1), 2));
+        filter = new RateLimitFilter(new CommentRateLimiter(properties, meterRegistry), loadShedder, meterRegistry);
+    }
+
+    @Test
+    void clientOverItsLimit_getsA429WithRetryAfter() throws Exception {
+        assertEquals(200, write("10.0.0.1").getStatus());
+        assertEquals(200, write("10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = write("10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("60", rejected.getHeader("Retry-After"));
+        assertEquals(200, write("10.0.0.2").getStatus());
+        assertEquals(1.0, meterRegistry.get("comment.rate-limit.rejected").tag("limit", "client").counter().count());
+    }
+
+    @Test
+    void overloadedDatabase_shedsWritesWith503() throws Exception {
+        when(loadShedder.shouldShed()).thenReturn(true);
+        when(loadShedder.getRetryAfterSeconds()).thenReturn(1L);
+
+        MockHttpServletResponse shed = write("10.0.0.1");
+
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("comment.shed.rejected").counter().count());
+    }
+
+    @Test
+    void reactiveWrites_areLimitedToo() throws Exception {
+        assertEquals(200, write("10.0.0.1", "/api/reactive/comments").getStatus());
+        assertEquals(200, write("10.0.0.1", "/api/reactive/comments/1").getStatus());
+
+        assertEquals(429, write("10.0.0.1", "/api/reactive/comments").getStatus());
+    }
+
+    @Test
+    void reads_areNotLimited() throws Exception {
+        when(loadShedder.shouldShed()).thenReturn(true);
+        for (int i = 0; i < 5; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/comments/post/10");
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+    }
+
+    private MockHttpServletResponse write(String address) throws Exception {
+        return write(address, "/api/comments");
+    }
+
+    private MockHttpServletResponse write(String address, String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
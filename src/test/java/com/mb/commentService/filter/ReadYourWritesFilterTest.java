@@ -0,0 +1,56 @@
+package com.mb.commentService.filter;
+
+import com.mb.commentService.config.CommentReplicaProperties;
+import com.mb.commentService.datasource.ReplicaRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(new CommentReplicaProperties());
+
+    @Test
+    void successfulWrite_stampsTheCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/comments"), response,
+                (request, servletResponse) -> ((HttpServletResponse) servletResponse).setStatus(201));
+
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(cookie);
+        assertEquals("/api/comments", cookie.getPath());
+        assertEquals(3, cookie.getMaxAge());
+    }
+
+    @Test
+    void failedWrite_leavesNoCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/comments/1"), response,
+                (request, servletResponse) -> ((HttpServletResponse) servletResponse).setStatus(409));
+
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE));
+    }
+
+    @Test
+    void readsRightAfterAWrite_arePinnedToThePrimary() throws Exception {
+        assertTrue(pinned(System.currentTimeMillis()));
+        assertFalse(pinned(System.currentTimeMillis() - 10_000));
+        assertFalse(ReplicaRouting.isPrimaryPinned());
+    }
+
+    private boolean pinned(long lastWrite) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/comments/post/10");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(lastWrite)));
+        AtomicBoolean pinned = new AtomicBoolean();
+        FilterChain chain = (chainRequest, chainResponse) -> pinned.set(ReplicaRouting.isPrimaryPinned());
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return pinned.get();
+    }
+}
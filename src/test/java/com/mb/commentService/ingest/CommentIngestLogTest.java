@@ -0,0 +1,136 @@
+package com.mb.commentService.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentIngestLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void durableRecords_areReplayedInOrderAfterReopen() throws Exception {
+        CommentIngestLog ingestLog = CommentIngestLog.open(directory, SEGMENT_SIZE, new ArrayList<>());
+        ExecutorService appenders = Executors.newFixedThreadPool(8);
+        List<Future<?>> appends = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int appender = i;
+            appends.add(appenders.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    CommentIngestLog.Appended appended = ingestLog.append(bytes(appender + ":" + j));
+                    ingestLog.awaitDurable(appended.position());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> append : appends) {
+            append.get();
+        }
+        appenders.shutdown();
+        ingestLog.close();
+
+        List<CommentIngestLog.Replayed> replayed = new ArrayList<>();
+        CommentIngestLog.open(directory, SEGMENT_SIZE, replayed).close();
+
+        assertEquals(400, replayed.size());
+        for (int i = 0; i < 8; i++) {
+            String prefix = i + ":";
+            List<String> ofAppender = replayed.stream().map(record -> text(record.payload()))
+                    .filter(record -> record.startsWith(prefix)).toList();
+            assertEquals(50, ofAppender.size());
+            for (int j = 0; j < 50; j++) {
+                assertEquals(prefix + j, ofAppender.get(j));
+            }
+        }
+    }
+
+    @Test
+    void replay_stopsAtTornRecord() throws Exception {
+        CommentIngestLog ingestLog = CommentIngestLog.open(directory, SEGMENT_SIZE, new ArrayList<>());
+        ingestLog.awaitDurable(ingestLog.append(bytes("first")).position());
+        ingestLog.awaitDurable(ingestLog.append(bytes("second")).position());
+        ingestLog.close();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Last byte of "second": header, "first" frame, second frame header, five bytes in.
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 8 + 8 + 5 + 8 + 5);
+        }
+
+        List<CommentIngestLog.Replayed> replayed = new ArrayList<>();
+        CommentIngestLog.open(directory, SEGMENT_SIZE, replayed).close();
+
+        assertEquals(List.of("first"), replayed.stream().map(record -> text(record.payload())).toList());
+    }
+
+    @Test
+    void segments_rollWhenFullAndAreDeletedOnceApplied() throws Exception {
+        CommentIngestLog ingestLog = CommentIngestLog.open(directory, SEGMENT_SIZE, new ArrayList<>());
+        List<CommentIngestLog.Appended> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CommentIngestLog.Appended appended = ingestLog.append(new byte[100]);
+            ingestLog.awaitDurable(appended.position());
+            records.add(appended);
+        }
+        assertEquals(3, segments().size());
+
+        records.forEach(record -> ingestLog.markApplied(record.segment()));
+        assertEquals(1, segments().size());
+
+        Path applied = segments().get(0);
+        ingestLog.rollIfApplied(1);
+        assertEquals(1, segments().size());
+        assertNotEquals(applied, segments().get(0));
+        ingestLog.close();
+
+        List<CommentIngestLog.Replayed> replayed = new ArrayList<>();
+        CommentIngestLog.open(directory, SEGMENT_SIZE, replayed).close();
+        assertTrue(replayed.isEmpty());
+    }
+
+    @Test
+    void replayedSegment_isDeletedOnceItsRecordsAreApplied() throws Exception {
+        CommentIngestLog ingestLog = CommentIngestLog.open(directory, SEGMENT_SIZE, new ArrayList<>());
+        ingestLog.awaitDurable(ingestLog.append(bytes("left over")).position());
+        ingestLog.close();
+
+        List<CommentIngestLog.Replayed> replayed = new ArrayList<>();
+        CommentIngestLog reopened = CommentIngestLog.open(directory, SEGMENT_SIZE, replayed);
+        assertEquals(2, segments().size());
+
+        reopened.markApplied(replayed.get(0).segment());
+        assertEquals(1, segments().size());
+        reopened.close();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
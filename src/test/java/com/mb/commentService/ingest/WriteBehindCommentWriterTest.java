@@ -0,0 +1,204 @@
+package com.mb.commentService.ingest;
+
+import com.mb.commentService.cache.PostVersionTracker;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.CommentWritePendingException;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentIngestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindCommentWriterTest {
+
+    private static final long POST_ID = 10L;
+
+    @TempDir
+    Path directory;
+
+    private final CommentWriteProperties properties = new CommentWriteProperties();
+    private final FakeDatabase database = new FakeDatabase();
+    private final Queue<CommentEvent> events = new ConcurrentLinkedQueue<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WriteBehindCommentWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setDirectory(directory.toString());
+        properties.getWriteBehind().setMaxRetryDelay(Duration.ofMillis(50));
+        properties.getWriteBehind().setApplyTimeout(Duration.ofMillis(200));
+        writer = newWriter();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.stop();
+    }
+
+    @Test
+    void append_acknowledgesWhileDatabaseIsDown_andAppliesOnceItIsBack() throws Exception {
+        database.available = false;
+
+        CommentDto first = writer.append(comment("first")).orElseThrow();
+        CommentDto second = writer.append(comment("second")).orElseThrow();
+
+        assertNotNull(first.getId());
+        assertNotNull(first.getCreatedAt());
+        assertEquals(List.of(second, first), writer.pendingForPost(POST_ID));
+        assertEquals(first, writer.findPending(first.getId()).orElseThrow());
+        assertThrows(CommentWritePendingException.class, () -> writer.awaitApplied(first.getId()));
+        assertTrue(events.isEmpty());
+
+        database.available = true;
+        writer.awaitPostApplied(POST_ID);
+
+        assertTrue(writer.pendingForPost(POST_ID).isEmpty());
+        assertEquals(Map.of(first.getId(), first, second.getId(), second), database.rows);
+        assertEquals(2, events.size());
+        assertTrue(events.stream().allMatch(event -> event.getType() == CommentEvent.Type.CREATED));
+    }
+
+    @Test
+    void restart_replaysLoggedCommentsAndAnnouncesOnlyThoseNotYetInserted() throws Exception {
+        database.available = false;
+        CommentDto applied = writer.append(comment("applied before the crash")).orElseThrow();
+        CommentDto lost = writer.append(comment("only in the log")).orElseThrow();
+        writer.stop();
+        database.rows.put(applied.getId(), applied);
+
+        database.available = true;
+        writer = newWriter();
+
+        waitUntil(() -> writer.pendingForPost(POST_ID).isEmpty());
+        assertEquals(lost, database.rows.get(lost.getId()));
+        assertEquals(List.of(lost.getId()), events.stream().map(CommentEvent::getCommentId).toList());
+    }
+
+    @Test
+    void rowRefusedByDatabase_isDeadLetteredWithoutHoldingUpOthers() throws Exception {
+        database.available = false;
+        CommentDto refused = writer.append(comment("refused")).orElseThrow();
+        CommentDto accepted = writer.append(comment("accepted")).orElseThrow();
+        database.refused = refused.getId();
+
+        database.available = true;
+        writer.awaitPostApplied(POST_ID);
+
+        assertEquals(List.of(accepted.getId()), List.copyOf(database.rows.keySet()));
+        assertEquals(List.of(refused), List.copyOf(database.deadLetters));
+        assertEquals(1.0, meterRegistry.counter("comment.ingest.dead.letters").count());
+    }
+
+    @Test
+    void preparePostDelete_waitsForPendingComments_thenRecordsTheDelete() throws Exception {
+        CommentDto logged = writer.append(comment("before the delete")).orElseThrow();
+
+        writer.preparePostDelete(POST_ID);
+
+        assertTrue(database.rows.containsKey(logged.getId()));
+        assertFalse(database.postDeletions.get(POST_ID).isBefore(logged.getCreatedAt()));
+    }
+
+    @Test
+    void append_leavesOversizedColumnsToDirectPath() {
+        Comment comment = comment("text");
+        comment.setName("n".repeat(256));
+
+        assertTrue(writer.append(comment).isEmpty());
+    }
+
+    private WriteBehindCommentWriter newWriter() throws Exception {
+        ApplicationEventPublisher publisher = event -> events.add((CommentEvent) event);
+        WriteBehindCommentWriter newWriter = new WriteBehindCommentWriter(database, publisher,
+                new PostVersionTracker(new CommentCacheProperties()), properties, meterRegistry);
+        newWriter.start();
+        return newWriter;
+    }
+
+    private static Comment comment(String text) {
+        Comment comment = new Comment();
+        comment.setName("John");
+        comment.setEmail("john@example.com");
+        comment.setComment(text);
+        comment.setPostId(POST_ID);
+        return comment;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Stands in for the comments table, with a switch to take it offline and a row it refuses.
+     */
+    private static class FakeDatabase extends CommentIngestRepository {
+
+        final Map<Long, CommentDto> rows = new ConcurrentHashMap<>();
+        final Queue<CommentDto> deadLetters = new ConcurrentLinkedQueue<>();
+        final Map<Long, LocalDateTime> postDeletions = new ConcurrentHashMap<>();
+        volatile boolean available = true;
+        volatile Long refused;
+        private long sequence = 0;
+
+        @Override
+        public int idBlockSize() {
+            return 50;
+        }
+
+        @Override
+        public synchronized List<Long> nextIdBlocks(int count) {
+            return LongStream.rangeClosed(1, count).map(i -> sequence += 50).boxed().toList();
+        }
+
+        @Override
+        public List<Long> insertMissing(List<CommentDto> comments) {
+            if (!available) {
+                throw new QueryTimeoutException("database unavailable");
+            }
+            if (comments.stream().anyMatch(comment -> comment.getId().equals(refused))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return comments.stream()
+                    .filter(comment -> rows.putIfAbsent(comment.getId(), comment) == null)
+                    .map(CommentDto::getId)
+                    .toList();
+        }
+
+        @Override
+        public void markPostDeleted(Long postId, LocalDateTime deletedAt) {
+            postDeletions.put(postId, deletedAt);
+        }
+
+        @Override
+        public void deadLetter(CommentDto comment, String error) {
+            deadLetters.add(comment);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mb.commentService.ratelimit;
+
+import com.mb.commentService.config.CommentMetricsProperties;
+import com.mb.commentService.config.CommentRateLimitProperties;
+import com.mb.commentService.metrics.CommentMetrics;
+import com.mb.commentService.metrics.CommentMetrics.Operation;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadShedderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CommentMetrics metrics = new CommentMetrics(meterRegistry, new CommentMetricsProperties());
+    private final CommentRateLimitProperties properties = new CommentRateLimitProperties();
+    private Timer poolAcquire;
+    private LoadShedder loadShedder;
+
+    @BeforeEach
+    void setUp() {
+        properties.getShed().setStep(0.5);
+        properties.getShed().setMaxRatio(0.9);
+        poolAcquire = meterRegistry.timer("hikaricp.connections.acquire", "pool", "HikariPool-1");
+        loadShedder = new LoadShedder(properties, metrics, meterRegistry);
+    }
+
+    @Test
+    void slowDatabase_shedsMoreEachInterval_thenLessOnceItRecovers() {
+        databaseCall(Duration.ofSeconds(1));
+        loadShedder.sample();
+        assertEquals(0.5, loadShedder.getShedRatio());
+
+        databaseCall(Duration.ofSeconds(1));
+        loadShedder.sample();
+        assertEquals(0.9, loadShedder.getShedRatio());
+        assertEquals(0.9, meterRegistry.get("comment.shed.ratio").gauge().value());
+
+        // Only calls of the latest interval count.
+        databaseCall(Duration.ofMillis(5));
+        loadShedder.sample();
+        assertEquals(0.4, loadShedder.getShedRatio(), 1e-9);
+
+        loadShedder.sample();
+        assertEquals(0, loadShedder.getShedRatio());
+        assertFalse(loadShedder.shouldShed());
+    }
+
+    @Test
+    void poolWait_aloneCountsAsOverload() {
+        poolAcquire.record(Duration.ofMillis(300));
+        databaseCall(Duration.ofMillis(5));
+        loadShedder.sample();
+
+        assertEquals(0.5, loadShedder.getShedRatio());
+    }
+
+    @Test
+    void idleIntervals_shedNothing() {
+        loadShedder.sample();
+
+        assertEquals(0, loadShedder.getShedRatio());
+        assertEquals(1, loadShedder.getRetryAfterSeconds());
+    }
+
+    private void databaseCall(Duration took) {
+        metrics.recordDatabase(Operation.CREATE, System.nanoTime() - took.toNanos());
+    }
+}
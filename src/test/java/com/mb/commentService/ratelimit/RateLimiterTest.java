@@ -0,0 +1,97 @@
+package com.mb.commentService.ratelimit;
+
+import com.mb.commentService.config.CommentRateLimitProperties.Limit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // One permit per second, three at once.
+    private final RateLimiter<String> limiter = new RateLimiter<>(new Limit(60, Duration.ofMinutes(1), 3), 100);
+
+    @Test
+    void burstIsAdmitted_thenOnePermitPerInterval() {
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        }
+        assertEquals(SECOND, limiter.tryAcquire("10.0.0.1", now));
+        // A rejected request does not push the next permit further out.
+        assertEquals(SECOND / 2, limiter.tryAcquire("10.0.0.1", now + SECOND / 2));
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now + SECOND));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now + SECOND) > 0);
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", now));
+    }
+
+    @Test
+    void quietKey_refillsToTheBurst() {
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("10.0.0.1", now);
+        }
+
+        long later = now + 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1", later));
+        }
+        assertTrue(limiter.tryAcquire("10.0.0.1", later) > 0);
+    }
+
+    @Test
+    void weightedCharges_takeOnePermitPerItem() {
+        long now = 1_000 * SECOND;
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 2, now));
+        assertEquals(SECOND, limiter.tryAcquire("10.0.0.1", 2, now));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 1, now));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 0, now));
+    }
+
+    @Test
+    void chargeBeyondTheBurst_needsAFullBucket_andIsPaidOffBeforeTheNextPermit() {
+        long now = 1_000 * SECOND;
+        limiter.tryAcquire("10.0.0.1", now);
+        assertEquals(SECOND, limiter.tryAcquire("10.0.0.1", 10, now));
+
+        long full = now + SECOND;
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 10, full));
+        // Ten permits against a burst of three: the next one comes eight seconds later rather than one.
+        assertEquals(8 * SECOND, limiter.tryAcquire("10.0.0.1", full));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", full + 8 * SECOND));
+    }
+
+    @Test
+    void concurrentRequests_neverExceedTheBurst() throws Exception {
+        long now = 1_000 * SECOND;
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire("10.0.0.1", now) == 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(3, admitted.get());
+    }
+}
@@ -0,0 +1,136 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.repository.CommentChangeRepository.Change;
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without the usual rolled-back test transaction: the feed deliberately hides changes of transactions that
+ * are still running, which would include the test's own.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CommentChangeRepository.class)
+class CommentChangeRepositoryTest {
+
+    private static final long POST_ID = 77L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.registerDataSource(registry);
+    }
+
+    @Autowired
+    private CommentChangeRepository changeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM comments");
+        jdbcTemplate.update("DELETE FROM comment_tombstones");
+    }
+
+    @Test
+    void findChanges_returnsLatestStateOfChangedCommentsAndTombstonesInTransactionOrder() {
+        long first = insert(POST_ID);
+        long second = insert(POST_ID);
+        long third = insert(POST_ID);
+        insert(POST_ID + 1);
+        jdbcTemplate.update("UPDATE comments SET comment = 'edited' WHERE id = ?", first);
+        jdbcTemplate.update("DELETE FROM comments WHERE id = ?", second);
+
+        List<Change> changes = changeRepository.findChanges(POST_ID, 0, 0, changeRepository.currentHorizon(), 10);
+
+        assertEquals(List.of(third, first, second), changes.stream().map(Change::commentId).toList());
+        assertEquals("edited", changes.get(1).comment().getComment());
+        assertTrue(changes.get(2).isDeleted());
+
+        Change afterFirst = changes.get(0);
+        List<Change> rest = changeRepository.findChanges(POST_ID, afterFirst.txid(), afterFirst.commentId(),
+                changeRepository.currentHorizon(), 10);
+        assertEquals(List.of(first, second), rest.stream().map(Change::commentId).toList());
+    }
+
+    @Test
+    void findChanges_holdsBackLaterCommitsUntilEarlierTransactionsFinish() throws Exception {
+        try (Connection slow = dataSource.getConnection(); Statement statement = slow.createStatement()) {
+            slow.setAutoCommit(false);
+            statement.executeUpdate(insertSql(POST_ID));
+            long fast = insert(POST_ID);
+
+            // The fast comment committed first, but a cursor past it would skip the slow one.
+            assertTrue(changeRepository.findChanges(POST_ID, 0, 0, changeRepository.currentHorizon(), 10).isEmpty());
+
+            slow.commit();
+            List<Change> changes = changeRepository.findChanges(POST_ID, 0, 0, changeRepository.currentHorizon(), 10);
+            assertEquals(2, changes.size());
+            assertEquals(fast, changes.get(1).commentId());
+        }
+    }
+
+    @Test
+    void postDelete_leavesOneTombstonePerComment_untilPurged() {
+        for (int i = 0; i < 5; i++) {
+            insert(POST_ID);
+        }
+        jdbcTemplate.update("DELETE FROM comments WHERE post_id = ?", POST_ID);
+
+        List<Change> changes = changeRepository.findChanges(POST_ID, 0, 0, changeRepository.currentHorizon(), 10);
+        assertEquals(5, changes.size());
+        assertTrue(changes.stream().allMatch(Change::isDeleted));
+
+        assertEquals(0, changeRepository.purgeTombstones(LocalDateTime.now().minusDays(1), 2));
+        assertEquals(2, changeRepository.purgeTombstones(LocalDateTime.now().plusSeconds(1), 2));
+        assertEquals(3, changeRepository.purgeTombstones(LocalDateTime.now().plusSeconds(1), 10));
+    }
+
+    @Test
+    void changeQueries_useChangeIndexes() {
+        jdbcTemplate.update("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                SELECT 'user' || g, 'user' || g || '@example.com', 'comment ' || g, g % 50, now(), now()
+                FROM generate_series(1, 20000) AS g
+                """);
+        jdbcTemplate.execute("ANALYZE comments");
+        String plan = String.join("\n", jdbcTemplate.queryForList("""
+                EXPLAIN SELECT * FROM comments WHERE post_id = 42 AND (change_txid, id) > (100, 5) AND change_txid < 200
+                ORDER BY change_txid, id LIMIT 21
+                """, String.class));
+
+        assertTrue(plan.contains("comments_p0_post_id_change_txid_id_idx"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+    }
+
+    private long insert(long postId) {
+        return jdbcTemplate.queryForObject(insertSql(postId) + " RETURNING id", Long.class);
+    }
+
+    private static String insertSql(long postId) {
+        return "INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)"
+                + " VALUES ('John', 'john@example.com', 'Hello!', " + postId + ", now(), now())";
+    }
+}
@@ -0,0 +1,113 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CommentIngestRepository.class)
+class CommentIngestRepositoryTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_456_000);
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.registerDataSource(registry);
+    }
+
+    @Autowired
+    private CommentIngestRepository ingestRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM comments");
+    }
+
+    @Test
+    void insertMissing_skipsStoredAndDeletedComments_soReplayIsHarmless() {
+        List<Long> blocks = ingestRepository.nextIdBlocks(1);
+        long id = blocks.get(0);
+        CommentDto stored = comment(id - 2, "stored");
+        CommentDto deleted = comment(id - 1, "deleted");
+        CommentDto fresh = comment(id, "fresh");
+        assertEquals(List.of(stored.getId(), deleted.getId()), ingestRepository.insertMissing(List.of(stored, deleted)));
+        commentRepository.deleteReturningPostId(deleted.getId());
+
+        List<Long> inserted = ingestRepository.insertMissing(List.of(stored, deleted, fresh));
+
+        assertEquals(List.of(fresh.getId()), inserted);
+        assertEquals(List.of(fresh, stored), commentRepository.findThreadByPostId(42L).stream()
+                .sorted((a, b) -> Long.compare(b.getId(), a.getId())).toList());
+        assertEquals(fresh, commentRepository.findDtoById(fresh.getId()).orElseThrow());
+    }
+
+    @Test
+    void insertMissing_skipsCommentsOfPostsDeletedSinceTheyWereCreated() {
+        long id = ingestRepository.nextIdBlocks(1).get(0);
+        CommentDto before = comment(id - 1, "logged before the delete");
+        CommentDto after = new CommentDto(id, "John", "john@example.com", "logged after the delete", 42L,
+                CREATED_AT.plusMinutes(1), CREATED_AT.plusMinutes(1));
+
+        ingestRepository.markPostDeleted(42L, CREATED_AT.plusSeconds(1));
+        ingestRepository.markPostDeleted(42L, CREATED_AT);
+
+        assertEquals(List.of(after.getId()), ingestRepository.insertMissing(List.of(before, after)));
+    }
+
+    @Test
+    void deadLetter_keepsTheRefusedCommentOnce() {
+        CommentDto refused = comment(7L, "refused");
+
+        ingestRepository.deadLetter(refused, "value too long");
+        ingestRepository.deadLetter(refused, "value too long again");
+
+        assertEquals(List.of("value too long"),
+                jdbcTemplate.queryForList("SELECT error FROM comment_ingest_dead_letters WHERE id = 7", String.class));
+    }
+
+    @Test
+    void reservedIdBlocks_neverOverlapIdsHibernateHandsOut() {
+        int blockSize = ingestRepository.idBlockSize();
+        List<Long> reserved = ingestRepository.nextIdBlocks(3);
+        Comment saved = commentRepository.saveAndFlush(newComment());
+
+        assertEquals(50, blockSize);
+        for (long high : reserved) {
+            assertFalse(saved.getId() > high - blockSize && saved.getId() <= high, saved.getId() + " in block " + high);
+        }
+    }
+
+    private static CommentDto comment(long id, String text) {
+        return new CommentDto(id, "John", "john@example.com", text, 42L, CREATED_AT, CREATED_AT);
+    }
+
+    private static Comment newComment() {
+        Comment comment = new Comment();
+        comment.setName("John");
+        comment.setEmail("john@example.com");
+        comment.setComment("Hello!");
+        comment.setPostId(42L);
+        return comment;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.repository.CommentPartitionRepository.Partition;
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without a test transaction: partitions are created in transactions of their own and VACUUM cannot run
+ * inside one. Each test starts from the migrated layout and restores it afterwards.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CommentPartitionRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CommentPartitionRepositoryTest {
+
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(5);
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.registerDataSource(registry);
+    }
+
+    @Autowired
+    private CommentPartitionRepository partitionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        restoreMigratedPartitions();
+        jdbcTemplate.update("DELETE FROM comment_tombstones");
+    }
+
+    @AfterEach
+    void tearDown() {
+        restoreMigratedPartitions();
+    }
+
+    @Test
+    void migratedTable_isOnePartitionUpToTheNextBoundPlusDefault() {
+        assertEquals(List.of(new Partition("comments_p0", Long.MIN_VALUE, 100_000, false)), partitionRepository.findPartitions());
+        assertNull(partitionRepository.findMaxPostId());
+    }
+
+    @Test
+    void createPartition_takesOverItsCommentsFromTheDefaultPartitionWithoutTombstones() {
+        long parked = insert(150_000);
+        long other = insert(250_000);
+        assertEquals(List.of(100_000L, 200_000L), partitionRepository.findDefaultPartitionRanges(100_000).stream().sorted().toList());
+
+        assertEquals(1, partitionRepository.createPartition("comments_p100000", 100_000, 200_000, LOCK_TIMEOUT));
+        assertEquals(-1, partitionRepository.createPartition("comments_p100000", 100_000, 200_000, LOCK_TIMEOUT));
+
+        assertEquals(List.of(parked), jdbcTemplate.queryForList("SELECT id FROM comments_p100000", Long.class));
+        assertEquals(List.of(other), jdbcTemplate.queryForList("SELECT id FROM comments_default", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM comment_tombstones", Long.class));
+        assertEquals(List.of(200_000L), partitionRepository.findDefaultPartitionRanges(100_000));
+        assertEquals(250_000L, partitionRepository.findMaxPostId());
+        // The moved comment is still searchable and readable through comments like any other.
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM comments WHERE post_id = 150000 AND search_vector @@ to_tsquery('english', 'partition')", Long.class));
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT * FROM comments WHERE post_id = 150000 ORDER BY created_at DESC, id DESC LIMIT 21", String.class));
+        assertTrue(plan.contains("comments_p100000"), plan);
+        assertFalse(plan.contains("comments_default"), plan);
+    }
+
+    @Test
+    void archive_freezesThePartitionAndRecordsIt() {
+        partitionRepository.createPartition("comments_p100000", 100_000, 200_000, LOCK_TIMEOUT);
+        insert(120_000);
+
+        partitionRepository.archive("comments_p100000", "");
+
+        assertEquals(List.of(true), partitionRepository.findPartitions().stream()
+                .filter(partition -> partition.name().equals("comments_p100000")).map(Partition::archived).toList());
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT age(relfrozenxid) < 100 FROM pg_class WHERE relname = 'comments_p100000'", Boolean.class));
+        // Archived comments are still written and deleted through comments like any other.
+        jdbcTemplate.update("DELETE FROM comments WHERE post_id = 120000");
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM comment_tombstones", Long.class));
+    }
+
+    private void restoreMigratedPartitions() {
+        jdbcTemplate.update("DELETE FROM comments");
+        for (Partition partition : partitionRepository.findPartitions()) {
+            if (!partition.name().equals("comments_p0")) {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+            }
+        }
+        jdbcTemplate.update("DELETE FROM comment_archived_partitions");
+    }
+
+    private long insert(long postId) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                VALUES ('John', 'john@example.com', 'Partitions are neat', ?, now(), now())
+                RETURNING id
+                """, Long.class, postId);
+    }
+}
@@ -0,0 +1,321 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.SearchCursor;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentSearchRepository.Hit;
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import org.flywaydb.core.Flyway;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CommentRepositoryTest {
+
+    // Every test post lies in the first partition (V7), so each plan below has to be pruned to it.
+    private static final String POST_INDEX = "comments_p0_post_id_created_at_id_idx";
+    // Deletes only filter on post_id, which any index leading with it serves equally well.
+    private static final String ANY_POST_INDEX = "comments_p0_post_id_";
+    private static final String OTHER_PARTITION = "comments_default";
+    private static final long HOT_POST_ID = 1_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.registerDataSource(registry);
+    }
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM comments");
+        // 500 quiet posts with 40 comments each, plus one hot post with a 10k comment thread.
+        jdbcTemplate.update("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                SELECT 'user' || g, 'user' || g || '@example.com', 'comment ' || g,
+                       CASE WHEN g <= 10000 THEN ? ELSE g % 500 END,
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second',
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second'
+                FROM generate_series(1, 30000) AS g
+                """, HOT_POST_ID);
+        jdbcTemplate.execute("ANALYZE comments");
+    }
+
+    @Test
+    void migrations_areIdempotent() {
+        assertEquals(0, flyway.migrate().migrationsExecuted);
+        assertTrue(flyway.info().current().getVersion().getVersion().compareTo("2") >= 0);
+    }
+
+    @Test
+    void postListing_usesPostCreatedAtIndex() {
+        String plan = explain("SELECT * FROM comments WHERE post_id = 1000 ORDER BY created_at DESC, id DESC LIMIT 21");
+
+        assertTrue(plan.contains(POST_INDEX), plan);
+        assertFalse(plan.contains("Sort"), plan);
+        assertFalse(plan.contains(OTHER_PARTITION), plan);
+    }
+
+    @Test
+    void keysetPage_usesPostCreatedAtIndex() {
+        String plan = explain("""
+                SELECT * FROM comments WHERE post_id = 1000
+                  AND created_at <= TIMESTAMP '2024-01-01 02:00:00'
+                  AND (created_at < TIMESTAMP '2024-01-01 02:00:00' OR id < 7200)
+                ORDER BY created_at DESC, id DESC LIMIT 21
+                """);
+
+        assertTrue(plan.contains(POST_INDEX), plan);
+        assertFalse(plan.contains("Sort"), plan);
+        assertFalse(plan.contains(OTHER_PARTITION), plan);
+    }
+
+    @Test
+    void deleteByPost_usesPostIndex() {
+        String plan = explain("DELETE FROM comments WHERE post_id = 42");
+
+        assertTrue(plan.contains(ANY_POST_INDEX), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertFalse(plan.contains(OTHER_PARTITION), plan);
+    }
+
+    @Test
+    void deleteChunkByPost_usesPostIndex() {
+        String plan = explain("""
+                DELETE FROM comments WHERE post_id = 42
+                  AND ctid = ANY(ARRAY(SELECT ctid FROM comments WHERE post_id = 42 LIMIT 5000))
+                """);
+
+        assertTrue(plan.contains(ANY_POST_INDEX), plan);
+        assertTrue(plan.contains("Tid Scan"), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertFalse(plan.contains(OTHER_PARTITION), plan);
+    }
+
+    @Test
+    void latestByPosts_usesOneBoundedIndexScanPerPost() {
+        String plan = explain("""
+                SELECT c.* FROM unnest('{42,1000}'::bigint[]) WITH ORDINALITY AS p(post_id, position)
+                CROSS JOIN LATERAL (SELECT * FROM comments WHERE comments.post_id = p.post_id
+                                    ORDER BY created_at DESC, id DESC LIMIT 6) c
+                ORDER BY p.position, c.created_at DESC, c.id DESC
+                """);
+
+        assertTrue(plan.contains(POST_INDEX), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    @Test
+    void findLatestByPostIds_groupsNewestCommentsByPostInRequestOrder() {
+        List<CommentDto> latest = commentRepository.findLatestByPostIds(List.of(42L, HOT_POST_ID, -1L), 5);
+
+        assertEquals(10, latest.size());
+        assertEquals(commentRepository.findPageByPostId(42L, Limit.of(5)), latest.subList(0, 5));
+        assertEquals(commentRepository.findPageByPostId(HOT_POST_ID, Limit.of(5)), latest.subList(5, 10));
+    }
+
+    @Test
+    void search_usesSearchVectorIndex() {
+        String plan = explain("""
+                SELECT * FROM (SELECT id, ts_rank(search_vector, query) AS rank
+                               FROM comments, websearch_to_tsquery('english', 'postgres') AS query
+                               WHERE search_vector @@ query ORDER BY id + 0 DESC LIMIT 5000) matches
+                ORDER BY rank DESC, id DESC LIMIT 21
+                """);
+
+        // Search spans every partition; only empty ones may be scanned without their index.
+        assertTrue(plan.contains("comments_p0_search_vector_idx"), plan);
+        assertFalse(plan.contains("Seq Scan on comments_p0 "), plan);
+    }
+
+    @Test
+    void search_ranksNameAboveEmailAboveTextAndMatchesStems() {
+        long inText = insert("Ann", "ann@example.com", "Tuning postgres indexes", 42L);
+        long inEmail = insert("Bob", "postgres@example.com", "Nice", 43L);
+        long inName = insert("Postgres Fan", "fan@example.com", "Nice", 44L);
+        insert("Cid", "cid@example.com", "Tuning mysql", 42L);
+
+        assertEquals(List.of(inName, inEmail, inText), ids(commentRepository.search("postgres", null, null, 10, 5_000)));
+        assertEquals(List.of(inText), ids(commentRepository.search("\"tuned postgres\" index", null, null, 10, 5_000)));
+        assertEquals(List.of(inText), ids(commentRepository.search("postgres -nice", null, null, 10, 5_000)));
+        assertEquals(List.of(inText), ids(commentRepository.search("postgres", 42L, null, 10, 5_000)));
+    }
+
+    @Test
+    void search_pagesThroughEqualRanksWithoutGapsOrDuplicates() {
+        List<Long> seen = new ArrayList<>();
+        SearchCursor after = null;
+        List<Hit> page;
+        do {
+            page = commentRepository.search("comment", 42L, after, 7, 5_000);
+            page.forEach(hit -> seen.add(hit.comment().getId()));
+            if (!page.isEmpty()) {
+                Hit last = page.get(page.size() - 1);
+                after = new SearchCursor(last.rank(), last.comment().getId());
+            }
+        } while (page.size() == 7);
+
+        assertEquals(40, seen.size());
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM comments WHERE post_id = 42 ORDER BY id DESC", Long.class), seen);
+    }
+
+    @Test
+    void search_ranksAtMostMaxCandidates() {
+        assertEquals(100, commentRepository.search("comment", null, null, 1_000, 100).size());
+    }
+
+    @Test
+    void search_withMoreMatchesThanMaxCandidates_pagesThroughTheNewestWhateverTheTableOrder() {
+        // Rewriting the oldest rows moves them to the end of the table, where a scan in table order meets them last.
+        jdbcTemplate.update("UPDATE comments SET updated_at = updated_at WHERE id IN (SELECT id FROM comments ORDER BY id LIMIT 200)");
+        List<Long> seen = new ArrayList<>();
+        SearchCursor after = null;
+        List<Hit> page;
+        do {
+            page = commentRepository.search("comment", null, after, 7, 100);
+            page.forEach(hit -> seen.add(hit.comment().getId()));
+            if (!page.isEmpty()) {
+                Hit last = page.get(page.size() - 1);
+                after = new SearchCursor(last.rank(), last.comment().getId());
+            }
+        } while (page.size() == 7);
+
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM comments ORDER BY id DESC LIMIT 100", Long.class), seen);
+    }
+
+    @Test
+    void setBasedDeletes_reportRemovedRowsAndLeaveOtherPostsAlone() {
+        assertEquals(4_000, commentRepository.deleteChunkByPostId(HOT_POST_ID, 4_000));
+        assertEquals(4_000, commentRepository.deleteChunkByPostId(HOT_POST_ID, 4_000));
+        assertEquals(2_000, commentRepository.deleteChunkByPostId(HOT_POST_ID, 4_000));
+        assertEquals(0, commentRepository.deleteChunkByPostId(HOT_POST_ID, 4_000));
+        assertEquals(40, commentRepository.deleteAllByPostId(42L));
+
+        assertEquals(19_960, commentRepository.count());
+    }
+
+    @Test
+    void updateContent_rewritesEditableColumnsInOneStatement() {
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM comments WHERE post_id = 42", Long.class);
+        Comment before = commentRepository.findById(id).orElseThrow();
+
+        Comment updated = commentRepository.updateContent(id, "Jane", "jane@example.com", "Edited").orElseThrow();
+
+        assertEquals("Edited", updated.getComment());
+        assertEquals(42L, updated.getPostId());
+        assertEquals(before.getCreatedAt(), updated.getCreatedAt());
+        assertTrue(updated.getUpdatedAt().isAfter(before.getUpdatedAt()));
+        assertEquals("Edited", jdbcTemplate.queryForObject("SELECT comment FROM comments WHERE id = ?", String.class, id));
+        assertTrue(commentRepository.updateContent(-1L, "Jane", "jane@example.com", "Edited").isEmpty());
+    }
+
+    @Test
+    void updateContent_withUnchangedValues_writesNothingAndReturnsStoredRow() {
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM comments WHERE post_id = 42", Long.class);
+        Comment before = commentRepository.findById(id).orElseThrow();
+        String version = jdbcTemplate.queryForObject("SELECT ctid::text FROM comments WHERE id = ?", String.class, id);
+
+        Comment unchanged = commentRepository.updateContent(id, before.getName(), before.getEmail(), before.getComment())
+                .orElseThrow();
+
+        assertEquals(before.getUpdatedAt(), unchanged.getUpdatedAt());
+        assertEquals(before.getComment(), unchanged.getComment());
+        assertEquals(version, jdbcTemplate.queryForObject("SELECT ctid::text FROM comments WHERE id = ?", String.class, id));
+    }
+
+    @Test
+    void deleteReturningPostId_reportsPostOfRemovedRow() {
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM comments WHERE post_id = 42", Long.class);
+
+        assertEquals(42L, commentRepository.deleteReturningPostId(id).orElseThrow());
+        assertTrue(commentRepository.deleteReturningPostId(id).isEmpty());
+        assertFalse(commentRepository.existsById(id));
+    }
+
+    @Test
+    void keysetQueries_walkThreadWithoutGapsOrDuplicates() {
+        List<CommentDto> firstPage = commentRepository.findPageByPostId(42L, Limit.of(15));
+        CommentDto last = firstPage.get(firstPage.size() - 1);
+        List<CommentDto> secondPage = commentRepository.findPageByPostIdAfter(42L, last.getCreatedAt(), last.getId(), Limit.of(15));
+        CommentDto secondLast = secondPage.get(secondPage.size() - 1);
+        List<CommentDto> thirdPage = commentRepository.findPageByPostIdAfter(42L, secondLast.getCreatedAt(), secondLast.getId(), Limit.of(15));
+
+        assertEquals(15, firstPage.size());
+        assertEquals(15, secondPage.size());
+        assertEquals(10, thirdPage.size());
+        assertTrue(secondPage.get(0).getCreatedAt().isBefore(last.getCreatedAt()));
+        assertTrue(thirdPage.get(0).getCreatedAt().isBefore(secondLast.getCreatedAt()));
+    }
+
+    @Test
+    void projections_readThreadWithoutManagingEntities() {
+        List<CommentDto> thread = commentRepository.findThreadByPostId(42L);
+        CommentDto single = commentRepository.findDtoById(thread.get(0).getId()).orElseThrow();
+
+        assertEquals(40, thread.size());
+        assertTrue(thread.get(0).getCreatedAt().isAfter(thread.get(39).getCreatedAt()));
+        assertEquals(thread.get(0), single);
+        assertTrue(commentRepository.findDtoById(-1L).isEmpty());
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void saveAll_drawsPooledSequenceIdsAboveExistingRows() {
+        Long maxBefore = jdbcTemplate.queryForObject("SELECT MAX(id) FROM comments", Long.class);
+
+        List<Comment> saved = commentRepository.saveAllAndFlush(List.of(newComment(), newComment(), newComment()));
+
+        assertTrue(saved.stream().allMatch(comment -> comment.getId() > maxBefore));
+        assertEquals(3, saved.stream().map(Comment::getId).distinct().count());
+        assertTrue(saved.stream().allMatch(comment -> comment.getCreatedAt() != null));
+    }
+
+    private Comment newComment() {
+        Comment comment = new Comment();
+        comment.setName("John");
+        comment.setEmail("john@example.com");
+        comment.setComment("Hello!");
+        comment.setPostId(HOT_POST_ID);
+        return comment;
+    }
+
+    private long insert(String name, String email, String text, long postId) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                VALUES (?, ?, ?, ?, now(), now()) RETURNING id
+                """, Long.class, name, email, text, postId);
+    }
+
+    private static List<Long> ids(List<Hit> hits) {
+        return hits.stream().map(hit -> hit.comment().getId()).toList();
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,115 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PostCommentCountRepository.class)
+class PostCommentCountRepositoryTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgresSupport.registerDataSource(registry);
+    }
+
+    @Autowired
+    private PostCommentCountRepository countRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM comments");
+        jdbcTemplate.update("DELETE FROM post_comment_counts");
+        // Posts 1, 2 and 3 with 20 comments each.
+        jdbcTemplate.update("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                SELECT 'user' || g, 'user' || g || '@example.com', 'comment ' || g, g % 3 + 1,
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second',
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second'
+                FROM generate_series(1, 60) AS g
+                """);
+    }
+
+    @Test
+    void addDeltas_accumulatesAndNeverGoesNegative() {
+        countRepository.addDeltas(seenNow(Map.of(1L, 3L, 2L, -1L)));
+        countRepository.addDeltas(seenNow(Map.of(1L, 2L)));
+        countRepository.addDeltas(seenNow(Map.of(1L, -10L)));
+
+        assertEquals(Map.of(1L, 0L, 2L, 0L), countRepository.findCounts(List.of(1L, 2L, 99L)));
+    }
+
+    @Test
+    void recount_replacesStoredCountsWithRealOnes() {
+        countRepository.addDeltas(seenNow(Map.of(1L, 1_000L)));
+
+        countRepository.recount(List.of(1L, 2L, 99L));
+
+        assertEquals(Map.of(1L, 20L, 2L, 20L, 99L, 0L), countRepository.findCounts(List.of(1L, 2L, 99L)));
+    }
+
+    @Test
+    void addDeltas_leavesOutWritesSeenBeforeTheLastRecount() throws InterruptedException {
+        countRepository.addDeltas(seenNow(Map.of(1L, 5L)));
+        LocalDateTime before = LocalDateTime.now();
+        Thread.sleep(2);
+        countRepository.recount(List.of(1L));
+        Thread.sleep(2);
+        LocalDateTime after = LocalDateTime.now();
+        NavigableMap<LocalDateTime, Long> deltas = new TreeMap<>(Map.of(before, 1L, after, 2L));
+
+        countRepository.addDeltas(Map.of(1L, deltas, 99L, new TreeMap<>(Map.of(before, 4L))));
+
+        // The recount saw the write from before it; a post never counted takes every delta.
+        assertEquals(Map.of(1L, 22L, 99L, 4L), countRepository.findCounts(List.of(1L, 99L)));
+    }
+
+    @Test
+    void reconcileAll_fixesDriftedAndEmptiedPosts() {
+        countRepository.addDeltas(seenNow(Map.of(1L, 20L, 2L, 25L, 4L, 7L)));
+
+        OptionalInt corrected = countRepository.reconcileAll(Duration.ofHours(1));
+
+        // Post 2 was off, post 3 was missing and post 4 no longer has comments.
+        assertEquals(OptionalInt.of(3), corrected);
+        assertEquals(Map.of(1L, 20L, 2L, 20L, 3L, 20L, 4L, 0L),
+                countRepository.findCounts(List.of(1L, 2L, 3L, 4L)));
+    }
+
+    @Test
+    void reconcileAll_runsOncePerIntervalAcrossInstances() {
+        assertTrue(countRepository.reconcileAll(Duration.ofHours(1)).isPresent());
+
+        assertTrue(countRepository.reconcileAll(Duration.ofHours(1)).isEmpty());
+        assertTrue(countRepository.reconcileAll(Duration.ZERO).isPresent());
+    }
+
+    private static Map<Long, NavigableMap<LocalDateTime, Long>> seenNow(Map<Long, Long> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, NavigableMap<LocalDateTime, Long>> bySeenAt = new HashMap<>();
+        deltas.forEach((postId, delta) -> bySeenAt.put(postId, new TreeMap<>(Map.of(now, delta))));
+        return bySeenAt;
+    }
+}
@@ -0,0 +1,117 @@
+package com.mb.commentService.repository;
+
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.support.EmbeddedPostgresSupport;
+import io.r2dbc.spi.ConnectionFactories;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the reactive statements against a database of their own, since R2DBC writes commit and the JPA
+ * repository tests rely on rolled-back transactions.
+ */
+class ReactiveCommentRepositoryTest {
+
+    private static final String DATABASE = "reactive_comments";
+
+    private static JdbcTemplate jdbcTemplate;
+    private static ReactiveCommentRepository repository;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        JdbcTemplate admin = new JdbcTemplate(EmbeddedPostgresSupport.postgres().getPostgresDatabase());
+        admin.execute("DROP DATABASE IF EXISTS " + DATABASE);
+        admin.execute("CREATE DATABASE " + DATABASE);
+
+        String jdbcUrl = EmbeddedPostgresSupport.postgres().getJdbcUrl("postgres", DATABASE);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(jdbcUrl, "postgres", "postgres");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        String r2dbcUrl = "r2dbc:postgresql://postgres@localhost:" + EmbeddedPostgresSupport.postgres().getPort()
+                + "/" + DATABASE;
+        repository = new ReactiveCommentRepository(ConnectionFactories.get(r2dbcUrl), 16);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        repository.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM comments");
+        jdbcTemplate.update("""
+                INSERT INTO comments (name, email, comment, post_id, created_at, updated_at)
+                SELECT 'user' || g, 'user' || g || '@example.com', 'comment ' || g, 42,
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second',
+                       TIMESTAMP '2024-01-01' + g * INTERVAL '1 second'
+                FROM generate_series(1, 100) AS g
+                """);
+    }
+
+    @Test
+    void toR2dbcUrl_keepsDriverOptionsButDropsCredentials() {
+        assertEquals("r2dbc:postgresql://db:5432/blog?sslmode=require",
+                ReactiveCommentRepository.toR2dbcUrl("jdbc:postgresql://db:5432/blog?user=u&sslmode=require&password=p"));
+        assertEquals("r2dbc:postgresql://db/blog", ReactiveCommentRepository.toR2dbcUrl("jdbc:postgresql://db/blog?user=u"));
+    }
+
+    @Test
+    void insert_takesIdsFromPooledSequenceBlocksAndReturnsStoredRow() {
+        CommentDto saved = repository.insert("John", "john@example.com", "Hello!", 7L).block();
+        long drawn = jdbcTemplate.queryForObject("SELECT last_value FROM comments_seq", Long.class);
+        CommentDto next = repository.insert("Jane", "jane@example.com", "Hi!", 7L).block();
+
+        assertNotNull(saved.getId());
+        assertEquals(saved.getCreatedAt(), saved.getUpdatedAt());
+        assertEquals(saved, repository.findById(saved.getId()).block());
+        // Both ids come out of one block: the second insert did not touch the sequence.
+        assertEquals(saved.getId() + 1, next.getId());
+        assertTrue(next.getId() <= drawn);
+        assertEquals(drawn, jdbcTemplate.queryForObject("SELECT last_value FROM comments_seq", Long.class));
+    }
+
+    @Test
+    void findThreadByPostId_streamsNewestFirstAcrossFetchBatches() {
+        List<CommentDto> thread = repository.findThreadByPostId(42L).collectList().block();
+
+        assertEquals(100, thread.size());
+        assertEquals("comment 100", thread.get(0).getComment());
+        assertEquals("comment 1", thread.get(99).getComment());
+        assertEquals(5, repository.findThreadByPostId(42L).take(5).count().block());
+    }
+
+    @Test
+    void updateContent_rewritesEditableColumnsOnly() {
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM comments", Long.class);
+
+        CommentDto updated = repository.updateContent(id, "Jane", "jane@example.com", "Edited").block();
+
+        assertEquals("Edited", updated.getComment());
+        assertEquals(42L, updated.getPostId());
+        assertTrue(updated.getUpdatedAt().isAfter(updated.getCreatedAt()));
+        assertNull(repository.updateContent(-1L, "Jane", "jane@example.com", "Edited").block());
+        // Changing nothing leaves the row, updated_at included, as it is.
+        assertEquals(updated, repository.updateContent(id, "Jane", "jane@example.com", "Edited").block());
+    }
+
+    @Test
+    void deletes_reportPostAndRowCounts() {
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM comments", Long.class);
+
+        assertEquals(42L, repository.deleteReturningPostId(id).block());
+        assertNull(repository.deleteReturningPostId(id).block());
+        assertEquals(60L, repository.deleteChunkByPostId(42L, 60).block());
+        assertEquals(39L, repository.deleteAllByPostId(42L).block());
+    }
+}
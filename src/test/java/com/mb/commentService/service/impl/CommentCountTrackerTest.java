@@ -0,0 +1,124 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentCountProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.repository.PostCommentCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentCountTrackerTest {
+
+    @Mock
+    private PostCommentCountRepository countRepository;
+
+    private CommentCountTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new CommentCountTracker(countRepository, new CommentCountProperties());
+    }
+
+    @Test
+    void flush_writesEveryPostsDeltasInOneCall() {
+        tracker.onCommentEvent(created(10L, 1L));
+        tracker.onCommentEvent(created(10L, 2L));
+        tracker.onCommentEvent(created(20L, 3L));
+        tracker.onCommentEvent(CommentEvent.deleted(3L, 20L));
+        tracker.onCommentEvent(CommentEvent.deleted(4L, 30L));
+
+        tracker.flush();
+
+        // Post 20 nets out to nothing, but only the repository knows which of its deltas a recount has seen.
+        verify(countRepository).addDeltas(argThat(deltas -> totals(deltas).equals(Map.of(10L, 2L, 20L, 0L, 30L, -1L))));
+        verify(countRepository, never()).recount(any());
+
+        tracker.flush();
+        verifyNoMoreInteractions(countRepository);
+    }
+
+    @Test
+    void getCounts_addsUnflushedDeltasToStoredCounts() {
+        when(countRepository.findCounts(List.of(10L, 20L, 30L))).thenReturn(Map.of(10L, 5L, 20L, 1L));
+        tracker.onCommentEvent(created(10L, 1L));
+        tracker.onCommentEvent(CommentEvent.deleted(2L, 20L));
+
+        Map<Long, Long> counts = tracker.getCounts(List.of(10L, 20L, 30L));
+
+        assertEquals(List.of(10L, 20L, 30L), List.copyOf(counts.keySet()));
+        assertEquals(Map.of(10L, 6L, 20L, 0L, 30L, 0L), counts);
+    }
+
+    @Test
+    void postDeleted_dropsEarlierDeltas_andRecountsAfterWritingLaterOnes() {
+        when(countRepository.findCounts(List.of(10L))).thenReturn(Map.of(10L, 50L));
+        tracker.onCommentEvent(created(10L, 1L));
+        tracker.onCommentEvent(CommentEvent.postDeleted(10L));
+        tracker.onCommentEvent(created(10L, 2L));
+
+        // The stored 50 is stale until the recount; only the comment written after the delete is left.
+        assertEquals(1L, tracker.getCounts(List.of(10L)).get(10L));
+
+        tracker.flush();
+
+        InOrder inOrder = inOrder(countRepository);
+        inOrder.verify(countRepository).addDeltas(argThat(deltas -> totals(deltas).equals(Map.of(10L, 1L))));
+        inOrder.verify(countRepository).recount(List.of(10L));
+    }
+
+    @Test
+    void flush_keepsDeltasWhenWriteFails() {
+        tracker.onCommentEvent(created(10L, 1L));
+        doThrow(new DataAccessResourceFailureException("down")).doNothing().when(countRepository).addDeltas(any());
+
+        assertThrows(DataAccessResourceFailureException.class, tracker::flush);
+        tracker.onCommentEvent(created(10L, 2L));
+        tracker.flush();
+
+        verify(countRepository).addDeltas(argThat(deltas -> totals(deltas).equals(Map.of(10L, 2L))));
+    }
+
+    @Test
+    void reconcile_flushesThisInstancesDeltasFirst() {
+        when(countRepository.reconcileAll(Duration.ofHours(1))).thenReturn(OptionalInt.empty());
+        tracker.onCommentEvent(created(10L, 1L));
+
+        tracker.reconcile();
+
+        InOrder inOrder = inOrder(countRepository);
+        inOrder.verify(countRepository).addDeltas(argThat(deltas -> totals(deltas).equals(Map.of(10L, 1L))));
+        inOrder.verify(countRepository).reconcileAll(Duration.ofHours(1));
+    }
+
+    private static Map<Long, Long> totals(Map<Long, ? extends NavigableMap<LocalDateTime, Long>> deltas) {
+        Map<Long, Long> totals = new HashMap<>();
+        deltas.forEach((postId, bySeenAt) -> totals.put(postId, bySeenAt.values().stream().mapToLong(Long::longValue).sum()));
+        return totals;
+    }
+
+    private static CommentEvent created(Long postId, Long id) {
+        CommentDto comment = new CommentDto();
+        comment.setId(id);
+        comment.setPostId(postId);
+        return CommentEvent.created(comment);
+    }
+}
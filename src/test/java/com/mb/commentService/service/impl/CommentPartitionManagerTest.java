@@ -0,0 +1,83 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentPartitionProperties;
+import com.mb.commentService.repository.CommentPartitionRepository;
+import com.mb.commentService.repository.CommentPartitionRepository.Partition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentPartitionManagerTest {
+
+    @Mock
+    private CommentPartitionRepository partitionRepository;
+
+    private final CommentPartitionProperties properties = new CommentPartitionProperties();
+    private CommentPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        properties.setPostsPerPartition(100);
+        properties.setArchiveTablespace("cold");
+        manager = new CommentPartitionManager(partitionRepository, properties);
+    }
+
+    @Test
+    void maintain_createsNewestAndAheadPartitionsPlusRangesCaughtByDefault() {
+        when(partitionRepository.findMaxPostId()).thenReturn(250L);
+        when(partitionRepository.findDefaultPartitionRanges(100)).thenReturn(List.of(900L, 200L));
+        when(partitionRepository.findPartitions()).thenReturn(List.of(
+                new Partition("comments_p0", Long.MIN_VALUE, 100, false),
+                new Partition("comments_p100", 100, 200, false)));
+
+        manager.maintain();
+
+        verify(partitionRepository).createPartition(eq("comments_p200"), eq(200L), eq(300L), any());
+        verify(partitionRepository).createPartition(eq("comments_p300"), eq(300L), eq(400L), any());
+        verify(partitionRepository).createPartition(eq("comments_p400"), eq(400L), eq(500L), any());
+        verify(partitionRepository).createPartition(eq("comments_p900"), eq(900L), eq(1000L), any());
+        verify(partitionRepository, never()).createPartition(eq("comments_p500"), anyLong(), anyLong(), any());
+        verify(partitionRepository, never()).archive(any(), any());
+    }
+
+    @Test
+    void maintain_onlyFillsTheUncoveredPartOfARange() {
+        when(partitionRepository.findMaxPostId()).thenReturn(120L);
+        when(partitionRepository.findPartitions()).thenReturn(List.of(
+                new Partition("comments_p0", Long.MIN_VALUE, 150, false),
+                new Partition("comments_p250", 250, 300, false)));
+        properties.setPartitionsAhead(1);
+
+        manager.maintain();
+
+        verify(partitionRepository).createPartition(eq("comments_p150"), eq(150L), eq(200L), any());
+        verify(partitionRepository).createPartition(eq("comments_p200"), eq(200L), eq(250L), any());
+        verify(partitionRepository, times(2)).createPartition(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void maintain_archivesPartitionsOlderThanTheHotOnesOnce() {
+        when(partitionRepository.findMaxPostId()).thenReturn(350L);
+        when(partitionRepository.findPartitions()).thenReturn(List.of(
+                new Partition("comments_p0", Long.MIN_VALUE, 100, true),
+                new Partition("comments_p100", 100, 200, false),
+                new Partition("comments_p200", 200, 300, false),
+                new Partition("comments_p300", 300, 400, false),
+                new Partition("comments_p400", 400, 500, false),
+                new Partition("comments_p500", 500, 600, false)));
+
+        manager.maintain();
+
+        verify(partitionRepository).archive("comments_p100", "cold");
+        verify(partitionRepository, times(1)).archive(any(), any());
+        verify(partitionRepository, never()).createPartition(any(), anyLong(), anyLong(), any());
+    }
+}
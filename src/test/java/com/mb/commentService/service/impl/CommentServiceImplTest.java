@@ -1,19 +1,55 @@
 package com.mb.commentService.service.impl;
 
+import com.mb.commentService.cache.CommentCache;
+import com.mb.commentService.config.CommentCacheProperties;
+import com.mb.commentService.config.CommentChangeProperties;
+import com.mb.commentService.config.CommentCountProperties;
+import com.mb.commentService.config.CommentMetricsProperties;
+import com.mb.commentService.config.CommentReplicaProperties;
+import com.mb.commentService.config.CommentSearchProperties;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.BulkItemResultDto;
+import com.mb.commentService.dto.ChangeCursor;
+import com.mb.commentService.dto.CommentChangesDto;
+import com.mb.commentService.dto.CommentCursor;
 import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.dto.CommentPageDto;
+import com.mb.commentService.dto.SearchCursor;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.ChangeCursorExpiredException;
 import com.mb.commentService.exception.CommentNotFoundException;
+import com.mb.commentService.exception.CommentWritePendingException;
 import com.mb.commentService.exception.InvalidCommentDataException;
+import com.mb.commentService.datasource.ReplicaReads;
+import com.mb.commentService.ingest.WriteBehindCommentWriter;
+import com.mb.commentService.metrics.CommentMetrics;
 import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentChangeRepository;
+import com.mb.commentService.repository.CommentChangeRepository.Change;
 import com.mb.commentService.repository.CommentRepository;
+import com.mb.commentService.repository.CommentSearchRepository.Hit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +60,48 @@ class CommentServiceImplTest {
     @Mock
     private CommentRepository commentRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private GroupCommitCommentWriter groupCommitWriter;
+
+    @Mock
+    private CommentBatchWriter batchWriter;
+
+    @Mock
+    private WriteBehindCommentWriter writeBehindWriter;
+
+    @Mock
+    private CommentCountTracker countTracker;
+
+    @Mock
+    private CommentChangeRepository changeRepository;
+
+    @Spy
+    private CommentChangeProperties changeProperties = new CommentChangeProperties();
+
+    @Spy
+    private CommentSearchProperties searchProperties = new CommentSearchProperties();
+
+    @Spy
+    private CommentCountProperties countProperties = new CommentCountProperties();
+
+    @Spy
+    private CommentWriteProperties writeProperties = new CommentWriteProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CommentMetrics metrics = new CommentMetrics(meterRegistry, new CommentMetricsProperties());
+
+    @Spy
+    private CommentCache commentCache = new CommentCache(new CommentCacheProperties(), new SimpleMeterRegistry());
+
+    // Replicas disabled: every read runs as it is unless a test stubs otherwise.
+    @Spy
+    private ReplicaReads replicaReads = new ReplicaReads(new CommentReplicaProperties(), null, null, null);
+
     @InjectMocks
     private CommentServiceImpl commentService;
 
@@ -60,6 +138,54 @@ class CommentServiceImplTest {
         verify(commentRepository, times(1)).save(any(Comment.class));
     }
 
+    @Test
+    void createComment_groupCommitEnabled_writesThroughBatcher() {
+        when(groupCommitWriter.isEnabled()).thenReturn(true);
+        when(groupCommitWriter.insert(any(Comment.class))).thenReturn(validComment);
+
+        CommentDto result = commentService.createComment(validDto);
+
+        assertEquals(1L, result.getId());
+        verify(commentRepository, never()).save(any());
+    }
+
+    @Test
+    void createComment_writeBehindEnabled_acknowledgesLoggedCommentWithoutInsertOrEvent() {
+        CommentDto logged = commentAt(51L, LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(writeBehindWriter.isEnabled()).thenReturn(true);
+        when(writeBehindWriter.append(any(Comment.class))).thenReturn(Optional.of(logged));
+
+        CommentDto result = commentService.createComment(validDto);
+
+        assertSame(logged, result);
+        verify(commentRepository, never()).save(any());
+        verifyNoInteractions(groupCommitWriter, eventPublisher);
+    }
+
+    @Test
+    void createComment_writeBehindDeclines_writesDirectly() {
+        when(writeBehindWriter.isEnabled()).thenReturn(true);
+        when(commentRepository.save(any(Comment.class))).thenReturn(validComment);
+
+        CommentDto result = commentService.createComment(validDto);
+
+        assertEquals(1L, result.getId());
+        verify(eventPublisher).publishEvent(any(CommentEvent.class));
+    }
+
+    @Test
+    void createComment_publishesCreatedEvent() {
+        when(commentRepository.save(any(Comment.class))).thenReturn(validComment);
+
+        commentService.createComment(validDto);
+
+        ArgumentCaptor<CommentEvent> event = ArgumentCaptor.forClass(CommentEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(CommentEvent.Type.CREATED, event.getValue().getType());
+        assertEquals(1L, event.getValue().getCommentId());
+        assertEquals(10L, event.getValue().getPostId());
+    }
+
     @Test
     void createComment_missingName_throwsException() {
         validDto.setName(null);
@@ -114,19 +240,30 @@ class CommentServiceImplTest {
 
     @Test
     void getCommentById_success() {
-        when(commentRepository.findById(1L)).thenReturn(Optional.of(validComment));
+        when(commentRepository.findDtoById(1L)).thenReturn(Optional.of(validDto));
 
         CommentDto result = commentService.getCommentById(1L);
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
 
-        verify(commentRepository, times(1)).findById(1L);
+        verify(commentRepository, times(1)).findDtoById(1L);
+    }
+
+    @Test
+    void getCommentById_repeatedReads_areServedFromCache() {
+        when(commentRepository.findDtoById(1L)).thenReturn(Optional.of(validDto));
+
+        commentService.getCommentById(1L);
+        CommentDto result = commentService.getCommentById(1L);
+
+        assertEquals(1L, result.getId());
+        verify(commentRepository, times(1)).findDtoById(1L);
     }
 
     @Test
     void getCommentById_commentNotFound() {
-        when(commentRepository.findById(1L)).thenReturn(Optional.empty());
+        when(commentRepository.findDtoById(1L)).thenReturn(Optional.empty());
 
         CommentNotFoundException ex = assertThrows(
                 CommentNotFoundException.class,
@@ -139,8 +276,8 @@ class CommentServiceImplTest {
 
     @Test
     void getCommentsByPostId_success() {
-        when(commentRepository.findByPostIdOrderByCreatedAtDesc(10L))
-                .thenReturn(List.of(validComment));
+        when(commentRepository.findThreadByPostId(10L))
+                .thenReturn(List.of(validDto));
 
         List<CommentDto> result = commentService.getCommentsByPostId(10L);
 
@@ -148,12 +285,42 @@ class CommentServiceImplTest {
         assertEquals(1, result.size());
         assertEquals(10L, result.get(0).getPostId());
 
-        verify(commentRepository, times(1)).findByPostIdOrderByCreatedAtDesc(10L);
+        verify(commentRepository, times(1)).findThreadByPostId(10L);
+    }
+
+    @Test
+    void getCommentsByPostId_recentlyWrittenPost_isReadFromPrimary() {
+        doReturn(true).when(replicaReads).isRecentlyWritten(10L);
+        when(commentRepository.findThreadByPostId(10L)).thenReturn(List.of(validDto));
+
+        assertEquals(List.of(validDto), commentService.getCommentsByPostId(10L));
+
+        verify(replicaReads).readPrimary(any());
+        verify(replicaReads, never()).read(any());
+    }
+
+    @Test
+    void getCommentsByPostId_mergesPendingCommentsNewestFirst() {
+        CommentDto stored = commentAt(1L, LocalDateTime.of(2024, 1, 1, 10, 0));
+        CommentDto applied = commentAt(2L, LocalDateTime.of(2024, 1, 1, 11, 0));
+        CommentDto pending = commentAt(3L, LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(writeBehindWriter.pendingForPost(10L)).thenReturn(List.of(pending, applied));
+        when(commentRepository.findThreadByPostId(10L)).thenReturn(List.of(applied, stored));
+
+        assertEquals(List.of(pending, applied, stored), commentService.getCommentsByPostId(10L));
+    }
+
+    @Test
+    void getCommentById_returnsPendingCommentBeforeItIsStored() {
+        when(writeBehindWriter.findPending(1L)).thenReturn(Optional.of(validDto));
+
+        assertSame(validDto, commentService.getCommentById(1L));
+        verifyNoInteractions(commentRepository);
     }
 
     @Test
     void getCommentsByPostId_noComments_returnsEmptyList() {
-        when(commentRepository.findByPostIdOrderByCreatedAtDesc(99L))
+        when(commentRepository.findThreadByPostId(99L))
                 .thenReturn(List.of());
 
         List<CommentDto> comments = commentService.getCommentsByPostId(99L);
@@ -163,32 +330,473 @@ class CommentServiceImplTest {
         verify(commentRepository, never()).save(any());
     }
 
+    @Test
+    void getCommentsPageByPostId_firstPage_returnsNextCursorWhenMoreRowsExist() {
+        CommentDto newest = commentAt(3L, LocalDateTime.of(2024, 1, 1, 12, 0));
+        CommentDto middle = commentAt(2L, LocalDateTime.of(2024, 1, 1, 11, 0));
+        CommentDto oldest = commentAt(1L, LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(commentRepository.findPageByPostId(10L, Limit.of(3)))
+                .thenReturn(List.of(newest, middle, oldest));
+
+        CommentPageDto page = commentService.getCommentsPageByPostId(10L, null, 2);
+
+        assertEquals(2, page.getComments().size());
+        assertEquals(3L, page.getComments().get(0).getId());
+        assertEquals(2L, page.getComments().get(1).getId());
+
+        CommentCursor cursor = CommentCursor.decode(page.getNextCursor());
+        assertEquals(2L, cursor.getId());
+        assertEquals(middle.getCreatedAt(), cursor.getCreatedAt());
+    }
+
+    @Test
+    void getCommentsPageByPostId_afterCursor_usesKeysetQuery() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 11, 0);
+        String after = new CommentCursor(createdAt, 2L).encode();
+        CommentDto oldest = commentAt(1L, LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(commentRepository.findPageByPostIdAfter(10L, createdAt, 2L, Limit.of(3)))
+                .thenReturn(List.of(oldest));
+
+        CommentPageDto page = commentService.getCommentsPageByPostId(10L, after, 2);
+
+        assertEquals(1, page.getComments().size());
+        assertEquals(1L, page.getComments().get(0).getId());
+        assertNull(page.getNextCursor());
+        verify(commentRepository, never()).findPageByPostId(any(), any());
+    }
+
+    @Test
+    void getCommentsPageByPostId_limitAboveMaximum_isCapped() {
+        when(commentRepository.findPageByPostId(10L, Limit.of(CommentServiceImpl.MAX_PAGE_SIZE + 1)))
+                .thenReturn(List.of());
+
+        CommentPageDto page = commentService.getCommentsPageByPostId(10L, null, 10_000);
+
+        assertTrue(page.getComments().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getCommentsPageByPostId_invalidCursor_throwsException() {
+        InvalidCommentDataException ex = assertThrows(
+                InvalidCommentDataException.class,
+                () -> commentService.getCommentsPageByPostId(10L, "not-a-cursor", 20)
+        );
+
+        assertTrue(ex.getMessage().startsWith("Invalid cursor"));
+    }
+
+    @Test
+    void getCommentsPageByPostId_nonPositiveLimit_throwsException() {
+        InvalidCommentDataException ex = assertThrows(
+                InvalidCommentDataException.class,
+                () -> commentService.getCommentsPageByPostId(10L, null, 0)
+        );
+
+        assertEquals("Limit must be positive", ex.getMessage());
+    }
+
+    @Test
+    void streamCommentsByPostId_passesEveryRowToConsumer() {
+        when(commentRepository.streamByPostId(10L)).thenReturn(Stream.of(validDto, validDto));
+
+        List<CommentDto> received = new ArrayList<>();
+        commentService.streamCommentsByPostId(10L, received::add);
+
+        assertEquals(2, received.size());
+    }
+
     @Test
     void updateComment_success() {
-        when(commentRepository.findById(1L)).thenReturn(Optional.of(validComment));
-        when(commentRepository.save(validComment)).thenReturn(validComment);
+        when(commentRepository.updateContent(1L, "John", "john@example.com", "Hello!")).thenReturn(Optional.of(validComment));
 
         CommentDto result = commentService.updateComment(1L, validDto);
 
         assertNotNull(result);
         assertEquals("Hello!", result.getComment());
 
-        verify(commentRepository, times(1)).findById(1L);
+        verify(commentRepository, never()).findById(any());
+        verify(commentRepository, never()).save(any());
+    }
+
+    @Test
+    void updateComment_commentNotFound() {
+        when(commentRepository.updateContent(eq(1L), any(), any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(CommentNotFoundException.class, () -> commentService.updateComment(1L, validDto));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateComment_invalidData_doesNotTouchRepository() {
+        validDto.setName(" ");
+
+        InvalidCommentDataException ex = assertThrows(InvalidCommentDataException.class,
+                () -> commentService.updateComment(1L, validDto));
+
+        assertEquals("Name is required", ex.getMessage());
+        verifyNoInteractions(commentRepository);
     }
 
     @Test
     void deleteComment_success() {
-        when(commentRepository.existsById(1L)).thenReturn(true);
+        when(commentRepository.deleteReturningPostId(1L)).thenReturn(Optional.of(10L));
+
+        commentService.deleteComment(1L);
+
+        verify(commentRepository, never()).findById(any());
+        ArgumentCaptor<CommentEvent> event = ArgumentCaptor.forClass(CommentEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(CommentEvent.Type.DELETED, event.getValue().getType());
+        assertEquals(10L, event.getValue().getPostId());
+    }
+
+    @Test
+    void deleteComment_waitsForPendingComment() {
+        doThrow(new CommentWritePendingException("still being written")).when(writeBehindWriter).awaitApplied(1L);
+
+        assertThrows(CommentWritePendingException.class, () -> commentService.deleteComment(1L));
+
+        verifyNoInteractions(commentRepository, eventPublisher);
+    }
+
+    @Test
+    void deleteComment_timesTheDatabaseWithoutTheWriteBehindWait() {
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return null;
+        }).when(writeBehindWriter).awaitApplied(1L);
+        when(commentRepository.deleteReturningPostId(1L)).thenReturn(Optional.of(10L));
 
         commentService.deleteComment(1L);
 
-        verify(commentRepository, times(1)).deleteById(1L);
+        Timer database = meterRegistry.get("comment.operation.phase").tags("operation", "delete", "phase", "db").timer();
+        Timer operation = meterRegistry.get("comment.operation").tags("operation", "delete").timer();
+        assertTrue(database.totalTime(TimeUnit.MILLISECONDS) < 100);
+        assertTrue(operation.totalTime(TimeUnit.MILLISECONDS) >= 100);
+    }
+
+    @Test
+    void deleteComment_commentNotFound() {
+        when(commentRepository.deleteReturningPostId(1L)).thenReturn(Optional.empty());
+
+        assertThrows(CommentNotFoundException.class, () -> commentService.deleteComment(1L));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void deleteCommentsByPostId_deletesInChunksUntilOneRemovesNothing() {
+        writeProperties.setPostDeleteChunkSize(2);
+        // The short chunk skipped a row updated concurrently; the next one picks it up.
+        when(commentRepository.deleteChunkByPostId(10L, 2)).thenReturn(2, 1, 2, 0);
+
+        long deleted = commentService.deleteCommentsByPostId(10L);
+
+        assertEquals(5L, deleted);
+        verify(commentRepository, times(4)).deleteChunkByPostId(10L, 2);
+        verify(commentRepository, never()).findThreadByPostId(anyLong());
+        verify(eventPublisher, times(1)).publishEvent(any(CommentEvent.class));
+    }
+
+    @Test
+    void deleteCommentsByPostId_singleStatementWhenChunkingDisabled() {
+        writeProperties.setPostDeleteChunkSize(0);
+        when(commentRepository.deleteAllByPostId(10L)).thenReturn(7);
+
+        long deleted = commentService.deleteCommentsByPostId(10L);
+
+        assertEquals(7L, deleted);
+        verify(commentRepository, never()).deleteChunkByPostId(anyLong(), anyInt());
+        verify(eventPublisher).publishEvent(any(CommentEvent.class));
+    }
+
+    @Test
+    void getLatestCommentsByPostIds_splitsOneQueryIntoPagesPerPost() {
+        CommentDto first = new CommentDto(1L, "John", "john@example.com", "a", 10L, LocalDateTime.now(), LocalDateTime.now());
+        CommentDto second = new CommentDto(2L, "John", "john@example.com", "b", 10L, LocalDateTime.now(), LocalDateTime.now());
+        CommentDto third = new CommentDto(3L, "John", "john@example.com", "c", 20L, LocalDateTime.now(), LocalDateTime.now());
+        when(commentRepository.findLatestByPostIds(anyCollection(), eq(2))).thenReturn(List.of(first, second, third));
+
+        Map<Long, CommentPageDto> pages = commentService.getLatestCommentsByPostIds(List.of(10L, 20L, 30L), 1);
+
+        assertEquals(List.of(10L, 20L, 30L), List.copyOf(pages.keySet()));
+        assertEquals(List.of(first), pages.get(10L).getComments());
+        assertEquals(CommentCursor.of(first).encode(), pages.get(10L).getNextCursor());
+        assertEquals(List.of(third), pages.get(20L).getComments());
+        assertNull(pages.get(20L).getNextCursor());
+        assertTrue(pages.get(30L).getComments().isEmpty());
+
+        commentService.getLatestCommentsByPostIds(List.of(20L, 10L), 1);
+        verify(commentRepository, times(1)).findLatestByPostIds(anyCollection(), anyInt());
+    }
+
+    @Test
+    void getCommentCounts_asksTrackerOncePerDistinctPost() {
+        when(countTracker.getCounts(any())).thenReturn(Map.of(10L, 3L, 20L, 0L));
+
+        Map<Long, Long> counts = commentService.getCommentCounts(List.of(10L, 20L, 10L));
+
+        assertEquals(Map.of(10L, 3L, 20L, 0L), counts);
+        verify(countTracker).getCounts(argThat(postIds -> postIds.size() == 2));
+    }
+
+    @Test
+    void getCommentCounts_rejectsEmptyAndOversizedRequests() {
+        countProperties.setMaxPostIds(2);
+
+        assertThrows(InvalidCommentDataException.class, () -> commentService.getCommentCounts(List.of()));
+        assertThrows(InvalidCommentDataException.class, () -> commentService.getCommentCounts(List.of(1L, 2L, 3L)));
+        verifyNoInteractions(countTracker);
+    }
+
+    @Test
+    void searchComments_returnsPageWithRankCursorWhenMoreMatch() {
+        CommentDto first = new CommentDto(7L, "John", "john@example.com", "Great post", 10L, null, null);
+        CommentDto second = new CommentDto(5L, "Jane", "jane@example.com", "Great read", 20L, null, null);
+        CommentDto third = new CommentDto(3L, "Joe", "joe@example.com", "Great", 10L, null, null);
+        when(commentRepository.search("great", null, null, 3, 5_000))
+                .thenReturn(List.of(new Hit(first, 0.5f), new Hit(second, 0.25f), new Hit(third, 0.25f)));
+
+        CommentPageDto page = commentService.searchComments("  great ", null, null, 2);
+
+        assertEquals(List.of(first, second), page.getComments());
+        SearchCursor cursor = SearchCursor.decode(page.getNextCursor());
+        assertEquals(0.25f, cursor.getRank());
+        assertEquals(5L, cursor.getId());
+    }
+
+    @Test
+    void searchComments_continuesAfterCursorWithinPost() {
+        when(commentRepository.search(eq("great"), eq(10L), any(SearchCursor.class), eq(21), eq(5_000)))
+                .thenReturn(List.of());
+
+        CommentPageDto page = commentService.searchComments("great", 10L, new SearchCursor(0.25f, 5L).encode(), null);
+
+        assertTrue(page.getComments().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(commentRepository).search(eq("great"), eq(10L),
+                argThat(cursor -> cursor.getRank() == 0.25f && cursor.getId() == 5L), eq(21), eq(5_000));
+    }
+
+    @Test
+    void searchComments_rejectsBlankOrOversizedQueriesAndBadCursors() {
+        searchProperties.setMaxQueryLength(10);
+
+        assertThrows(InvalidCommentDataException.class, () -> commentService.searchComments(" ", null, null, null));
+        assertThrows(InvalidCommentDataException.class, () -> commentService.searchComments(null, null, null, null));
+        assertThrows(InvalidCommentDataException.class, () -> commentService.searchComments("x".repeat(11), null, null, null));
+        assertThrows(InvalidCommentDataException.class, () -> commentService.searchComments("great", null, "not-a-cursor", null));
+        verify(commentRepository, never()).search(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getCommentChanges_withoutCursor_startsAtCurrentHorizon() {
+        when(changeRepository.currentHorizon()).thenReturn(500L);
+
+        CommentChangesDto changes = commentService.getCommentChanges(10L, null, null);
+
+        assertTrue(changes.getChanged().isEmpty());
+        assertEquals(500L, ChangeCursor.decode(changes.getNextCursor()).getTxid());
+        verify(changeRepository, never()).findChanges(anyLong(), anyLong(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void getCommentChanges_splitsChangesAndTombstonesAndContinuesAfterLastRow() {
+        CommentDto edited = new CommentDto(1L, "John", "john@example.com", "edited", 10L, LocalDateTime.now(), LocalDateTime.now());
+        String since = new ChangeCursor(100L, 0L, System.currentTimeMillis()).encode();
+        when(changeRepository.currentHorizon()).thenReturn(500L);
+        when(changeRepository.findChanges(10L, 100L, 0L, 500L, 3)).thenReturn(List.of(
+                new Change(120L, 1L, edited), new Change(130L, 2L, null), new Change(140L, 3L, null)));
+
+        CommentChangesDto changes = commentService.getCommentChanges(10L, since, 2);
+
+        assertEquals(List.of(edited), changes.getChanged());
+        assertEquals(List.of(2L), changes.getDeleted());
+        assertTrue(changes.isHasMore());
+        ChangeCursor next = ChangeCursor.decode(changes.getNextCursor());
+        assertEquals(130L, next.getTxid());
+        assertEquals(2L, next.getId());
+    }
+
+    @Test
+    void getCommentChanges_caughtUp_movesCursorToHorizon() {
+        String since = new ChangeCursor(100L, 7L, System.currentTimeMillis()).encode();
+        when(changeRepository.currentHorizon()).thenReturn(500L);
+        when(changeRepository.findChanges(anyLong(), anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(List.of());
+
+        CommentChangesDto changes = commentService.getCommentChanges(10L, since, null);
+
+        assertFalse(changes.isHasMore());
+        ChangeCursor next = ChangeCursor.decode(changes.getNextCursor());
+        assertEquals(500L, next.getTxid());
+        assertEquals(0L, next.getId());
     }
 
     @Test
-    void deleteCommentsByPostId_success() {
-        commentService.deleteCommentsByPostId(10L);
+    void getCommentChanges_rejectsCursorsOlderThanTombstoneRetention() {
+        long issuedAt = System.currentTimeMillis() - changeProperties.getTombstoneRetention().toMillis() - 1_000;
+        String since = new ChangeCursor(100L, 0L, issuedAt).encode();
+
+        assertThrows(ChangeCursorExpiredException.class, () -> commentService.getCommentChanges(10L, since, null));
+        assertThrows(InvalidCommentDataException.class, () -> commentService.getCommentChanges(10L, "garbage", null));
+        verifyNoInteractions(changeRepository);
+    }
+
+    @Test
+    void operations_recordLatencyErrorsAndResultSizes() {
+        when(commentRepository.findDtoById(1L)).thenReturn(Optional.empty());
+        when(commentRepository.findThreadByPostId(42L)).thenReturn(List.of(
+                commentAt(2L, LocalDateTime.of(2024, 1, 2, 0, 0)),
+                commentAt(1L, LocalDateTime.of(2024, 1, 1, 0, 0))));
+        validDto.setName(null);
+
+        assertThrows(CommentNotFoundException.class, () -> commentService.getCommentById(1L));
+        assertThrows(InvalidCommentDataException.class, () -> commentService.createComment(validDto));
+        commentService.getCommentsByPostId(42L);
+
+        assertEquals(1, meterRegistry.get("comment.operation.errors")
+                .tags("operation", "get", "exception", "CommentNotFoundException").counter().count());
+        assertEquals(1, meterRegistry.get("comment.operation.errors")
+                .tags("operation", "create", "exception", "InvalidCommentDataException").counter().count());
+        DistributionSummary sizes = meterRegistry.get("comment.result.size")
+                .tags("operation", "thread", "post.bucket", "10").summary();
+        assertEquals(1, sizes.count());
+        assertEquals(2, sizes.totalAmount());
+        assertEquals(3, meterRegistry.get("comment.operation").timers().stream().mapToLong(Timer::count).sum());
+        assertEquals(1, meterRegistry.get("comment.operation.phase")
+                .tags("operation", "thread", "phase", "db").timer().count());
+    }
+
+    private CommentDto commentAt(Long id, LocalDateTime createdAt) {
+        CommentDto comment = new CommentDto();
+        comment.setId(id);
+        comment.setName("John");
+        comment.setEmail("john@example.com");
+        comment.setComment("Hello!");
+        comment.setPostId(10L);
+        comment.setCreatedAt(createdAt);
+        comment.setUpdatedAt(createdAt);
+        return comment;
+    }
+
+    @Test
+    void createComments_reportsInvalidItemsAndInsertsTheRestInChunks() {
+        writeProperties.getBulk().setChunkSize(2);
+        CommentDto invalid = new CommentDto();
+        invalid.setName("No post");
+        invalid.setEmail("a@b.c");
+        invalid.setComment("text");
+        List<CommentDto> items = List.of(bulkDto(null, 10L), invalid, bulkDto(null, 10L), bulkDto(null, 11L));
+        when(batchWriter.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Comment> comments = invocation.getArgument(0);
+            comments.forEach(comment -> comment.setId(100L + comment.getPostId() * 10 + comments.indexOf(comment)));
+            return comments;
+        });
+
+        List<BulkItemResultDto> results = commentService.createComments(items);
+
+        assertEquals(4, results.size());
+        assertEquals(BulkItemResultDto.Status.CREATED, results.get(0).getStatus());
+        assertEquals(BulkItemResultDto.Status.INVALID, results.get(1).getStatus());
+        assertEquals("Post ID is required", results.get(1).getError());
+        assertEquals(BulkItemResultDto.Status.CREATED, results.get(2).getStatus());
+        assertEquals(BulkItemResultDto.Status.CREATED, results.get(3).getStatus());
+        assertEquals(3, results.get(3).getIndex());
+        assertNotNull(results.get(3).getId());
+        verify(batchWriter, times(2)).insertAll(anyList());
+        verify(eventPublisher, times(3)).publishEvent(any(CommentEvent.class));
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void createComments_retriesFailedChunkRowByRow() {
+        List<CommentDto> items = List.of(bulkDto(null, 10L), bulkDto(null, 99L));
+        when(batchWriter.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Comment> comments = invocation.getArgument(0);
+            if (comments.stream().anyMatch(comment -> comment.getPostId() == 99L)) {
+                throw new IllegalStateException("constraint violated");
+            }
+            comments.forEach(comment -> comment.setId(7L));
+            return comments;
+        });
+
+        List<BulkItemResultDto> results = commentService.createComments(items);
+
+        assertEquals(BulkItemResultDto.Status.CREATED, results.get(0).getStatus());
+        assertEquals(7L, results.get(0).getId());
+        assertEquals(BulkItemResultDto.Status.FAILED, results.get(1).getStatus());
+        assertEquals("constraint violated", results.get(1).getError());
+        verify(batchWriter, times(3)).insertAll(anyList());
+        verify(eventPublisher, times(1)).publishEvent(any(CommentEvent.class));
+    }
+
+    @Test
+    void createComments_rejectsOversizedRequest() {
+        writeProperties.getBulk().setMaxItems(1);
+
+        InvalidCommentDataException ex = assertThrows(InvalidCommentDataException.class,
+                () -> commentService.createComments(List.of(validDto, validDto)));
+
+        assertEquals("Bulk requests are limited to 1 items", ex.getMessage());
+        verifyNoInteractions(batchWriter);
+    }
+
+    @Test
+    void updateComments_reportsMissingDuplicateAndUnknownIds() {
+        CommentDto missingId = bulkDto(null, 10L);
+        List<CommentDto> items = List.of(bulkDto(1L, 10L), missingId, bulkDto(1L, 10L), bulkDto(2L, 10L));
+        when(batchWriter.updateAll(anyMap())).thenReturn(Map.of(1L, validComment));
+
+        List<BulkItemResultDto> results = commentService.updateComments(items);
+
+        assertEquals(BulkItemResultDto.Status.UPDATED, results.get(0).getStatus());
+        assertEquals("Comment ID is required", results.get(1).getError());
+        assertEquals("Duplicate comment ID: 1", results.get(2).getError());
+        assertEquals(BulkItemResultDto.Status.NOT_FOUND, results.get(3).getStatus());
+        verify(batchWriter).updateAll(Map.of(1L, items.get(0), 2L, items.get(3)));
+        verify(eventPublisher).publishEvent(any(CommentEvent.class));
+    }
+
+    @Test
+    void bulkWrites_reportNullItemsAsInvalid() {
+        when(batchWriter.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(batchWriter.updateAll(anyMap())).thenReturn(Map.of(1L, validComment));
+
+        List<BulkItemResultDto> created = commentService.createComments(Arrays.asList(null, bulkDto(null, 10L)));
+        List<BulkItemResultDto> updated = commentService.updateComments(Arrays.asList(bulkDto(1L, 10L), null));
+
+        assertEquals(BulkItemResultDto.Status.INVALID, created.get(0).getStatus());
+        assertEquals("Comment data is required", created.get(0).getError());
+        assertEquals(BulkItemResultDto.Status.CREATED, created.get(1).getStatus());
+        assertEquals(BulkItemResultDto.Status.UPDATED, updated.get(0).getStatus());
+        assertEquals(BulkItemResultDto.Status.INVALID, updated.get(1).getStatus());
+        assertEquals(1, updated.get(1).getIndex());
+        assertNull(updated.get(1).getId());
+    }
+
+    @Test
+    void deleteComments_publishesDeleteEventPerRemovedComment() {
+        when(batchWriter.deleteAll(List.of(1L, 2L, 3L))).thenReturn(Map.of(1L, 10L, 3L, 11L));
+
+        List<BulkItemResultDto> results = commentService.deleteComments(List.of(1L, 2L, 3L));
+
+        assertEquals(BulkItemResultDto.Status.DELETED, results.get(0).getStatus());
+        assertEquals(BulkItemResultDto.Status.NOT_FOUND, results.get(1).getStatus());
+        assertEquals(BulkItemResultDto.Status.DELETED, results.get(2).getStatus());
+        ArgumentCaptor<CommentEvent> events = ArgumentCaptor.forClass(CommentEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(11L, events.getAllValues().get(1).getPostId());
+    }
 
-        verify(commentRepository, times(1)).deleteByPostId(10L);
+    private CommentDto bulkDto(Long id, Long postId) {
+        CommentDto dto = new CommentDto();
+        dto.setId(id);
+        dto.setName("John");
+        dto.setEmail("john@example.com");
+        dto.setComment("Bulk");
+        dto.setPostId(postId);
+        return dto;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.model.Comment;
+import com.mb.commentService.repository.CommentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitCommentWriterTest {
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private GroupCommitCommentWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        CommentWriteProperties properties = new CommentWriteProperties();
+        properties.getGroupCommit().setEnabled(true);
+        properties.getGroupCommit().setMaxBatchSize(10);
+        properties.getGroupCommit().setMaxDelay(Duration.ofMillis(50));
+        properties.getGroupCommit().setFlusherThreads(1);
+        writer = new GroupCommitCommentWriter(commentRepository, transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void concurrentCreates_shareBatchesAndEachGetsItsOwnId() throws Exception {
+        lenient().when(commentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Comment> comments = invocation.getArgument(0);
+            synchronized (batchSizes) {
+                batchSizes.add(comments.size());
+            }
+            comments.forEach(comment -> comment.setId(ids.incrementAndGet()));
+            return comments;
+        });
+        writer.start();
+
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+        List<Future<Comment>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Comment comment = comment("comment " + i);
+            results.add(callers.submit(() -> writer.insert(comment)));
+        }
+        Set<Long> assigned = new HashSet<>();
+        for (Future<Comment> result : results) {
+            assigned.add(result.get().getId());
+        }
+        callers.shutdown();
+
+        assertEquals(40, assigned.size());
+        assertTrue(batchSizes.size() < 40, "creates were grouped: " + batchSizes);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10), "batches respect max size: " + batchSizes);
+    }
+
+    @Test
+    void failedBatch_isRetriedRowByRowSoOnlyTheBadRowFails() {
+        Comment good = comment("good");
+        Comment bad = comment("bad");
+        when(commentRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("constraint"));
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> {
+            Comment comment = invocation.getArgument(0);
+            if ("bad".equals(comment.getComment())) {
+                throw new DataIntegrityViolationException("constraint");
+            }
+            comment.setId(ids.incrementAndGet());
+            return comment;
+        });
+        GroupCommitCommentWriter.PendingInsert goodInsert = new GroupCommitCommentWriter.PendingInsert(good);
+        GroupCommitCommentWriter.PendingInsert badInsert = new GroupCommitCommentWriter.PendingInsert(bad);
+
+        writer.write(List.of(goodInsert, badInsert));
+
+        assertEquals(good, goodInsert.result.join());
+        assertTrue(badInsert.result.isCompletedExceptionally());
+        verify(commentRepository, times(2)).save(any(Comment.class));
+    }
+
+    @Test
+    void disabledWriter_savesDirectly() {
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        writer.insert(comment("direct"));
+
+        assertFalse(writer.isEnabled());
+        verify(commentRepository, never()).saveAll(anyList());
+    }
+
+    private Comment comment(String text) {
+        Comment comment = new Comment();
+        comment.setName("John");
+        comment.setEmail("john@example.com");
+        comment.setComment(text);
+        comment.setPostId(10L);
+        return comment;
+    }
+}
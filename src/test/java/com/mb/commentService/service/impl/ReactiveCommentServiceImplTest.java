@@ -0,0 +1,202 @@
+package com.mb.commentService.service.impl;
+
+import com.mb.commentService.config.CommentMetricsProperties;
+import com.mb.commentService.config.CommentWriteProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.CommentNotFoundException;
+import com.mb.commentService.exception.CommentWritePendingException;
+import com.mb.commentService.exception.InvalidCommentDataException;
+import com.mb.commentService.ingest.WriteBehindCommentWriter;
+import com.mb.commentService.metrics.CommentMetrics;
+import com.mb.commentService.repository.ReactiveCommentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCommentServiceImplTest {
+
+    @Mock
+    private ReactiveCommentRepository commentRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private WriteBehindCommentWriter writeBehindWriter;
+
+    @Spy
+    private CommentWriteProperties writeProperties = new CommentWriteProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CommentMetrics metrics = new CommentMetrics(meterRegistry, new CommentMetricsProperties());
+
+    @InjectMocks
+    private ReactiveCommentServiceImpl commentService;
+
+    private CommentDto validDto;
+
+    @BeforeEach
+    void setUp() {
+        validDto = new CommentDto();
+        validDto.setId(1L);
+        validDto.setName("John");
+        validDto.setEmail("john@example.com");
+        validDto.setComment("Hello!");
+        validDto.setPostId(10L);
+    }
+
+    @Test
+    void createComment_publishesCreatedEvent() {
+        when(commentRepository.insert("John", "john@example.com", "Hello!", 10L)).thenReturn(Mono.just(validDto));
+
+        CommentDto result = commentService.createComment(validDto).block();
+
+        assertEquals(1L, result.getId());
+        ArgumentCaptor<CommentEvent> event = ArgumentCaptor.forClass(CommentEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(CommentEvent.Type.CREATED, event.getValue().getType());
+        assertEquals(10L, event.getValue().getPostId());
+    }
+
+    @Test
+    void createComment_invalidData_failsWithSameErrorAsBlockingService() {
+        validDto.setPostId(null);
+
+        Mono<CommentDto> result = commentService.createComment(validDto);
+
+        InvalidCommentDataException ex = assertThrows(InvalidCommentDataException.class, result::block);
+        assertEquals("Post ID is required", ex.getMessage());
+        verifyNoInteractions(commentRepository, eventPublisher);
+    }
+
+    @Test
+    void getCommentById_commentNotFound() {
+        when(commentRepository.findById(1L)).thenReturn(Mono.empty());
+
+        Mono<CommentDto> result = commentService.getCommentById(1L);
+
+        assertThrows(CommentNotFoundException.class, result::block);
+        assertEquals(1, meterRegistry.get("comment.operation.errors")
+                .tags("operation", "get", "exception", "CommentNotFoundException").counter().count());
+        assertEquals(1, meterRegistry.get("comment.operation").tags("operation", "get").timer().count());
+        assertEquals(1, meterRegistry.get("comment.operation.phase")
+                .tags("operation", "get", "phase", "db").timer().count());
+    }
+
+    @Test
+    void getCommentById_returnsPendingCommentBeforeItIsStored() {
+        when(writeBehindWriter.findPending(1L)).thenReturn(Optional.of(validDto));
+
+        assertSame(validDto, commentService.getCommentById(1L).block());
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void getCommentsByPostId_emitsThreadFromRepository() {
+        when(commentRepository.findThreadByPostId(10L)).thenReturn(Flux.just(validDto, validDto));
+
+        List<CommentDto> result = commentService.getCommentsByPostId(10L).collectList().block();
+
+        assertEquals(2, result.size());
+        assertEquals(2, meterRegistry.get("comment.result.size")
+                .tags("operation", "stream", "post.bucket", "10").summary().totalAmount());
+    }
+
+    @Test
+    void getCommentsByPostId_sendsPendingCommentsFirstAndOnlyOnce() {
+        CommentDto stored = commentAt(1L, LocalDateTime.of(2024, 1, 1, 10, 0));
+        CommentDto applied = commentAt(2L, LocalDateTime.of(2024, 1, 1, 11, 0));
+        CommentDto pending = commentAt(3L, LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(writeBehindWriter.pendingForPost(10L)).thenReturn(List.of(pending, applied));
+        when(commentRepository.findThreadByPostId(10L)).thenReturn(Flux.just(applied, stored));
+
+        assertEquals(List.of(pending, applied, stored), commentService.getCommentsByPostId(10L).collectList().block());
+    }
+
+    @Test
+    void updateComment_invalidData_doesNotTouchRepository() {
+        validDto.setComment(" ");
+
+        Mono<CommentDto> result = commentService.updateComment(1L, validDto);
+
+        assertThrows(InvalidCommentDataException.class, result::block);
+        verifyNoInteractions(commentRepository, eventPublisher);
+    }
+
+    @Test
+    void updateComment_commentNotFound() {
+        when(commentRepository.updateContent(1L, "John", "john@example.com", "Hello!")).thenReturn(Mono.empty());
+
+        Mono<CommentDto> result = commentService.updateComment(1L, validDto);
+
+        assertThrows(CommentNotFoundException.class, result::block);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void deleteComment_publishesDeletedEventWithReturnedPost() {
+        when(commentRepository.deleteReturningPostId(1L)).thenReturn(Mono.just(10L));
+
+        commentService.deleteComment(1L).block();
+
+        ArgumentCaptor<CommentEvent> event = ArgumentCaptor.forClass(CommentEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(CommentEvent.Type.DELETED, event.getValue().getType());
+        assertEquals(10L, event.getValue().getPostId());
+    }
+
+    @Test
+    void deleteComment_waitsForPendingComment() {
+        when(writeBehindWriter.findPending(1L)).thenReturn(Optional.of(validDto));
+        doThrow(new CommentWritePendingException("still being written")).when(writeBehindWriter).awaitApplied(1L);
+
+        assertThrows(CommentWritePendingException.class, () -> commentService.deleteComment(1L).block());
+
+        verifyNoInteractions(commentRepository, eventPublisher);
+    }
+
+    @Test
+    void deleteCommentsByPostId_deletesInChunksUntilOneRemovesNothing() {
+        writeProperties.setPostDeleteChunkSize(2);
+        when(commentRepository.deleteChunkByPostId(10L, 2))
+                .thenReturn(Mono.just(2L))
+                .thenReturn(Mono.just(1L))
+                .thenReturn(Mono.just(2L))
+                .thenReturn(Mono.just(0L));
+
+        Long deleted = commentService.deleteCommentsByPostId(10L).block();
+
+        assertEquals(5L, deleted);
+        InOrder order = inOrder(writeBehindWriter, commentRepository);
+        order.verify(writeBehindWriter).preparePostDelete(10L);
+        order.verify(commentRepository, times(4)).deleteChunkByPostId(10L, 2);
+        verify(eventPublisher, times(1)).publishEvent(any(CommentEvent.class));
+        assertEquals(4, meterRegistry.get("comment.operation.phase")
+                .tags("operation", "deletePost", "phase", "db").timer().count());
+    }
+
+    private static CommentDto commentAt(Long id, LocalDateTime createdAt) {
+        return new CommentDto(id, "John", "john@example.com", "Hello!", 10L, createdAt, createdAt);
+    }
+}
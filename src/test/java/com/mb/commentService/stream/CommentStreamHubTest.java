@@ -0,0 +1,299 @@
+package com.mb.commentService.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mb.commentService.config.CommentStreamProperties;
+import com.mb.commentService.dto.CommentDto;
+import com.mb.commentService.event.CommentEvent;
+import com.mb.commentService.exception.SubscriberLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitterReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentStreamHubTest {
+
+    private static final long POST_ID = 10L;
+
+    private final CommentStreamProperties properties = new CommentStreamProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CommentStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        properties.setQueueCapacity(4);
+        properties.setSlowConsumerTimeout(Duration.ofMillis(200));
+        properties.setSenderThreads(2);
+        properties.setWriteTimeout(Duration.ofSeconds(5));
+        startHub();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.stop();
+    }
+
+    @Test
+    void subscribersReceiveReadyThenTheirPostsWritesInOrder() throws Exception {
+        Client subscriber = subscribe(POST_ID, "cursor-1");
+        Client otherPost = subscribe(POST_ID + 1, "cursor-2");
+
+        hub.onCommentEvent(CommentEvent.created(comment(1L, "first")));
+        hub.onCommentEvent(CommentEvent.updated(comment(1L, "edited")));
+        hub.onCommentEvent(CommentEvent.deleted(1L, POST_ID));
+
+        assertTrue(subscriber.next().contains("event:ready\ndata:{\"cursor\":\"cursor-1\"}"));
+        assertTrue(subscriber.next().startsWith("event:created\n"));
+        assertTrue(subscriber.next().contains("\"comment\":\"edited\""));
+        assertTrue(subscriber.next().contains("event:deleted\ndata:{\"id\":1}"));
+        assertTrue(otherPost.next().contains("event:ready"));
+        assertNull(otherPost.sent.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void slowSubscriber_getsOneResyncInsteadOfBacklog_andIsDroppedWhenItCannotTakeIt() throws Exception {
+        Client slow = new Client();
+        slow.blocked = new CountDownLatch(1);
+        slow.subscribe(POST_ID, "cursor");
+        // The sender is stuck writing the ready event, which has left the queue.
+        waitUntil(() -> slow.sent.size() == 1);
+
+        for (long id = 1; id <= 20; id++) {
+            hub.onCommentEvent(CommentEvent.created(comment(id, "comment " + id)));
+        }
+        // Four events fill the queue behind the blocked ready event, the other 16 are coalesced.
+        waitUntil(() -> meterRegistry.counter("comment.stream.coalesced").count() == 16);
+        slow.blocked.countDown();
+
+        assertTrue(slow.next().contains("event:ready"));
+        String afterBacklog = slow.drain();
+        assertTrue(afterBacklog.contains("event:resync"), afterBacklog);
+        assertFalse(afterBacklog.contains("comment 20"), afterBacklog);
+
+        slow.blocked = new CountDownLatch(1);
+        hub.onCommentEvent(CommentEvent.created(comment(21L, "comment 21")));
+        waitUntil(() -> slow.sent.size() == 1);
+        for (long id = 22; id <= 30; id++) {
+            hub.onCommentEvent(CommentEvent.created(comment(id, "comment " + id)));
+        }
+        waitUntil(() -> meterRegistry.counter("comment.stream.coalesced").count() == 21);
+        Thread.sleep(properties.getSlowConsumerTimeout().toMillis() + 50);
+        hub.onCommentEvent(CommentEvent.created(comment(31L, "comment 31")));
+        waitUntil(() -> hub.getSubscriberCount() == 0);
+
+        // The fan-out thread disconnected it without waiting for the lock its blocked send holds.
+        Client other = subscribe(POST_ID + 1, "cursor");
+        hub.onCommentEvent(CommentEvent.created(comment(32L, "comment 32", POST_ID + 1)));
+        assertTrue(other.next().contains("event:ready"));
+        assertTrue(other.next().contains("comment 32"));
+        assertFalse(slow.isCompleted());
+
+        slow.blocked.countDown();
+        waitUntil(slow::isCompleted);
+    }
+
+    @Test
+    void stalledSends_areAbandonedAfterTheWriteTimeout_soOtherStreamsKeepFlowing() throws Exception {
+        hub.stop();
+        properties.setWriteTimeout(Duration.ofMillis(200));
+        startHub();
+        CountDownLatch stalled = new CountDownLatch(1);
+        Client first = new Client();
+        Client second = new Client();
+        first.blocked = stalled;
+        second.blocked = stalled;
+        first.subscribe(POST_ID, "cursor");
+        second.subscribe(POST_ID, "cursor");
+        // Both sender threads are now blocked.
+        waitUntil(() -> first.sent.size() == 1 && second.sent.size() == 1);
+
+        Client other = subscribe(POST_ID + 1, "cursor");
+
+        assertTrue(other.next().contains("event:ready"));
+        waitUntil(() -> meterRegistry.counter("comment.stream.stalled.sends").count() == 2
+                && hub.getSubscriberCount() == 1);
+        assertFalse(first.isCompleted() || second.isCompleted());
+        stalled.countDown();
+        waitUntil(() -> first.isCompleted() && second.isCompleted());
+    }
+
+    @Test
+    void completeStreams_doesNotWaitForStalledClients() throws Exception {
+        Client stalled = new Client();
+        stalled.blocked = new CountDownLatch(1);
+        stalled.subscribe(POST_ID, "cursor");
+        waitUntil(() -> stalled.sent.size() == 1);
+        Client idle = subscribe(POST_ID + 1, "cursor");
+        idle.next();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), hub::completeStreams);
+
+        waitUntil(idle::isCompleted);
+        assertEquals(0, hub.getSubscriberCount());
+        stalled.blocked.countDown();
+        waitUntil(stalled::isCompleted);
+    }
+
+    @Test
+    void failedWrite_removesSubscriber() throws Exception {
+        Client gone = new Client();
+        gone.failing = true;
+        gone.subscribe(POST_ID, "cursor");
+
+        waitUntil(() -> hub.getSubscriberCount() == 0);
+        hub.onCommentEvent(CommentEvent.created(comment(1L, "nobody listens")));
+        waitUntil(gone::isCompleted);
+    }
+
+    @Test
+    void register_refusesSubscribersBeyondLimit() {
+        properties.setMaxSubscribers(1);
+        hub.register(POST_ID, "cursor", new SseEmitter());
+
+        assertThrows(SubscriberLimitExceededException.class, () -> hub.register(POST_ID, "cursor", new SseEmitter()));
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    private void startHub() {
+        hub = new CommentStreamHub(new ObjectMapper().findAndRegisterModules(), properties, meterRegistry);
+        hub.start();
+    }
+
+    private Client subscribe(Long postId, String cursor) throws Exception {
+        Client client = new Client();
+        client.subscribe(postId, cursor);
+        return client;
+    }
+
+    private static CommentDto comment(Long id, String text) {
+        return comment(id, text, POST_ID);
+    }
+
+    private static CommentDto comment(Long id, String text, Long postId) {
+        return new CommentDto(id, "John", "john@example.com", text, postId, LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * A real {@link SseEmitter} connected the way Spring MVC connects a returned one, so sends and completion take
+     * the emitter's own lock. Captures each flushed event as text; can be made to block in the write like a
+     * client that stopped reading, or to fail like one that went away.
+     */
+    private final class Client {
+
+        final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        volatile CountDownLatch blocked;
+        volatile boolean failing;
+        private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+
+        void subscribe(Long postId, String cursor) throws Exception {
+            SseEmitter emitter = new SseEmitter();
+            request.setAsyncSupported(true);
+            StreamingResponse response = new StreamingResponse();
+            ServletWebRequest webRequest = new ServletWebRequest(request, response);
+            WebAsyncUtils.getAsyncManager(webRequest)
+                    .setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+            new ResponseBodyEmitterReturnValueHandler(List.of(new StringHttpMessageConverter(StandardCharsets.UTF_8)))
+                    .handleReturnValue(emitter, new MethodParameter(CommentStreamHub.class
+                            .getMethod("subscribe", Long.class, String.class), -1), new ModelAndViewContainer(), webRequest);
+            hub.register(postId, cursor, emitter);
+        }
+
+        boolean isCompleted() {
+            return request.getAsyncContext() instanceof MockAsyncContext context && context.getDispatchedPath() != null;
+        }
+
+        String next() throws InterruptedException {
+            String event = sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event sent");
+            return event;
+        }
+
+        String drain() throws InterruptedException {
+            StringBuilder events = new StringBuilder();
+            String event;
+            while ((event = sent.poll(200, TimeUnit.MILLISECONDS)) != null) {
+                events.append(event);
+            }
+            return events.toString();
+        }
+
+        private final class StreamingResponse extends MockHttpServletResponse {
+
+            private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        if (failing) {
+                            throw new IOException("Broken pipe");
+                        }
+                        pending.write(b);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                    }
+                };
+            }
+
+            @Override
+            public void flushBuffer() {
+                super.flushBuffer();
+                if (pending.size() == 0) {
+                    return;
+                }
+                sent.add(pending.toString(StandardCharsets.UTF_8));
+                pending.reset();
+                CountDownLatch latch = blocked;
+                if (latch != null) {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+}